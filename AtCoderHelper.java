@@ -1,11 +1,14 @@
 import java.io.BufferedReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URI;
 import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -13,10 +16,16 @@ import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.IntStream;
@@ -27,9 +36,40 @@ import java.util.stream.IntStream;
 public class AtCoderHelper {
 
     private static final String EXIT_COMMAND = "exit";
-    private static final String CONTEST_PAGE_FORMAT = "https://atcoder.jp/contests/%s";
-    private static final String TASK_PAGE_FORMAT = CONTEST_PAGE_FORMAT + "/tasks/%s_%s";
-    private static HttpClient client;
+    private static final String CONTEST_PAGE_FORMAT = "%s/contests/%s";
+    private static final String TASK_LIST_PAGE_FORMAT = CONTEST_PAGE_FORMAT + "/tasks";
+    private static final String TASK_PAGE_FORMAT = TASK_LIST_PAGE_FORMAT + "/%s_%s";
+    private static final String PREFETCH_CONCURRENCY_OPTION = "--prefetch-concurrency=";
+    private static final String CACHE_SIZE_OPTION = "--cache-size=";
+    private static final String OFFLINE_OPTION = "--offline";
+    private static final String SITE_OPTION = "--site=";
+    private static HttpCache cache;
+    private static int prefetchConcurrency = 4;
+    private static long cacheSizeBytes = 64L * 1024 * 1024;
+    private static boolean offline = false;
+    private static String site = "https://atcoder.jp";
+
+    /**
+     * html special characters to translate
+     */
+    private static final Map<String, String> HTML_ENTITIES = Map.of("amp", "&", "quot", "\"", "apos", "'",
+            "nbsp", " ", "lt", "<", "gt", ">");
+
+    /**
+     * maximum length of html entity name ("#x10FFFF")
+     */
+    private static final int MAX_HTML_ENTITY_LENGTH = 8;
+
+    /**
+     * execution time limit in the line of limits ("2 sec", "2.5 sec", etc.)
+     */
+    private static final Pattern TIME_LIMIT_PATTERN = Pattern.compile("([0-9]+(?:\\.[0-9]+)?)\\s*sec");
+
+    /**
+     * memory limit in the line of limits ("1024 MiB", "256 MB", etc.)
+     */
+    private static final Pattern MEMORY_LIMIT_PATTERN = Pattern
+            .compile("メモリ制限\\s*[:：]\\s*([0-9]+(?:\\.[0-9]+)?)\\s*([KMG])i?B");
 
     /**
      * status of state machine
@@ -46,6 +86,16 @@ public class AtCoderHelper {
          */
         task,
 
+        /**
+         * download samples of all tasks in current contest
+         */
+        prefetch,
+
+        /**
+         * import samples of many contests into the sample archive
+         */
+        archive,
+
         /**
          * execute test
          */
@@ -60,11 +110,19 @@ public class AtCoderHelper {
     /**
      * entry point
      * 
-     * @param args boot parameter (not used)
+     * @param args boot parameters ("--prefetch-concurrency=N", "--cache-size=MB",
+     *             "--offline" and "--site=URL" are available)
      */
     public static void main(String[] args) {
 
-        client = HttpClient.newHttpClient();
+        try {
+            parseBootParameters(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        cache = new HttpCache(HttpClient.newHttpClient(), Paths.get(Constants.HTTP_CACHE_FOLDER), cacheSizeBytes,
+                offline);
         printBootScreen();
 
         boolean exitFlag = false;
@@ -87,6 +145,14 @@ public class AtCoderHelper {
                         task = getTask(sc, contestName, task);
                         break;
 
+                    case prefetch:
+                        prefetchTasks(contestName);
+                        break;
+
+                    case archive:
+                        archiveContests(sc);
+                        break;
+
                     case test:
                         executeTests();
                         break;
@@ -103,6 +169,49 @@ public class AtCoderHelper {
         printExitScreen();
     }
 
+    /**
+     * parse boot parameters
+     * 
+     * @param args boot parameters
+     * @throws IllegalArgumentException if parameters are invalid
+     */
+    private static void parseBootParameters(String[] args) {
+        for (String arg : args) {
+            if (arg.startsWith(PREFETCH_CONCURRENCY_OPTION)) {
+                prefetchConcurrency = parsePositiveInt(arg, PREFETCH_CONCURRENCY_OPTION);
+            } else if (arg.startsWith(CACHE_SIZE_OPTION)) {
+                cacheSizeBytes = parsePositiveInt(arg, CACHE_SIZE_OPTION) * 1024L * 1024;
+            } else if (arg.equals(OFFLINE_OPTION)) {
+                offline = true;
+            } else if (arg.startsWith(SITE_OPTION)) {
+                site = arg.substring(SITE_OPTION.length()).replaceAll("/+$", "");
+            } else {
+                throw new IllegalArgumentException("Undefined boot parameter: " + arg);
+            }
+        }
+    }
+
+    /**
+     * parse value of boot parameter as positive integer
+     * 
+     * @param arg    boot parameter
+     * @param prefix prefix of the parameter before the value
+     * @return value
+     * @throws IllegalArgumentException if the value is not a positive integer
+     */
+    private static int parsePositiveInt(String arg, String prefix) {
+        int value;
+        try {
+            value = Integer.parseInt(arg.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            value = 0;
+        }
+        if (value <= 0) {
+            throw new IllegalArgumentException("Invalid value of " + arg + ": positive integer is required");
+        }
+        return value;
+    }
+
     /**
      * print boot screen
      */
@@ -153,16 +262,13 @@ public class AtCoderHelper {
                 System.out.println();
                 return currentContestName;
             } else if (Pattern.matches("^[a-z]+[0-9]+$", contestName)) {
-                HttpRequest request = HttpRequest.newBuilder()
-                        .uri(createContestPageUri(contestName)).GET().build();
-                try {
-                    HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-                    if (response.statusCode() == 200) {
+                try (HttpCache.Response response = cache.get(createContestPageUri(contestName))) {
+                    if (response.statusCode == 200) {
                         System.out.println("Successfully changed to contest " + contestName);
                         System.out.println();
                         return contestName;
                     } else {
-                        System.out.println("Failed to get contest page with status code " + response.statusCode());
+                        System.out.println("Failed to get contest page with status code " + response.statusCode);
                     }
                 } catch (IOException | InterruptedException e) {
                     System.out.println("Failed to send HTTP request:" + e.getLocalizedMessage());
@@ -184,7 +290,17 @@ public class AtCoderHelper {
      * @return uri of contest page
      */
     private static URI createContestPageUri(String contestName) {
-        return URI.create(String.format(CONTEST_PAGE_FORMAT, contestName));
+        return URI.create(String.format(CONTEST_PAGE_FORMAT, site, contestName));
+    }
+
+    /**
+     * create task list page uri to access
+     * 
+     * @param contestName contest name
+     * @return uri of task list page
+     */
+    private static URI createTaskListPageUri(String contestName) {
+        return URI.create(String.format(TASK_LIST_PAGE_FORMAT, site, contestName));
     }
 
     /**
@@ -195,7 +311,7 @@ public class AtCoderHelper {
      * @return uri of task page
      */
     private static URI createTaskPageUri(String contestName, String task) {
-        return URI.create(String.format(TASK_PAGE_FORMAT, contestName, contestName, task));
+        return URI.create(String.format(TASK_PAGE_FORMAT, site, contestName, contestName, task));
     }
 
     /**
@@ -209,6 +325,8 @@ public class AtCoderHelper {
     private static Status getNextStatus(Scanner sc, String currentContestName, String currentTask) {
         final String contestCommand = "contest";
         final String taskCommand = "task";
+        final String prefetchCommand = "prefetch";
+        final String archiveCommand = "archive";
         final String testCommand = "test";
         do {
             System.out
@@ -216,6 +334,8 @@ public class AtCoderHelper {
             System.out.println("Input one of the commands below.");
             System.out.println(contestCommand + ": switch contest");
             System.out.println(taskCommand + ": switch task in current contest");
+            System.out.println(prefetchCommand + ": download samples of all tasks in current contest");
+            System.out.println(archiveCommand + ": import samples of many contests into the sample archive");
             System.out.println(testCommand + ": execute tests");
             System.out.println(EXIT_COMMAND + ": return to menu");
             System.out.println();
@@ -229,6 +349,10 @@ public class AtCoderHelper {
                     return Status.contest;
                 case taskCommand:
                     return Status.task;
+                case prefetchCommand:
+                    return Status.prefetch;
+                case archiveCommand:
+                    return Status.archive;
                 case testCommand:
                     return Status.test;
                 case EXIT_COMMAND:
@@ -264,21 +388,40 @@ public class AtCoderHelper {
                 System.out.println("returning to menu...");
                 System.out.println();
                 return currentTask;
+            } else if (!Pattern.matches("^[0-9a-z_]+$", task)) {
+                System.out.println(String.format("Invalid input: \"%s\" is neither task name nor exit command", task));
+                System.out.println();
+                continue;
             }
 
-            HttpRequest request = HttpRequest.newBuilder().uri(createTaskPageUri(contestName, task)).GET().build();
-            try {
-                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-                if (response.statusCode() == 200) {
-                    List<TestCase> samples = detectSamples(response.body());
-                    if (samples.size() > 0) {
-                        saveSamples(samples);
-                        System.out.println(samples.size() + " sample(s) have been downloaded");
+            // switch to samples saved by prefetch command without accessing the task page
+            Path taskDir = createTaskDataPath(contestName, task);
+            if (Files.isDirectory(taskDir)) {
+                int count = loadSamples(taskDir);
+                if (count >= 0) {
+                    saveTaskMetadata(contestName, task);
+                    System.out.println(count + " prefetched sample(s) have been loaded");
+                    System.out.println();
+                    return task;
+                }
+            }
+
+            try (HttpCache.Response response = cache.get(createTaskPageUri(contestName, task))) {
+                if (response.statusCode == 200) {
+                    TaskPage page = parseTaskPage(response.body);
+                    if (page.samples.size() > 0) {
+                        String worstCases = saveTaskPage(contestName, task, page);
+                        loadSamples(taskDir);
+                        saveTaskMetadata(contestName, task);
+                        System.out.println(page.samples.size() + " sample(s) have been downloaded");
+                        System.out.println(page.getLimitText());
+                        System.out.println(worstCases);
                         System.out.println();
                         return task;
                     }
+                    System.out.println("Failed to detect test data");
                 } else {
-                    System.out.println("Failed to get task page with status code " + response.statusCode());
+                    System.out.println("Failed to get task page with status code " + response.statusCode);
                 }
             } catch (IOException | InterruptedException e) {
                 System.out.println("Failed to send HTTP request:" + e.getLocalizedMessage());
@@ -289,107 +432,510 @@ public class AtCoderHelper {
     }
 
     /**
-     * detect sample data from problem page html
+     * download samples of all tasks in current contest into directories of each
+     * task
+     * 
+     * @param contestName current contest name
+     */
+    private static void prefetchTasks(String contestName) {
+        List<String> tasks = getTaskList(contestName);
+        if (tasks.isEmpty()) {
+            System.out.println();
+            return;
+        }
+        System.out.println(String.format("Downloading %d task(s) with up to %d concurrent request(s)...",
+                tasks.size(), prefetchConcurrency));
+
+        Map<String, CompletableFuture<String>> futures = getTaskPages(contestName, tasks,
+                task -> response -> saveTaskSamples(contestName, task, response));
+        futures.forEach((task, future) -> {
+            String result;
+            try {
+                result = future.join();
+            } catch (CompletionException e) {
+                result = "failed to get task page: " + e.getCause().getLocalizedMessage();
+            }
+            System.out.println(String.format("%s: %s", task, result));
+        });
+        System.out.println();
+    }
+
+    /**
+     * download task pages concurrently
+     * 
+     * pages in flight are limited, and each page is parsed on threads of the
+     * cache while it is arriving (or is read from the cache if not modified)
      * 
-     * @param html problem page html
-     * @return List of sample data
+     * @param <T>         type of parsed result
+     * @param contestName contest name
+     * @param tasks       task names
+     * @param parsers     parser of the page of each task
+     * @return results by task name (tasks after an interruption are missing)
      */
-    private static List<TestCase> detectSamples(String html) {
-        // cut all text after "lang-en" to avoid data duplication and translate html
-        // special characters
-        String target = translateHtmlSpecialCharacters(html.substring(html.indexOf("入力例"), html.indexOf("lang-en")));
+    private static <T> Map<String, CompletableFuture<T>> getTaskPages(String contestName, List<String> tasks,
+            Function<String, HttpCache.Parser<T>> parsers) {
+        Semaphore semaphore = new Semaphore(prefetchConcurrency);
+        Map<String, CompletableFuture<T>> futures = new LinkedHashMap<>();
+        try {
+            for (String task : tasks) {
+                semaphore.acquire();
+                futures.put(task, cache.getAsync(createTaskPageUri(contestName, task), parsers.apply(task))
+                        .whenComplete((result, e) -> semaphore.release()));
+            }
+        } catch (InterruptedException e) {
+            System.out.println("Download has been interrupted: " + e.getLocalizedMessage());
+        }
+        return futures;
+    }
 
-        // find <pre>test case here</pre>
-        Pattern p = Pattern.compile("<pre>(?:(?!</pre>)(?!<var>)[\\S\\s])*</pre>");
-        Matcher m = p.matcher(target);
+    /**
+     * import samples of contests input from stdin into the sample archive
+     * 
+     * tasks already in the archive are skipped, so a range of contests can be
+     * imported again after an interruption. samples of each contest are
+     * appended at once after all of its pages are downloaded.
+     * 
+     * @param sc scanner instance
+     */
+    private static void archiveContests(Scanner sc) {
+        List<String> contestNames;
+        do {
+            System.out.println(
+                    "Input contest names separated by spaces, or ranges of them (ex. \"abc300-abc320 arc180\")");
+            System.out.println("Or input \"" + EXIT_COMMAND + "\" to return to menu");
+            System.out.println();
+            System.out.print("command?: ");
 
-        List<String> matchedValues = new ArrayList<>();
-        while (m.find()) {
-            String group = m.group().replaceAll("\\r\\n|\\r|\\n", System.lineSeparator());
+            String line = sc.nextLine().trim();
+            System.out.println();
 
-            // get data between <pre> and </pre>
-            matchedValues.add(group.substring(group.indexOf(">") + 1, group.lastIndexOf("<")));
+            if (line.equals(EXIT_COMMAND)) {
+                System.out.println("returning to menu...");
+                System.out.println();
+                return;
+            }
+            try {
+                contestNames = parseContestNames(line);
+                break;
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+                System.out.println("Please try again");
+                System.out.println();
+            }
+        } while (true);
+
+        SampleArchive archive = new SampleArchive(Paths.get(Constants.SAMPLE_ARCHIVE_FILE),
+                Paths.get(Constants.SAMPLE_INDEX_FILE));
+        Set<String> archived;
+        try {
+            archived = new LinkedHashSet<>(archive.getTasks().keySet());
+        } catch (IOException e) {
+            System.out.println("Failed to read the sample archive: " + e.getLocalizedMessage());
+            System.out.println();
+            return;
+        }
+
+        int archivedTasks = 0;
+        for (String contestName : contestNames) {
+            System.out.println("----- " + contestName);
+            List<String> tasks = new ArrayList<>();
+            for (String task : getTaskList(contestName)) {
+                if (!archived.contains(contestName + "_" + task)) {
+                    tasks.add(task);
+                }
+            }
+            if (tasks.isEmpty()) {
+                System.out.println("no task to import");
+                continue;
+            }
+
+            Map<String, CompletableFuture<SampleArchive.Entry>> futures = getTaskPages(contestName, tasks,
+                    task -> response -> createArchiveEntry(contestName, task, response));
+            List<SampleArchive.Entry> entries = new ArrayList<>();
+            int samples = 0;
+            for (Map.Entry<String, CompletableFuture<SampleArchive.Entry>> future : futures.entrySet()) {
+                try {
+                    SampleArchive.Entry entry = future.getValue().join();
+                    entries.add(entry);
+                    samples += entry.samples.size();
+                } catch (CompletionException e) {
+                    System.out.println(String.format("%s: %s", future.getKey(), e.getCause().getLocalizedMessage()));
+                }
+            }
+            if (entries.isEmpty()) {
+                continue;
+            }
+            try {
+                archive.append(entries);
+            } catch (IOException e) {
+                System.out.println("Failed to write the sample archive: " + e.getLocalizedMessage());
+                System.out.println();
+                return;
+            }
+            entries.forEach(entry -> archived.add(entry.metadata.task));
+            archivedTasks += entries.size();
+            System.out.println(String.format("%d task(s) with %d sample(s) have been imported", entries.size(),
+                    samples));
+        }
+        System.out.println(String.format("%d task(s) are in the sample archive (%d imported now)", archived.size(),
+                archivedTasks));
+        System.out.println();
+    }
+
+    /**
+     * parse contest names separated by spaces
+     * 
+     * a range like "abc300-abc320" is expanded to contests between them, with
+     * numbers padded to the width of the first one
+     * 
+     * @param line contest names and ranges
+     * @return contest names without duplicates
+     * @throws IllegalArgumentException if a name or range is invalid
+     */
+    private static List<String> parseContestNames(String line) {
+        Pattern rangePattern = Pattern.compile("^([a-z]+)([0-9]+)-([a-z]+)([0-9]+)$");
+        Set<String> contestNames = new LinkedHashSet<>();
+        for (String name : line.split("\\s+")) {
+            Matcher m = rangePattern.matcher(name);
+            if (m.matches() && m.group(1).equals(m.group(3))) {
+                int first = Integer.parseInt(m.group(2));
+                int last = Integer.parseInt(m.group(4));
+                if (first > last) {
+                    throw new IllegalArgumentException(String.format("Invalid range: \"%s\" is reversed", name));
+                }
+                String format = "%s%0" + m.group(2).length() + "d";
+                for (int i = first; i <= last; i++) {
+                    contestNames.add(String.format(format, m.group(1), i));
+                }
+            } else if (Pattern.matches("^[a-z]+[0-9]+$", name)) {
+                contestNames.add(name);
+            } else {
+                throw new IllegalArgumentException(
+                        String.format("Invalid input: \"%s\" is neither contest name nor range", name));
+            }
         }
+        return new ArrayList<>(contestNames);
+    }
+
+    /**
+     * create an entry of the sample archive from a downloaded task page
+     * 
+     * @param contestName contest name
+     * @param task        task name
+     * @param response    response of the task page
+     * @return samples and metadata of the task
+     * @throws IOException if failed to get the page or to detect samples
+     */
+    private static SampleArchive.Entry createArchiveEntry(String contestName, String task,
+            HttpCache.Response response) throws IOException {
+        if (response.statusCode != 200) {
+            throw new IOException("failed to get task page with status code " + response.statusCode);
+        }
+        TaskPage page = parseTaskPage(response.body);
+        if (page.samples.isEmpty()) {
+            throw new IOException("failed to detect test data");
+        }
+
+        long maxSize = -1;
+        if (page.constraints != null && page.inputFormat != null) {
+            try {
+                maxSize = InputSpec.parse(page.constraints, page.inputFormat).getMaxSize();
+            } catch (IllegalArgumentException e) {
+                // --scaling needs N then
+            }
+        }
+        List<SampleArchive.Sample> samples = new ArrayList<>();
+        for (TestCase sample : page.samples) {
+            samples.add(new SampleArchive.Sample(ByteBuffer.wrap(sample.input.getBytes(StandardCharsets.UTF_8)),
+                    ByteBuffer.wrap(sample.output.getBytes(StandardCharsets.UTF_8))));
+        }
+        return new SampleArchive.Entry(new TaskMetadata(contestName, contestName + "_" + task,
+                page.timeLimitMillis, page.memoryLimitMegabytes, maxSize), samples);
+    }
+
+    /**
+     * get task names from task list page of the contest
+     * 
+     * @param contestName contest name
+     * @return task names in order of the list, or empty list if failed
+     */
+    private static List<String> getTaskList(String contestName) {
+        try (HttpCache.Response response = cache.get(createTaskListPageUri(contestName))) {
+            if (response.statusCode != 200) {
+                System.out.println("Failed to get task list page with status code " + response.statusCode);
+                return List.of();
+            }
 
-        if (matchedValues.size() == 0 || matchedValues.size() % 2 == 1) {
-            System.out.println("Failed to detect test data");
+            // find links to task pages (each task is linked twice, by its letter and its title)
+            Pattern p = Pattern.compile(String.format("href=\"/contests/%s/tasks/%s_([0-9a-z_]+)\"",
+                    Pattern.quote(contestName), Pattern.quote(contestName)));
+            Matcher m = p.matcher(new String(response.body.readAllBytes(), StandardCharsets.UTF_8));
+            Set<String> tasks = new LinkedHashSet<>();
+            while (m.find()) {
+                tasks.add(m.group(1));
+            }
+            if (tasks.isEmpty()) {
+                System.out.println("Failed to detect tasks");
+            }
+            return new ArrayList<>(tasks);
+        } catch (IOException | InterruptedException e) {
+            System.out.println("Failed to send HTTP request:" + e.getLocalizedMessage());
             return List.of();
         }
+    }
+
+    /**
+     * save samples of a downloaded task page into the directory of the task
+     * 
+     * @param contestName contest name
+     * @param task        task name
+     * @param response    response of the task page
+     * @return result to show
+     * @throws IOException if failed to read the page
+     */
+    private static String saveTaskSamples(String contestName, String task, HttpCache.Response response)
+            throws IOException {
+        if (response.statusCode != 200) {
+            return "failed to get task page with status code " + response.statusCode;
+        }
+        TaskPage page = parseTaskPage(response.body);
+        if (page.samples.isEmpty()) {
+            return "failed to detect test data";
+        }
+        String worstCases = saveTaskPage(contestName, task, page);
+        return page.samples.size() + " sample(s) have been downloaded" + (response.cached ? " (not modified)" : "")
+                + ", " + page.getLimitText() + ", " + worstCases;
+    }
+
+    /**
+     * create path of directory to keep samples of a task in
+     * 
+     * @param contestName contest name
+     * @param task        task name
+     * @return directory of the task
+     */
+    private static Path createTaskDataPath(String contestName, String task) {
+        return Paths.get(Constants.TASK_DATA_FOLDER, contestName, task);
+    }
+
+    /**
+     * detect sample data from problem page html
+     * 
+     * @param html stream of problem page html
+     * @return List of sample data (empty if not detected)
+     * @throws IOException if failed to read the page
+     */
+    static List<TestCase> detectSamples(InputStream html) throws IOException {
+        return parseTaskPage(html).samples;
+    }
 
-        List<TestCase> result = new ArrayList<>();
-        for (int i = 0; i < matchedValues.size() / 2; i++) {
-            result.add(new TestCase(matchedValues.get(i * 2), matchedValues.get(i * 2 + 1)));
+    /**
+     * detect sample data and limits from problem page html
+     * 
+     * the page is read only once from the start, without being held in memory
+     * as a whole. limits are in the line starting with "実行時間制限" above the
+     * statement. constraints are the section after "制約", and input format is
+     * the {@code <pre>} block after "入力". samples are {@code <pre>} blocks
+     * without {@code <var>} after "入力例", and reading stops at "lang-en" to
+     * avoid data duplication.
+     * 
+     * @param html stream of problem page html
+     * @return detected data of the task
+     * @throws IOException if failed to read the page
+     */
+    static TaskPage parseTaskPage(InputStream html) throws IOException {
+        Reader reader = new InputStreamReader(html, StandardCharsets.UTF_8);
+        char[] buffer = new char[8192];
+        TaskPageExtractor extractor = new TaskPageExtractor();
+
+        int length;
+        while ((length = reader.read(buffer)) >= 0) {
+            for (int i = 0; i < length; i++) {
+                if (!extractor.accept(buffer[i])) {
+                    return extractor.getTaskPage();
+                }
+            }
         }
+        return extractor.getTaskPage();
+    }
 
-        return result;
+    /**
+     * parse execution time limit like ": 2 sec / メモリ制限: 1024 MiB"
+     * 
+     * @param text text following "実行時間制限"
+     * @return time limit in milliseconds, or -1 if not found
+     */
+    static long parseTimeLimitMillis(String text) {
+        Matcher m = TIME_LIMIT_PATTERN.matcher(text);
+        if (!m.find()) {
+            return -1;
+        }
+        return Math.round(Double.parseDouble(m.group(1)) * 1000);
     }
 
     /**
-     * translate html special characters
+     * parse memory limit like ": 2 sec / メモリ制限: 1024 MiB"
+     * 
+     * @param text text following "実行時間制限"
+     * @return memory limit in megabytes (MB and MiB are regarded as the same),
+     *         or -1 if not found
+     */
+    static int parseMemoryLimitMegabytes(String text) {
+        Matcher m = MEMORY_LIMIT_PATTERN.matcher(text);
+        if (!m.find()) {
+            return -1;
+        }
+        double value = Double.parseDouble(m.group(1));
+        switch (m.group(2).charAt(0)) {
+            case 'K':
+                return (int) Math.ceil(value / 1024);
+            case 'G':
+                return (int) Math.round(value * 1024);
+            default:
+                return (int) Math.round(value);
+        }
+    }
+
+    /**
+     * translate html special characters and line separators
      * 
      * @param source source text of html
+     * @param length length of the text to translate
      * @return converted text
      */
-    private static String translateHtmlSpecialCharacters(String source) {
-
-        // set default replace characters
-        Map<String, String> map = new HashMap<>();
-        map.put("&amp;", "&");
-        map.put("&quot;", "\"");
-        map.put("&apos;", "'");
-        map.put("&nbsp;", " ");
-        map.put("&lt;", "<");
-        map.put("&gt;", ">");
-
-        // find replace target indexes
-        Pattern p = Pattern.compile("&(amp|quot|apos|nbsp|lt|gt|#\\d+|#x[0-9A-Fa-f]+);");
-        Matcher m = p.matcher(source);
-
-        StringBuilder builder = new StringBuilder();
-        int pos = 0;
-
-        // replace all matched text
-        while (m.find()) {
-            builder.append(source.substring(pos, m.start()));
-
-            String matched = m.group();
-
-            // translate character with code point
-            if (!map.containsKey(matched)) {
-                int st;
-                int radix;
-                if (matched.charAt(2) == 'x') {
-                    st = 3;
-                    radix = 16;
-                } else {
-                    st = 2;
-                    radix = 10;
+    static String translateHtmlSpecialCharacters(CharSequence source, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            char c = source.charAt(i);
+            if (c == '\r' || c == '\n') {
+                if (c == '\r' && i + 1 < length && source.charAt(i + 1) == '\n') {
+                    i++;
                 }
+                builder.append(System.lineSeparator());
+                continue;
+            }
 
-                int[] codePoints = new int[] { Integer.parseInt(matched.substring(st, matched.length() - 1), radix) };
-                map.put(matched, new String(codePoints, 0, 1));
+            String translated = null;
+            int end = -1;
+            if (c == '&') {
+                for (int j = i + 1; j < Math.min(length, i + MAX_HTML_ENTITY_LENGTH + 2); j++) {
+                    if (source.charAt(j) == ';') {
+                        end = j;
+                        break;
+                    }
+                }
+                if (end >= 0) {
+                    translated = translateHtmlEntity(source.subSequence(i + 1, end).toString());
+                }
+            }
+            if (translated != null) {
+                builder.append(translated);
+                i = end;
+            } else {
+                builder.append(c);
             }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * translate an html entity
+     * 
+     * @param name name of the entity between "&amp;" and ";"
+     * @return translated text, or null if not an entity
+     */
+    private static String translateHtmlEntity(String name) {
+        String translated = HTML_ENTITIES.get(name);
+        if (translated != null || !name.startsWith("#")) {
+            return translated;
+        }
 
-            builder.append(map.get(matched));
+        // translate character with code point
+        try {
+            int codePoint = name.startsWith("#x") ? Integer.parseInt(name.substring(2), 16)
+                    : Integer.parseInt(name.substring(1), 10);
+            return new String(Character.toChars(codePoint));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * save samples, worst-case inputs and metadata of a task into the directory
+     * of the task
+     * 
+     * @param contestName contest name
+     * @param task        task name
+     * @param page        detected data of the task
+     * @return result of generating worst-case inputs to show
+     */
+    private static String saveTaskPage(String contestName, String task, TaskPage page) {
+        Path taskDir = createTaskDataPath(contestName, task);
+        saveSamples(page.samples, taskDir);
 
-            pos = m.end();
+        long maxSize = -1;
+        String worstCases;
+        try {
+            if (page.constraints == null || page.inputFormat == null) {
+                throw new IllegalArgumentException("constraints or input format is not detected");
+            }
+            InputSpec spec = InputSpec.parse(page.constraints, page.inputFormat);
+            saveWorstCases(spec, taskDir.resolve(Paths.get(Constants.TEST_INPUT_FOLDER).getFileName()));
+            maxSize = spec.getMaxSize();
+            worstCases = InputSpec.Variant.values().length + " worst-case input(s) have been generated (" + spec
+                    + ")";
+        } catch (IllegalArgumentException e) {
+            worstCases = "worst-case inputs are not generated (" + e.getLocalizedMessage() + ")";
+        } catch (IOException e) {
+            worstCases = "failed to save worst-case inputs: " + e.getLocalizedMessage();
         }
 
-        builder.append(source.substring(pos));
+        try {
+            new TaskMetadata(contestName, contestName + "_" + task, page.timeLimitMillis,
+                    page.memoryLimitMegabytes, maxSize)
+                    .save(taskDir.resolve(Paths.get(Constants.TASK_METADATA_FILE).getFileName()));
+        } catch (IOException e) {
+            System.out.println("Failed to save task metadata: " + e.getLocalizedMessage());
+        }
+        return worstCases;
+    }
 
-        return builder.toString();
+    /**
+     * save worst-case inputs of each variant without answers, so TestExecutor
+     * executes them without judging
+     * 
+     * inputs are written streaming, and seeds are fixed so the same inputs are
+     * generated every time.
+     * 
+     * @param spec     specification of input of the task
+     * @param inputDir directory to save inputs into
+     * @throws IOException if failed to write
+     */
+    private static void saveWorstCases(InputSpec spec, Path inputDir) throws IOException {
+        try {
+            for (InputSpec.Variant variant : InputSpec.Variant.values()) {
+                spec.write(variant, inputDir.resolve(variant.getFileName()), variant.ordinal());
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            // don't leave inputs written halfway
+            for (InputSpec.Variant variant : InputSpec.Variant.values()) {
+                Files.deleteIfExists(inputDir.resolve(variant.getFileName()));
+            }
+            throw e;
+        }
     }
 
     /**
-     * save samples to file
+     * save samples to files in the directory of a task
      * 
      * @param samples test case data
+     * @param taskDir directory of the task
      */
-    private static void saveSamples(List<TestCase> samples) {
+    private static void saveSamples(List<TestCase> samples, Path taskDir) {
 
         // remove all current files
-        Path inputDir = Paths.get(Constants.TEST_INPUT_FOLDER);
-        Path answerDir = Paths.get(Constants.TEST_ANSWER_FOLDER);
+        Path inputDir = taskDir.resolve(Paths.get(Constants.TEST_INPUT_FOLDER).getFileName());
+        Path answerDir = taskDir.resolve(Paths.get(Constants.TEST_ANSWER_FOLDER).getFileName());
 
         deleteFileTree(inputDir);
         deleteFileTree(answerDir);
@@ -402,6 +948,73 @@ public class AtCoderHelper {
         });
     }
 
+    /**
+     * replace current test data with samples (and worst-case inputs) in the
+     * directory of a task
+     * 
+     * @param taskDir directory of the task
+     * @return number of loaded samples, or -1 if failed
+     */
+    private static int loadSamples(Path taskDir) {
+        Path inputDir = Paths.get(Constants.TEST_INPUT_FOLDER);
+        Path answerDir = Paths.get(Constants.TEST_ANSWER_FOLDER);
+
+        deleteFileTree(inputDir);
+        deleteFileTree(answerDir);
+
+        try {
+            copyFiles(taskDir.resolve(inputDir.getFileName()), inputDir);
+            // worst-case inputs have no answers
+            return copyFiles(taskDir.resolve(answerDir.getFileName()), answerDir);
+        } catch (IOException e) {
+            System.out.println("Failed to load samples: " + e.getLocalizedMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * save which task the current test data belongs to with its limits, so
+     * TestExecutor can judge with the limits and keep timing history of each
+     * task
+     * 
+     * @param contestName contest name
+     * @param task        task name
+     */
+    private static void saveTaskMetadata(String contestName, String task) {
+        Path metadataPath = Paths.get(Constants.TASK_METADATA_FILE);
+        try {
+            TaskMetadata metadata = TaskMetadata.load(createTaskDataPath(contestName, task)
+                    .resolve(metadataPath.getFileName()));
+            if (metadata.task == null) {
+                // prefetched before limits were saved
+                metadata = new TaskMetadata(contestName, contestName + "_" + task, -1, -1, -1);
+            }
+            metadata.save(metadataPath);
+        } catch (IOException e) {
+            System.out.println("Failed to save task metadata: " + e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * copy files directly below source directory into target directory
+     * 
+     * @param sourceDir directory to copy from
+     * @param targetDir directory to copy into (created if not exists)
+     * @return number of copied files
+     * @throws IOException if failed to copy
+     */
+    private static int copyFiles(Path sourceDir, Path targetDir) throws IOException {
+        Files.createDirectories(targetDir);
+        int count = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(sourceDir)) {
+            for (Path file : stream) {
+                Files.copy(file, targetDir.resolve(file.getFileName()));
+                count++;
+            }
+        }
+        return count;
+    }
+
     /**
      * delete all files and directories below baseDir
      * 
@@ -478,52 +1091,290 @@ public class AtCoderHelper {
     }
 
     /**
-     * execute tests with currently downloaded test data
+     * execute tests with currently downloaded test data, printing output of
+     * TestExecutor as soon as each line is written
      */
     private static void executeTests() {
+        System.out.println();
         try {
             Process process = new ProcessBuilder("powershell", "./execute_tests.ps1").start();
-            BufferedReader stdOutReader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            BufferedReader stdErrReader = new BufferedReader(new InputStreamReader(process.getErrorStream()));
-            StringBuilder stdOutBuilder = new StringBuilder();
-            StringBuilder stdErrBuilder = new StringBuilder();
-
-            boolean continueRead = true;
-            while (continueRead) {
-                continueRead = false;
-
-                String out = stdOutReader.readLine();
-                if (out != null) {
-                    continueRead = true;
-                    stdOutBuilder.append(out);
-                    stdOutBuilder.append("\n");
+            process.getOutputStream().close();
+
+            // pump each stream on its own thread, since blocking on one stream stalls the
+            // other and the child may block on a full pipe
+            Thread stdOutPump = startPump(process.getInputStream());
+            Thread stdErrPump = startPump(process.getErrorStream());
+            process.waitFor();
+            stdOutPump.join();
+            stdErrPump.join();
+        } catch (IOException | InterruptedException e) {
+            System.out.println("Failed to execute test: " + e.getLocalizedMessage());
+        }
+        System.out.println();
+    }
+
+    /**
+     * start a thread printing lines of a stream of a child process
+     * 
+     * @param stream to print
+     * @return started thread, which ends at the end of the stream
+     */
+    private static Thread startPump(InputStream stream) {
+        Thread thread = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    System.out.println(line);
+                }
+            } catch (IOException e) {
+                System.out.println("Failed to read output of test: " + e.getLocalizedMessage());
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * detector of a fixed text in a stream of characters
+     * 
+     * no proper prefix of the text may be its suffix (true for the markers in
+     * html used here), so it's detected without backtracking.
+     */
+    private static class Marker {
+
+        private final String text;
+        private int matched = 0;
+
+        /**
+         * constructor
+         * 
+         * @param text text to detect
+         */
+        public Marker(String text) {
+            this.text = text;
+        }
+
+        /**
+         * accept next character
+         * 
+         * @param c next character
+         * @return true if the text ends with this character
+         */
+        public boolean accept(char c) {
+            if (c == text.charAt(matched)) {
+                matched++;
+            } else {
+                matched = c == text.charAt(0) ? 1 : 0;
+            }
+            if (matched == text.length()) {
+                matched = 0;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * extractor of samples and limits from characters of problem page html
+     */
+    private static class TaskPageExtractor {
+
+        private final Marker limitStart = new Marker("実行時間制限");
+        private final StringBuilder limitText = new StringBuilder();
+        private boolean inLimit = false;
+        private final Marker constraintsStart = new Marker("<h3>制約</h3>");
+        private final Marker constraintsEnd = new Marker("</section>");
+        private final StringBuilder constraints = new StringBuilder();
+        private boolean inConstraints = false;
+        private final Marker formatStart = new Marker("<h3>入力</h3>");
+        private final Marker formatBlockStart = new Marker("<pre>");
+        private final Marker formatBlockEnd = new Marker("</pre>");
+        private final StringBuilder format = new StringBuilder();
+        private boolean afterFormatStart = false;
+        private boolean inFormat = false;
+        private final Marker sectionStart = new Marker("入力例");
+        private final Marker sectionEnd = new Marker("lang-en");
+        private final Marker blockStart = new Marker("<pre>");
+        private final Marker blockEnd = new Marker("</pre>");
+        private final Marker var = new Marker("<var>");
+        private final StringBuilder block = new StringBuilder();
+        private final List<TestCase> samples = new ArrayList<>();
+        private String input = null;
+        private boolean inSection = false;
+        private boolean inBlock = false;
+        private boolean hasVar = false;
+
+        /**
+         * accept next character
+         * 
+         * @param c next character
+         * @return false if samples end (the rest of html is not needed)
+         */
+        public boolean accept(char c) {
+            if (sectionEnd.accept(c)) {
+                return false;
+            }
+            if (!inSection) {
+                // limits are in a line above the statement
+                if (inLimit) {
+                    if (c == '<' || c == '\n') {
+                        inLimit = false;
+                    } else {
+                        limitText.append(c);
+                    }
+                } else if (limitText.length() == 0 && limitStart.accept(c)) {
+                    inLimit = true;
+                }
+                acceptStatement(c);
+                inSection = sectionStart.accept(c);
+            } else if (!inBlock) {
+                if (blockStart.accept(c)) {
+                    inBlock = true;
+                    hasVar = false;
+                    block.setLength(0);
+                }
+            } else {
+                block.append(c);
+                hasVar |= var.accept(c);
+                if (blockEnd.accept(c)) {
+                    inBlock = false;
+                    // input format has <var>
+                    if (!hasVar) {
+                        addBlock();
+                    }
                 }
+            }
+            return true;
+        }
 
-                String err = stdErrReader.readLine();
-                if (err != null) {
-                    continueRead = true;
-                    stdErrBuilder.append(err);
-                    stdErrBuilder.append("\n");
+        /**
+         * accept next character of the statement above samples, to capture
+         * html of the first constraints and input format
+         * 
+         * @param c next character
+         */
+        private void acceptStatement(char c) {
+            if (inConstraints) {
+                constraints.append(c);
+                inConstraints = !constraintsEnd.accept(c);
+            } else if (constraints.length() == 0 && constraintsStart.accept(c)) {
+                inConstraints = true;
+            }
+            if (inFormat) {
+                format.append(c);
+                inFormat = !formatBlockEnd.accept(c);
+            } else if (format.length() == 0) {
+                if (!afterFormatStart) {
+                    afterFormatStart = formatStart.accept(c);
+                } else if (formatBlockStart.accept(c)) {
+                    inFormat = true;
                 }
             }
-            stdOutReader.close();
-            stdErrReader.close();
-            
-            if(stdOutBuilder.length()>0){
-                System.out.println();
-                System.out.print(stdOutBuilder.toString());
+        }
+
+        /**
+         * add data of a block as input or output of a sample
+         */
+        private void addBlock() {
+            // get data between <pre> and </pre>
+            String data = translateHtmlSpecialCharacters(block, block.length() - "</pre>".length());
+            if (input == null) {
+                input = data;
+            } else {
+                samples.add(new TestCase(input, data));
+                input = null;
             }
+        }
 
-            if(stdErrBuilder.length()>0){
-                System.out.println();
-                System.out.print(stdErrBuilder.toString());
+        /**
+         * get detected data of the task
+         * 
+         * @return detected data (samples are empty if number of blocks is odd)
+         */
+        public TaskPage getTaskPage() {
+            String text = limitText.toString();
+            return new TaskPage(input == null ? samples : List.of(), parseTimeLimitMillis(text),
+                    parseMemoryLimitMegabytes(text), getCaptured(constraints, inConstraints, "</section>"),
+                    getCaptured(format, inFormat, "</pre>"));
+        }
+
+        /**
+         * get captured html without its end
+         * 
+         * @param captured  captured html including the end
+         * @param capturing whether the end has not been reached
+         * @param end       text at the end
+         * @return html, or null if not captured to the end
+         */
+        private static String getCaptured(StringBuilder captured, boolean capturing, String end) {
+            if (captured.length() == 0 || capturing) {
+                return null;
             }
+            return captured.substring(0, captured.length() - end.length());
+        }
+    }
 
-            process.waitFor();
-        } catch (IOException | InterruptedException e) {
-            System.out.println("Failed to execute test: " + e.getLocalizedMessage());
+    /**
+     * data detected from problem page
+     */
+    static class TaskPage {
+
+        /**
+         * samples of the task
+         */
+        public final List<TestCase> samples;
+
+        /**
+         * execution time limit in milliseconds (-1 if not detected)
+         */
+        public final long timeLimitMillis;
+
+        /**
+         * memory limit in megabytes (-1 if not detected)
+         */
+        public final int memoryLimitMegabytes;
+
+        /**
+         * html of the list of constraints (null if not detected)
+         */
+        public final String constraints;
+
+        /**
+         * html in {@code <pre>} of the input format (null if not detected)
+         */
+        public final String inputFormat;
+
+        /**
+         * constructor
+         * 
+         * @param samples              samples of the task
+         * @param timeLimitMillis      execution time limit in milliseconds
+         * @param memoryLimitMegabytes memory limit in megabytes
+         * @param constraints          html of the list of constraints
+         * @param inputFormat          html in {@code <pre>} of the input format
+         */
+        public TaskPage(List<TestCase> samples, long timeLimitMillis, int memoryLimitMegabytes, String constraints,
+                String inputFormat) {
+            this.samples = samples;
+            this.timeLimitMillis = timeLimitMillis;
+            this.memoryLimitMegabytes = memoryLimitMegabytes;
+            this.constraints = constraints;
+            this.inputFormat = inputFormat;
+        }
+
+        /**
+         * get text of limits to show
+         * 
+         * @return text of limits
+         */
+        public String getLimitText() {
+            if (timeLimitMillis < 0 || memoryLimitMegabytes < 0) {
+                return "limits are not detected";
+            }
+            return String.format("time limit = %s sec, memory limit = %d MB", timeLimitMillis / 1000.0,
+                    memoryLimitMegabytes);
         }
-        System.out.println();
     }
 
     /**
@@ -0,0 +1,495 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * micro benchmarks of hot paths of AtCoderHelper and TestExecutor
+ *
+ * each benchmark runs its operation repeatedly for fixed time per iteration,
+ * and the time per operation of measured iterations (after warmup iterations
+ * to let JIT compiler optimize) is reported and saved as JSON, so results of
+ * different runs can be compared.
+ */
+public class Benchmark {
+
+    /**
+     * number of tokens of large outputs
+     */
+    private static final int LARGE_OUTPUT_TOKENS = 1_000_000;
+
+    /**
+     * results of operations are accumulated here not to be eliminated as dead
+     * code
+     */
+    private static volatile long sink;
+
+    /**
+     * entry point
+     *
+     * @param args command line options
+     */
+    public static void main(String[] args) {
+
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getLocalizedMessage());
+            return;
+        }
+
+        List<Result> results = new ArrayList<>();
+        try {
+            benchmarkSampleDetection(options, results);
+            benchmarkComparison(options, results);
+            benchmarkHarness(options, results);
+        } catch (Exception e) {
+            System.err.println("Failed to run benchmarks: " + e);
+            return;
+        }
+
+        Map<String, Double> baseline = new HashMap<>();
+        if (options.baselinePath != null) {
+            try {
+                baseline = loadResults(options.baselinePath);
+            } catch (IOException e) {
+                System.err.println("Failed to read baseline: " + e.getLocalizedMessage());
+            }
+        }
+        System.out.println();
+        for (Result result : results) {
+            Double previous = baseline.get(result.name);
+            System.out.println(previous == null ? result.toString()
+                    : String.format("%s (%+.1f%% from baseline)", result,
+                            (result.statistics.mean / previous - 1) * 100));
+        }
+
+        try {
+            saveResults(options.outputPath, results);
+            System.out.println();
+            System.out.println("Results have been saved to " + options.outputPath);
+        } catch (IOException e) {
+            System.err.println("Failed to save results: " + e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * benchmark sample detection of AtCoderHelper on saved task pages
+     *
+     * @param options command line options
+     * @param results list to add results to
+     * @throws Exception thrown by benchmarks
+     */
+    private static void benchmarkSampleDetection(Options options, List<Result> results) throws Exception {
+        List<Path> pages = new ArrayList<>();
+        if (Files.isDirectory(options.pageFolder)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(options.pageFolder, "*.html")) {
+                stream.forEach(pages::add);
+            }
+        }
+        if (pages.isEmpty()) {
+            System.out.println("No task page in " + options.pageFolder + ", skipping sample detection");
+            return;
+        }
+        pages.sort(null);
+
+        for (Path page : pages) {
+            byte[] html = Files.readAllBytes(page);
+            String text = new String(html, StandardCharsets.UTF_8);
+            String name = page.getFileName().toString();
+            run(options, results, "samples.detect/" + name,
+                    () -> AtCoderHelper.detectSamples(new ByteArrayInputStream(html)).size());
+            run(options, results, "samples.translate/" + name,
+                    () -> AtCoderHelper.translateHtmlSpecialCharacters(text, text.length()).length());
+        }
+    }
+
+    /**
+     * benchmark output comparison of TestExecutor on small and large outputs
+     *
+     * @param options command line options
+     * @param results list to add results to
+     * @throws Exception thrown by benchmarks
+     */
+    private static void benchmarkComparison(Options options, List<Result> results) throws Exception {
+        Path folder = Files.createTempDirectory("benchmark");
+        try {
+            Path smallOutput = folder.resolve("small_output.txt");
+            Path smallAnswer = folder.resolve("small_answer.txt");
+            Files.writeString(smallOutput, "3\n1 2 3\nYes\n");
+            Files.writeString(smallAnswer, "3\n1 2 3\nYes\n");
+
+            // same tokens separated by different whitespace can't be compared in bulk
+            StringBuilder lines = new StringBuilder();
+            StringBuilder spaces = new StringBuilder();
+            for (int i = 0; i < LARGE_OUTPUT_TOKENS; i++) {
+                lines.append(i * 7919L % 1_000_000_007L).append('\n');
+                spaces.append(i * 7919L % 1_000_000_007L).append(' ');
+            }
+            Path largeOutput = folder.resolve("large_output.txt");
+            Path largeAnswer = folder.resolve("large_answer.txt");
+            Path largeTokens = folder.resolve("large_tokens.txt");
+            Files.writeString(largeOutput, lines);
+            Files.writeString(largeAnswer, lines);
+            Files.writeString(largeTokens, spaces);
+            ByteBuffer lineBuffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.US_ASCII));
+            ByteBuffer spaceBuffer = ByteBuffer.wrap(spaces.toString().getBytes(StandardCharsets.US_ASCII));
+            OutputComparator comparator = new OutputComparator();
+
+            run(options, results, "compare.small",
+                    () -> OutputComparator.compare(smallOutput, smallAnswer).accepted ? 1 : 0);
+            run(options, results, "compare.large.identical",
+                    () -> OutputComparator.compare(largeOutput, largeAnswer).accepted ? 1 : 0);
+            run(options, results, "compare.large.tokens",
+                    () -> OutputComparator.compare(largeTokens, largeAnswer).accepted ? 1 : 0);
+            run(options, results, "compare.large.tokens.memory",
+                    () -> comparator.check(null, spaceBuffer.duplicate(), lineBuffer.duplicate()).accepted ? 1 : 0);
+        } finally {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+                for (Path file : stream) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(folder);
+        }
+    }
+
+    /**
+     * benchmark per-case overhead of TestExecutor, which is stream swapping,
+     * watching, dispatch to the thread pool and defining classes of Main again
+     *
+     * @param options command line options
+     * @param results list to add results to
+     * @throws Exception thrown by benchmarks
+     */
+    private static void benchmarkHarness(Options options, List<Result> results) throws Exception {
+        StdioMultiplexer multiplexer = new StdioMultiplexer();
+        multiplexer.install();
+        Watchdog watchdog = new Watchdog();
+        ThreadPoolExecutor service = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = Executors.defaultThreadFactory().newThread(r);
+                    t.setDaemon(true);
+                    return t;
+                });
+        try (PrintStream out = new PrintStream(OutputStream.nullOutputStream())) {
+            // echo one byte, which is the least work through stdin and stdout
+            InProcessRunner.Program echo = args -> System.out.write(System.in.read());
+            InProcessRunner runner = new InProcessRunner(echo, null, multiplexer, watchdog, service, 1,
+                    TimeUnit.SECONDS.toNanos(10), TimeUnit.SECONDS.toNanos(20), Long.MAX_VALUE);
+
+            run(options, results, "harness.run", () -> runner.run(new ByteArrayInputStream(new byte[] { '1' }), out,
+                    watch -> {
+                    }).watch.getState());
+            run(options, results, "harness.dispatch", () -> CompletableFuture.supplyAsync(() -> {
+                try {
+                    return runner.run(new ByteArrayInputStream(new byte[] { '1' }), out, watch -> {
+                    }).watch.getState();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }, service).join());
+
+            // define a class of TestExecutor as a stand-in for Main
+            byte[] bytecode;
+            try (InputStream in = Benchmark.class.getResourceAsStream("/TimingStatistics.class")) {
+                bytecode = in.readAllBytes();
+            }
+            BytecodeClassLoader classes = new BytecodeClassLoader(Map.of("TimingStatistics", bytecode),
+                    Benchmark.class.getClassLoader());
+            run(options, results, "harness.renew",
+                    () -> classes.renew().loadClass("TimingStatistics").getName().length());
+        } finally {
+            service.shutdown();
+            watchdog.close();
+            multiplexer.uninstall();
+        }
+    }
+
+    /**
+     * run a benchmark if selected by the filter, and add its result
+     *
+     * @param options   command line options
+     * @param results   list to add the result to
+     * @param name      name of the benchmark
+     * @param operation operation to measure
+     * @throws Exception thrown by the operation
+     */
+    private static void run(Options options, List<Result> results, String name, Operation operation)
+            throws Exception {
+        if (!name.contains(options.filter)) {
+            return;
+        }
+        System.out.print(name + ": ");
+        for (int i = 0; i < options.warmupIterations; i++) {
+            runIteration(options.iterationNanos, operation);
+            System.out.print("w");
+        }
+        long[] scores = new long[options.measuredIterations];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = runIteration(options.iterationNanos, operation);
+            System.out.print(".");
+        }
+        System.out.println();
+        results.add(new Result(name, new TimingStatistics(scores)));
+    }
+
+    /**
+     * run an operation repeatedly for fixed time
+     *
+     * @param nanos     time to run the operation
+     * @param operation operation to run
+     * @return average time per operation in nanoseconds
+     * @throws Exception thrown by the operation
+     */
+    private static long runIteration(long nanos, Operation operation) throws Exception {
+        // start from a clean heap, which also unmaps files mapped by former
+        // iterations (they are unmapped only by garbage collection)
+        System.gc();
+
+        // read the clock once per batch, whose size is doubled while fast
+        long operations = 0;
+        long batch = 1;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            long batchStart = System.nanoTime();
+            long sum = 0;
+            for (long i = 0; i < batch; i++) {
+                sum += operation.run();
+            }
+            sink += sum;
+            operations += batch;
+            long now = System.nanoTime();
+            if (now - batchStart < nanos / 100) {
+                batch *= 2;
+            }
+            elapsed = now - start;
+        } while (elapsed < nanos);
+        return Math.max(elapsed / operations, 1);
+    }
+
+    /**
+     * save results as JSON
+     *
+     * @param path    file to save to
+     * @param results results of benchmarks
+     * @throws IOException if failed to write the file
+     */
+    private static void saveResults(Path path, List<Result> results) throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append(String.format("{\"java\":\"%s\",\"date\":\"%s\",\"unit\":\"ns/op\",\"results\":[%n",
+                escape(Runtime.version().toString()), OffsetDateTime.now()));
+        for (int i = 0; i < results.size(); i++) {
+            json.append(results.get(i).toJson()).append(i + 1 < results.size() ? "," : "")
+                    .append(System.lineSeparator());
+        }
+        json.append("]}").append(System.lineSeparator());
+
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Files.writeString(path, json);
+    }
+
+    /**
+     * load mean time of each benchmark from JSON saved before
+     *
+     * @param path file saved by former run
+     * @return mean time in nanoseconds by name of benchmark
+     * @throws IOException if failed to read the file
+     */
+    private static Map<String, Double> loadResults(Path path) throws IOException {
+        Pattern p = Pattern.compile("\\{\"name\":\"((?:[^\"\\\\]|\\\\.)*)\",\"mean\":([0-9.eE+-]+)");
+        Matcher m = p.matcher(Files.readString(path));
+        Map<String, Double> means = new HashMap<>();
+        while (m.find()) {
+            means.put(m.group(1).replaceAll("\\\\(.)", "$1"), Double.parseDouble(m.group(2)));
+        }
+        return means;
+    }
+
+    /**
+     * escape text for JSON string
+     *
+     * @param text text to escape
+     * @return escaped text
+     */
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * operation to measure
+     */
+    @FunctionalInterface
+    private interface Operation {
+
+        /**
+         * run the operation once
+         *
+         * @return any value depending on the work, not to be eliminated
+         * @throws Exception thrown by the operation
+         */
+        long run() throws Exception;
+    }
+
+    /**
+     * result of a benchmark
+     */
+    private static class Result {
+
+        /**
+         * name of the benchmark
+         */
+        public final String name;
+
+        /**
+         * statistics of time per operation of measured iterations
+         */
+        public final TimingStatistics statistics;
+
+        /**
+         * constructor
+         *
+         * @param name       name of the benchmark
+         * @param statistics statistics of time per operation
+         */
+        public Result(String name, TimingStatistics statistics) {
+            this.name = name;
+            this.statistics = statistics;
+        }
+
+        /**
+         * format as JSON object
+         *
+         * @return JSON object in a line
+         */
+        public String toJson() {
+            return String.format(
+                    "{\"name\":\"%s\",\"mean\":%.1f,\"stddev\":%.1f,\"min\":%d,\"median\":%d,\"iterations\":%d}",
+                    escape(name), statistics.mean, statistics.stddev, statistics.min, statistics.median,
+                    statistics.count);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-40s %14.1f ns/op (stddev = %.1f, min = %d)", name, statistics.mean,
+                    statistics.stddev, statistics.min);
+        }
+    }
+
+    /**
+     * command line options
+     */
+    private static class Options {
+
+        /**
+         * number of iterations before measurement
+         */
+        public int warmupIterations = 3;
+
+        /**
+         * number of measured iterations
+         */
+        public int measuredIterations = 5;
+
+        /**
+         * time of each iteration
+         */
+        public long iterationNanos = TimeUnit.SECONDS.toNanos(1);
+
+        /**
+         * text which names of benchmarks to run contain
+         */
+        public String filter = "";
+
+        /**
+         * folder of saved task pages
+         */
+        public Path pageFolder = Paths.get(Constants.BENCHMARK_PAGE_FOLDER);
+
+        /**
+         * file to save results to
+         */
+        public Path outputPath = Paths.get(Constants.BENCHMARK_RESULT_FILE);
+
+        /**
+         * file of former results to compare with (null if not compared)
+         */
+        public Path baselinePath = null;
+
+        /**
+         * parse command line options
+         *
+         * @param args command line arguments
+         * @return parsed options
+         * @throws IllegalArgumentException if an argument is invalid
+         */
+        public static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                if (arg.startsWith("--warmup=")) {
+                    options.warmupIterations = parseInt(arg, 0);
+                } else if (arg.startsWith("--measure=")) {
+                    options.measuredIterations = parseInt(arg, 1);
+                } else if (arg.startsWith("--time=")) {
+                    options.iterationNanos = TimeUnit.MILLISECONDS.toNanos(parseInt(arg, 1));
+                } else if (arg.startsWith("--filter=")) {
+                    options.filter = arg.substring(arg.indexOf('=') + 1);
+                } else if (arg.startsWith("--pages=")) {
+                    options.pageFolder = Paths.get(arg.substring(arg.indexOf('=') + 1));
+                } else if (arg.startsWith("--output=")) {
+                    options.outputPath = Paths.get(arg.substring(arg.indexOf('=') + 1));
+                } else if (arg.startsWith("--baseline=")) {
+                    options.baselinePath = Paths.get(arg.substring(arg.indexOf('=') + 1));
+                } else {
+                    throw new IllegalArgumentException("Undefined option \"" + arg + "\"");
+                }
+            }
+            return options;
+        }
+
+        /**
+         * parse value of "--name=value" style option as integer
+         *
+         * @param arg option to parse
+         * @param min minimum of the value
+         * @return parsed value
+         * @throws IllegalArgumentException if the value is not an integer of at
+         *                                  least min
+         */
+        private static int parseInt(String arg, int min) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            try {
+                int parsed = Integer.parseInt(value);
+                if (parsed >= min) {
+                    return parsed;
+                }
+            } catch (NumberFormatException e) {
+                // fall through
+            }
+            throw new IllegalArgumentException("Invalid value \"" + value + "\" for option " + arg);
+        }
+    }
+}
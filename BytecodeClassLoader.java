@@ -0,0 +1,101 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * class loader defining classes from bytecode in memory
+ *
+ * classes it has are loaded by itself before asking the parent, so stale class
+ * files of Main on the class path never shadow the compiled ones
+ */
+public class BytecodeClassLoader extends ClassLoader {
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    private final Map<String, byte[]> classes;
+
+    /**
+     * constructor
+     *
+     * @param classes bytecode of classes by binary name
+     * @param parent  class loader to load the other classes with
+     */
+    public BytecodeClassLoader(Map<String, byte[]> classes, ClassLoader parent) {
+        super(parent);
+        this.classes = classes;
+    }
+
+    /**
+     * create class loader of class files in a folder
+     *
+     * @param classFolder folder containing class files
+     * @param parent      class loader to load the other classes with
+     * @return class loader
+     * @throws IOException if failed to read the class files
+     */
+    public static BytecodeClassLoader load(Path classFolder, ClassLoader parent) throws IOException {
+        Map<String, byte[]> classes = new HashMap<>();
+        try (Stream<Path> files = Files.walk(classFolder)) {
+            for (Path file : files.filter(f -> f.toString().endsWith(".class")).collect(Collectors.toList())) {
+                String path = classFolder.relativize(file).toString();
+                String name = path.substring(0, path.length() - ".class".length())
+                        .replace(file.getFileSystem().getSeparator(), ".");
+                classes.put(name, Files.readAllBytes(file));
+            }
+        }
+        return new BytecodeClassLoader(classes, parent);
+    }
+
+    /**
+     * create a class loader defining the same classes again, so static fields
+     * of the classes start over without reading or compiling the bytecode
+     *
+     * all the classes are defined in advance (without being initialized), so
+     * the cost of loading them is not paid while running them
+     *
+     * @return new class loader
+     * @throws IllegalStateException if failed to define the classes
+     */
+    public BytecodeClassLoader renew() {
+        BytecodeClassLoader loader = new BytecodeClassLoader(classes, getParent());
+        try {
+            for (String name : classes.keySet()) {
+                loader.loadClass(name, false);
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Failed to define classes again: " + e);
+        }
+        return loader;
+    }
+
+    /**
+     * get bytecode of all classes
+     *
+     * @return bytecode by binary name
+     */
+    public Map<String, byte[]> getClasses() {
+        return classes;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> loaded = findLoadedClass(name);
+            if (loaded == null) {
+                byte[] bytecode = classes.get(name);
+                loaded = bytecode != null ? defineClass(name, bytecode, 0, bytecode.length)
+                        : super.loadClass(name, false);
+            }
+            if (resolve) {
+                resolveClass(loaded);
+            }
+            return loaded;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * checker to judge output of a test case
+ *
+ * implement this interface to use a special judge with "--checker=ClassName".
+ * implementations need a public constructor without parameters, and must be
+ * thread safe to be used with --parallel.
+ */
+public interface Checker {
+
+    /**
+     * judge output of a test case
+     *
+     * @param inputFilePath  input data of the test case
+     * @param outputFilePath output of the test case
+     * @param answerFilePath expected output of the test case
+     * @return result of the judge
+     * @throws IOException if failed to read the files
+     */
+    Result check(Path inputFilePath, Path outputFilePath, Path answerFilePath) throws IOException;
+
+    /**
+     * judge output in memory
+     *
+     * the buffers are saved into temporary files for {@link #check(Path, Path,
+     * Path)} by default. override this to judge faster without files.
+     *
+     * @param input  input data
+     * @param output output of the program
+     * @param answer expected output
+     * @return result of the judge
+     * @throws IOException if failed to save the buffers
+     */
+    default Result check(ByteBuffer input, ByteBuffer output, ByteBuffer answer) throws IOException {
+        Path directory = Files.createTempDirectory("checker");
+        Path inputFilePath = directory.resolve("input.txt");
+        Path outputFilePath = directory.resolve("output.txt");
+        Path answerFilePath = directory.resolve("answer.txt");
+        try {
+            write(inputFilePath, input);
+            write(outputFilePath, output);
+            write(answerFilePath, answer);
+            return check(inputFilePath, outputFilePath, answerFilePath);
+        } finally {
+            Files.deleteIfExists(inputFilePath);
+            Files.deleteIfExists(outputFilePath);
+            Files.deleteIfExists(answerFilePath);
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * write a buffer into a file
+     *
+     * @param path   file to write
+     * @param buffer bytes between position and limit are written
+     * @throws IOException if failed to write the file
+     */
+    private static void write(Path path, ByteBuffer buffer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer remaining = buffer.duplicate();
+            while (remaining.hasRemaining()) {
+                channel.write(remaining);
+            }
+        }
+    }
+
+    /**
+     * result of a judge
+     */
+    public static class Result {
+
+        /**
+         * result of accepted output
+         */
+        public static final Result ACCEPTED = new Result(true, "accepted");
+
+        /**
+         * whether the output is accepted
+         */
+        public final boolean accepted;
+
+        /**
+         * detail of the judge (where the output is wrong, etc.)
+         */
+        public final String message;
+
+        /**
+         * constructor
+         *
+         * @param accepted whether the output is accepted
+         * @param message  detail of the judge
+         */
+        public Result(boolean accepted, String message) {
+            this.accepted = accepted;
+            this.message = message;
+        }
+
+        /**
+         * create result of rejected output
+         *
+         * @param message why the output is rejected
+         * @return result of the judge
+         */
+        public static Result rejected(String message) {
+            return new Result(false, message);
+        }
+    }
+}
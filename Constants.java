@@ -4,4 +4,16 @@ public class Constants {
     public static final String TEST_INPUT_FOLDER = TEST_DATA_FOLDER + "/input";
     public static final String TEST_ANSWER_FOLDER = TEST_DATA_FOLDER + "/answer";
     public static final String TEST_OUTPUT_FOLDER = TEST_DATA_FOLDER + "/output";
+    public static final String TEST_PROFILE_FOLDER = TEST_DATA_FOLDER + "/profile";
+    public static final String TASK_DATA_FOLDER = TEST_DATA_FOLDER + "/tasks";
+    public static final String TASK_METADATA_FILE = TEST_DATA_FOLDER + "/task.properties";
+    public static final String HTTP_CACHE_FOLDER = "./cache/http";
+    public static final String SAMPLE_ARCHIVE_FILE = TEST_DATA_FOLDER + "/archive/samples.dat";
+    public static final String SAMPLE_INDEX_FILE = TEST_DATA_FOLDER + "/archive/samples.idx";
+    public static final String TIMING_HISTORY_FILE = "./cache/timing_history.dat";
+    public static final String BENCHMARK_PAGE_FOLDER = "./benchmark/pages";
+    public static final String BENCHMARK_RESULT_FILE = "./benchmark/result.json";
+    public static final String STRESS_TEST_FILE = "stress.txt";
+    public static final String MAIN_SOURCE_FILE = "./Main.java";
+    public static final String CLASS_CACHE_FOLDER = "./compile/cache";
 }
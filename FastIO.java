@@ -0,0 +1,454 @@
+/**
+ * fast input reader and output writer for Main.java
+ *
+ * copy this class below Main class in Main.java to submit with it (no import
+ * is needed). both go through a byte buffer without synchronization or
+ * regular expressions, and numbers are parsed and formatted without
+ * allocation.
+ *
+ * <pre>
+ * FastIO.Reader in = new FastIO.Reader(System.in);
+ * FastIO.Writer out = new FastIO.Writer(System.out);
+ * int n = in.nextInt();
+ * out.println(n);
+ * out.flush(); // output is kept in the buffer until flushed
+ * </pre>
+ */
+final class FastIO {
+
+    /**
+     * size of buffers
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * no instance
+     */
+    private FastIO() {
+    }
+
+    /**
+     * reader of whitespace separated tokens (ASCII characters up to space are
+     * whitespace)
+     */
+    static final class Reader {
+
+        private final java.io.InputStream in;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position = 0;
+        private int limit = 0;
+        private byte[] token = new byte[64];
+
+        /**
+         * constructor
+         *
+         * @param in stream to read
+         */
+        Reader(java.io.InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * whether another token exists
+         *
+         * @return true if a token follows whitespace
+         */
+        boolean hasNext() {
+            while (true) {
+                if (position == limit && !fill()) {
+                    return false;
+                }
+                if ((buffer[position] & 0xff) > ' ') {
+                    return true;
+                }
+                position++;
+            }
+        }
+
+        /**
+         * read next token
+         *
+         * @return token decoded as UTF-8
+         * @throws java.util.NoSuchElementException if no token exists
+         */
+        String next() {
+            int c = skipWhitespace();
+            int length = 0;
+            do {
+                if (length == token.length) {
+                    token = java.util.Arrays.copyOf(token, length * 2);
+                }
+                token[length++] = (byte) c;
+                c = read();
+            } while (c > ' ');
+            unread(c);
+            return new String(token, 0, length, java.nio.charset.StandardCharsets.UTF_8);
+        }
+
+        /**
+         * read next token as int
+         *
+         * @return parsed value
+         * @throws java.util.NoSuchElementException if no token exists
+         * @throws NumberFormatException            if the token is not an int
+         */
+        int nextInt() {
+            long value = nextLong();
+            if (value != (int) value) {
+                throw new NumberFormatException("Out of range of int: " + value);
+            }
+            return (int) value;
+        }
+
+        /**
+         * read next token as long
+         *
+         * @return parsed value
+         * @throws java.util.NoSuchElementException if no token exists
+         * @throws NumberFormatException            if the token is not a long
+         */
+        long nextLong() {
+            int c = skipWhitespace();
+            boolean negative = c == '-';
+            if (negative) {
+                c = read();
+            }
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Not a number at \"" + (char) c + "\"");
+            }
+            // accumulate negatively to parse Long.MIN_VALUE too
+            long value = 0;
+            do {
+                int digit = c - '0';
+                if (value < Long.MIN_VALUE / 10 || value * 10 < Long.MIN_VALUE + digit) {
+                    throw new NumberFormatException("Out of range of long");
+                }
+                value = value * 10 - digit;
+                c = read();
+            } while (c >= '0' && c <= '9');
+            if (c > ' ') {
+                throw new NumberFormatException("Not a number at \"" + (char) c + "\"");
+            }
+            if (!negative && value == Long.MIN_VALUE) {
+                throw new NumberFormatException("Out of range of long");
+            }
+            unread(c);
+            return negative ? value : -value;
+        }
+
+        /**
+         * read next token as double
+         *
+         * @return parsed value
+         * @throws java.util.NoSuchElementException if no token exists
+         * @throws NumberFormatException            if the token is not a number
+         */
+        double nextDouble() {
+            return Double.parseDouble(next());
+        }
+
+        /**
+         * read the rest of current line (an empty string right after a token at
+         * the end of a line, like Scanner)
+         *
+         * @return line without line separator, decoded as UTF-8
+         * @throws java.util.NoSuchElementException if at the end of input
+         */
+        String nextLine() {
+            int c = read();
+            if (c < 0) {
+                throw new java.util.NoSuchElementException();
+            }
+            int length = 0;
+            while (c >= 0 && c != '\n') {
+                if (length == token.length) {
+                    token = java.util.Arrays.copyOf(token, length * 2);
+                }
+                token[length++] = (byte) c;
+                c = read();
+            }
+            if (length > 0 && token[length - 1] == '\r') {
+                length--;
+            }
+            return new String(token, 0, length, java.nio.charset.StandardCharsets.UTF_8);
+        }
+
+        /**
+         * skip whitespace
+         *
+         * @return first byte of next token
+         * @throws java.util.NoSuchElementException if no token exists
+         */
+        private int skipWhitespace() {
+            int c;
+            do {
+                c = read();
+            } while (c >= 0 && c <= ' ');
+            if (c < 0) {
+                throw new java.util.NoSuchElementException();
+            }
+            return c;
+        }
+
+        /**
+         * read next byte
+         *
+         * @return next byte (0 to 255), or -1 at the end of input
+         */
+        private int read() {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position++] & 0xff;
+        }
+
+        /**
+         * push back the byte just read, so it's read again
+         *
+         * @param c the byte just read (nothing is pushed back if -1)
+         */
+        private void unread(int c) {
+            if (c >= 0) {
+                position--;
+            }
+        }
+
+        /**
+         * fill the buffer from the stream
+         *
+         * @return false if at the end of input
+         */
+        private boolean fill() {
+            try {
+                limit = in.read(buffer, 0, BUFFER_SIZE);
+            } catch (java.io.IOException e) {
+                throw new java.io.UncheckedIOException(e);
+            }
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * writer buffering output until flushed (lines end with '\n')
+     */
+    static final class Writer {
+
+        private final java.io.OutputStream out;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int count = 0;
+
+        /**
+         * constructor
+         *
+         * @param out stream to write
+         */
+        Writer(java.io.OutputStream out) {
+            this.out = out;
+        }
+
+        /**
+         * write a character
+         *
+         * @param c character to write
+         * @return this writer
+         */
+        Writer print(char c) {
+            if (c >= 0x80) {
+                return print(String.valueOf(c));
+            }
+            ensureSpace(1);
+            buffer[count++] = (byte) c;
+            return this;
+        }
+
+        /**
+         * write an int in decimal
+         *
+         * @param value value to write
+         * @return this writer
+         */
+        Writer print(int value) {
+            return print((long) value);
+        }
+
+        /**
+         * write a long in decimal
+         *
+         * @param value value to write
+         * @return this writer
+         */
+        Writer print(long value) {
+            ensureSpace(20);
+            // write digits of the negative value backward, so Long.MIN_VALUE needs no special case
+            if (value < 0) {
+                buffer[count++] = '-';
+            } else {
+                value = -value;
+            }
+            int start = count;
+            do {
+                buffer[count++] = (byte) ('0' - value % 10);
+                value /= 10;
+            } while (value != 0);
+            for (int i = start, j = count - 1; i < j; i++, j--) {
+                byte digit = buffer[i];
+                buffer[i] = buffer[j];
+                buffer[j] = digit;
+            }
+            return this;
+        }
+
+        /**
+         * write a double as Double.toString
+         *
+         * @param value value to write
+         * @return this writer
+         */
+        Writer print(double value) {
+            return print(Double.toString(value));
+        }
+
+        /**
+         * write a string encoded as UTF-8
+         *
+         * @param s string to write
+         * @return this writer
+         */
+        Writer print(String s) {
+            int length = s.length();
+            for (int i = 0; i < length; i++) {
+                char c = s.charAt(i);
+                if (c >= 0x80) {
+                    // encode the rest at once
+                    write(s.substring(i).getBytes(java.nio.charset.StandardCharsets.UTF_8));
+                    return this;
+                }
+                if (count == buffer.length) {
+                    flushBuffer();
+                }
+                buffer[count++] = (byte) c;
+            }
+            return this;
+        }
+
+        /**
+         * write a line separator
+         *
+         * @return this writer
+         */
+        Writer println() {
+            return print('\n');
+        }
+
+        /**
+         * write a character and a line separator
+         *
+         * @param c character to write
+         * @return this writer
+         */
+        Writer println(char c) {
+            return print(c).println();
+        }
+
+        /**
+         * write an int and a line separator
+         *
+         * @param value value to write
+         * @return this writer
+         */
+        Writer println(int value) {
+            return print(value).println();
+        }
+
+        /**
+         * write a long and a line separator
+         *
+         * @param value value to write
+         * @return this writer
+         */
+        Writer println(long value) {
+            return print(value).println();
+        }
+
+        /**
+         * write a double and a line separator
+         *
+         * @param value value to write
+         * @return this writer
+         */
+        Writer println(double value) {
+            return print(value).println();
+        }
+
+        /**
+         * write a string and a line separator
+         *
+         * @param s string to write
+         * @return this writer
+         */
+        Writer println(String s) {
+            return print(s).println();
+        }
+
+        /**
+         * write buffered output to the stream and flush it
+         */
+        void flush() {
+            flushBuffer();
+            try {
+                out.flush();
+            } catch (java.io.IOException e) {
+                throw new java.io.UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * write bytes through the buffer
+         *
+         * @param bytes bytes to write
+         */
+        private void write(byte[] bytes) {
+            if (bytes.length > buffer.length - count) {
+                flushBuffer();
+            }
+            if (bytes.length > buffer.length) {
+                try {
+                    out.write(bytes);
+                } catch (java.io.IOException e) {
+                    throw new java.io.UncheckedIOException(e);
+                }
+                return;
+            }
+            System.arraycopy(bytes, 0, buffer, count, bytes.length);
+            count += bytes.length;
+        }
+
+        /**
+         * flush the buffer if it doesn't have enough space
+         *
+         * @param size bytes to write
+         */
+        private void ensureSpace(int size) {
+            if (count + size > buffer.length) {
+                flushBuffer();
+            }
+        }
+
+        /**
+         * write buffered output to the stream
+         */
+        private void flushBuffer() {
+            try {
+                out.write(buffer, 0, count);
+            } catch (java.io.IOException e) {
+                throw new java.io.UncheckedIOException(e);
+            }
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,576 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * cache of pages downloaded by AtCoderHelper
+ *
+ * each page is kept in a gzip file named by hash of its uri, together with its
+ * ETag and Last-Modified headers. cached pages are revalidated by conditional
+ * requests, so unchanged pages are never downloaded again, and served without
+ * any request in offline mode. least recently used pages are evicted when
+ * the total size of the files exceeds the limit.
+ *
+ * bodies are passed as streams, so pages are never held in memory as a
+ * whole. downloaded bodies are written into the cache while being read.
+ */
+public class HttpCache {
+
+    /**
+     * suffix of files being written
+     */
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    /**
+     * buffer size to read and write files with
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    private final HttpClient client;
+    private final Path cacheFolder;
+    private final long maxCacheBytes;
+    private final boolean offline;
+
+    // bodies are read by blocking streams, so parsers don't run on threads of
+    // the client
+    private final ExecutorService parsers = Executors.newCachedThreadPool(r -> {
+        Thread t = Executors.defaultThreadFactory().newThread(r);
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * constructor
+     *
+     * @param client        client to send requests with
+     * @param cacheFolder   folder to cache pages in
+     * @param maxCacheBytes limit of total size of cached files
+     * @param offline       whether to serve only cached pages without any
+     *                      request
+     */
+    public HttpCache(HttpClient client, Path cacheFolder, long maxCacheBytes, boolean offline) {
+        this.client = client;
+        this.cacheFolder = cacheFolder;
+        this.maxCacheBytes = maxCacheBytes;
+        this.offline = offline;
+    }
+
+    /**
+     * get a page (the response must be closed to finish caching it)
+     *
+     * @param uri uri of the page
+     * @return response (from the cache if not modified)
+     * @throws IOException          if failed to send the request, or the page is
+     *                              not cached in offline mode
+     * @throws InterruptedException if interrupted while waiting for the response
+     */
+    public Response get(URI uri) throws IOException, InterruptedException {
+        Entry entry = load(uri);
+        if (offline) {
+            return fromCache(uri, entry);
+        }
+        return handle(uri, entry, client.send(createRequest(uri, entry), HttpResponse.BodyHandlers.ofInputStream()));
+    }
+
+    /**
+     * get a page asynchronously and parse it
+     *
+     * @param <T>    type of parsed result
+     * @param uri    uri of the page
+     * @param parser parser of the response, called on a thread of this cache
+     * @return future of parsed result, completed exceptionally if failed to
+     *         send the request or to read the body, or the page is not cached
+     *         in offline mode
+     */
+    public <T> CompletableFuture<T> getAsync(URI uri, Parser<T> parser) {
+        Entry entry = load(uri);
+        if (offline) {
+            return CompletableFuture.supplyAsync(() -> parse(uri, entry, null, parser), parsers);
+        }
+        return client.sendAsync(createRequest(uri, entry), HttpResponse.BodyHandlers.ofInputStream())
+                .thenApplyAsync(response -> parse(uri, entry, response, parser), parsers);
+    }
+
+    /**
+     * parse a response and close it
+     *
+     * @param <T>      type of parsed result
+     * @param uri      uri of the page
+     * @param entry    cached page (null if not cached)
+     * @param response response of the request (null in offline mode)
+     * @param parser   parser of the response
+     * @return parsed result
+     * @throws CompletionException if failed to read the body
+     */
+    private <T> T parse(URI uri, Entry entry, HttpResponse<InputStream> response, Parser<T> parser) {
+        try (Response parsed = response == null ? fromCache(uri, entry) : handle(uri, entry, response)) {
+            return parser.parse(parsed);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * create a request revalidating the cached page
+     *
+     * @param uri   uri of the page
+     * @param entry cached page (null if not cached)
+     * @return request
+     */
+    private static HttpRequest createRequest(URI uri, Entry entry) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder().uri(uri).GET();
+        if (entry != null && !entry.etag.isEmpty()) {
+            builder.header("If-None-Match", entry.etag);
+        }
+        if (entry != null && !entry.lastModified.isEmpty()) {
+            builder.header("If-Modified-Since", entry.lastModified);
+        }
+        return builder.build();
+    }
+
+    /**
+     * serve the cached page in offline mode
+     *
+     * @param uri   uri of the page
+     * @param entry cached page (null if not cached)
+     * @return response from the cache
+     * @throws IOException if the page is not cached
+     */
+    private Response fromCache(URI uri, Entry entry) throws IOException {
+        if (entry == null) {
+            throw new IOException("\"" + uri + "\" is not cached (offline mode)");
+        }
+        return open(entry);
+    }
+
+    /**
+     * make response from the cache if not modified, otherwise cache the body
+     * of the downloaded page while it's read
+     *
+     * @param uri      uri of the page
+     * @param entry    cached page (null if not cached)
+     * @param response response of the request
+     * @return response
+     * @throws IOException if failed to read the cached page
+     */
+    private Response handle(URI uri, Entry entry, HttpResponse<InputStream> response) throws IOException {
+        if (response.statusCode() == 304 && entry != null) {
+            response.body().close();
+            return open(entry);
+        }
+        InputStream body = response.body();
+        if (response.statusCode() == 200) {
+            String etag = response.headers().firstValue("ETag").orElse("");
+            String lastModified = response.headers().firstValue("Last-Modified").orElse("");
+            try {
+                body = new CachingInputStream(body, new Entry(pathOf(uri), uri.toString(), etag, lastModified));
+            } catch (IOException e) {
+                // the page is just downloaded again next time
+            }
+        }
+        return new Response(response.statusCode(), body, false);
+    }
+
+    /**
+     * load headers of the cached page
+     *
+     * @param uri uri of the page
+     * @return cached page, or null if not cached or broken
+     */
+    private Entry load(URI uri) {
+        Path path = pathOf(uri);
+        try (DataInputStream in = openEntryFile(path)) {
+            String cachedUri = in.readUTF();
+            String etag = in.readUTF();
+            String lastModified = in.readUTF();
+            // hash may collide
+            return cachedUri.equals(uri.toString()) ? new Entry(path, cachedUri, etag, lastModified) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * open body of the cached page, and mark it as recently used not to be
+     * evicted
+     *
+     * @param entry cached page
+     * @return response from the cache
+     * @throws IOException if failed to read the file (evicted, etc.)
+     */
+    private Response open(Entry entry) throws IOException {
+        DataInputStream in = openEntryFile(entry.path);
+        try {
+            // skip headers
+            in.readUTF();
+            in.readUTF();
+            in.readUTF();
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        touch(entry);
+        return new Response(200, in, true);
+    }
+
+    /**
+     * open a file of the cache
+     *
+     * @param path file caching a page
+     * @return stream starting with the headers of the page
+     * @throws IOException if failed to open the file
+     */
+    private static DataInputStream openEntryFile(Path path) throws IOException {
+        InputStream file = Files.newInputStream(path);
+        try {
+            return new DataInputStream(new BufferedInputStream(new GZIPInputStream(file, BUFFER_SIZE)));
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * delete least recently used pages until the total size gets within the
+     * limit
+     *
+     * @throws IOException if failed to list the cache
+     */
+    private synchronized void evict() throws IOException {
+        List<Path> entries;
+        try (Stream<Path> files = Files.list(cacheFolder)) {
+            entries = files.filter(path -> !path.getFileName().toString().endsWith(TEMPORARY_SUFFIX))
+                    .collect(Collectors.toList());
+        }
+        long totalBytes = 0;
+        for (Path entry : entries) {
+            totalBytes += size(entry);
+        }
+        if (totalBytes <= maxCacheBytes) {
+            return;
+        }
+
+        List<Path> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparing(HttpCache::lastModifiedTime));
+        for (Path entry : sorted) {
+            if (totalBytes <= maxCacheBytes) {
+                break;
+            }
+            long bytes = size(entry);
+            try {
+                Files.delete(entry);
+                totalBytes -= bytes;
+            } catch (NoSuchFileException e) {
+                // evicted by another thread
+            }
+        }
+    }
+
+    /**
+     * mark the cached page as recently used not to be evicted
+     *
+     * @param entry cached page
+     */
+    private static void touch(Entry entry) {
+        try {
+            Files.setLastModifiedTime(entry.path, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // evicted by another thread
+        }
+    }
+
+    /**
+     * get path of the file caching a page
+     *
+     * @param uri uri of the page
+     * @return path of the file
+     */
+    private Path pathOf(URI uri) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest(uri.toString().getBytes(StandardCharsets.UTF_8))) {
+            hex.append(String.format("%02x", b));
+        }
+        return cacheFolder.resolve(hex.append(".gz").toString());
+    }
+
+    /**
+     * get size of a file
+     *
+     * @param path file
+     * @return size in bytes, or 0 if not exists
+     */
+    private static long size(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * get last modified time of a file
+     *
+     * @param path file
+     * @return last modified time, or epoch if not exists
+     */
+    private static FileTime lastModifiedTime(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * cached page
+     */
+    private static class Entry {
+
+        /**
+         * file caching the page
+         */
+        public final Path path;
+
+        /**
+         * uri of the page
+         */
+        public final String uri;
+
+        /**
+         * ETag header (empty if not given)
+         */
+        public final String etag;
+
+        /**
+         * Last-Modified header (empty if not given)
+         */
+        public final String lastModified;
+
+        /**
+         * constructor
+         *
+         * @param path         file caching the page
+         * @param uri          uri of the page
+         * @param etag         ETag header
+         * @param lastModified Last-Modified header
+         */
+        public Entry(Path path, String uri, String etag, String lastModified) {
+            this.path = path;
+            this.uri = uri;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * stream of a downloaded body which writes what is read into the cache
+     *
+     * the page is cached when closed, after reading the rest of the body
+     */
+    private class CachingInputStream extends FilterInputStream {
+
+        private final Entry entry;
+        private final Path temporaryFile;
+        private DataOutputStream out;
+
+        /**
+         * constructor
+         *
+         * @param in    downloaded body
+         * @param entry page to cache
+         * @throws IOException if failed to create a file
+         */
+        private CachingInputStream(InputStream in, Entry entry) throws IOException {
+            super(in);
+            this.entry = entry;
+
+            // write into a temporary file first not to leave a broken entry
+            Files.createDirectories(cacheFolder);
+            this.temporaryFile = Files.createTempFile(cacheFolder, entry.path.getFileName().toString(),
+                    TEMPORARY_SUFFIX);
+            try {
+                this.out = new DataOutputStream(
+                        new GZIPOutputStream(Files.newOutputStream(temporaryFile), BUFFER_SIZE));
+                out.writeUTF(entry.uri);
+                out.writeUTF(entry.etag);
+                out.writeUTF(entry.lastModified);
+            } catch (IOException e) {
+                abandon();
+                throw e;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0 && out != null) {
+                try {
+                    out.write(b);
+                } catch (IOException e) {
+                    abandon();
+                }
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0 && out != null) {
+                try {
+                    out.write(b, off, n);
+                } catch (IOException e) {
+                    abandon();
+                }
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // skipped bytes must be cached too
+            byte[] buffer = new byte[(int) Math.min(n, BUFFER_SIZE)];
+            int read = read(buffer, 0, buffer.length);
+            return Math.max(read, 0);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (out != null) {
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    while (read(buffer, 0, buffer.length) >= 0) {
+                        // read the rest of the body to cache the whole page
+                    }
+                }
+                if (out != null) {
+                    out.close();
+                    out = null;
+                    Files.move(temporaryFile, entry.path, StandardCopyOption.ATOMIC_MOVE,
+                            StandardCopyOption.REPLACE_EXISTING);
+                    evict();
+                }
+            } catch (IOException e) {
+                // the page is just downloaded again next time
+            } finally {
+                abandon();
+                super.close();
+            }
+        }
+
+        /**
+         * stop caching the page and delete the temporary file
+         */
+        private void abandon() {
+            try {
+                if (out != null) {
+                    out.close();
+                }
+            } catch (IOException e) {
+                // being deleted
+            }
+            out = null;
+            try {
+                Files.deleteIfExists(temporaryFile);
+            } catch (IOException e) {
+                // left until evicted
+            }
+        }
+    }
+
+    /**
+     * parser of a response
+     *
+     * @param <T> type of parsed result
+     */
+    @FunctionalInterface
+    public interface Parser<T> {
+
+        /**
+         * parse a response
+         *
+         * @param response response to parse
+         * @return parsed result
+         * @throws IOException if failed to read the body
+         */
+        T parse(Response response) throws IOException;
+    }
+
+    /**
+     * response of a page
+     */
+    public static class Response implements Closeable {
+
+        /**
+         * status code (200 if served from the cache)
+         */
+        public final int statusCode;
+
+        /**
+         * body of the page
+         */
+        public final InputStream body;
+
+        /**
+         * whether served from the cache
+         */
+        public final boolean cached;
+
+        /**
+         * constructor
+         *
+         * @param statusCode status code
+         * @param body       body of the page
+         * @param cached     whether served from the cache
+         */
+        public Response(int statusCode, InputStream body, boolean cached) {
+            this.statusCode = statusCode;
+            this.body = body;
+            this.cached = cached;
+        }
+
+        /**
+         * close the body (and finish caching it)
+         *
+         * @throws IOException if failed to close the body
+         */
+        @Override
+        public void close() throws IOException {
+            body.close();
+        }
+    }
+}
@@ -0,0 +1,417 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * check of HttpCache against a local server standing in for AtCoder, like a
+ * server given to AtCoderHelper by --site
+ *
+ * the server serves task pages with ETag and Last-Modified, answers
+ * conditional requests with 304 and counts requests, so the check can see
+ * which pages are served from the cache. the process exits with status 1 if
+ * any check fails.
+ */
+public class HttpCacheCheck {
+
+    /**
+     * length of pages evicted by the LRU check (random text, so that their
+     * compressed sizes are about the same)
+     */
+    private static final int LARGE_PAGE_LENGTH = 50_000;
+
+    /**
+     * pause between requests of the LRU check, so that modification times of
+     * the cached files differ
+     */
+    private static final long TOUCH_INTERVAL_MILLIS = 50;
+
+    private static int failedCount = 0;
+
+    /**
+     * entry point
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        StandIn site = new StandIn();
+        HttpServer server;
+        Path cacheFolder;
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            cacheFolder = Files.createTempDirectory("http-cache-check");
+        } catch (IOException e) {
+            System.err.println("Failed to start the stand-in server: " + e.getLocalizedMessage());
+            System.exit(1);
+            return;
+        }
+        server.createContext("/", site);
+        server.start();
+
+        String base = "http://localhost:" + server.getAddress().getPort();
+        HttpClient client = HttpClient.newHttpClient();
+        try {
+            checkRevalidation(client, site, base, cacheFolder.resolve("revalidation"));
+            checkOffline(client, site, base, cacheFolder.resolve("offline"));
+            checkEviction(client, site, base, cacheFolder.resolve("eviction"));
+        } catch (IOException | InterruptedException e) {
+            fail("unexpected error", e.toString());
+        } finally {
+            server.stop(0);
+            deleteRecursively(cacheFolder);
+        }
+
+        System.out.println();
+        System.out.println(failedCount == 0 ? "all checks passed" : failedCount + " check(s) failed");
+        if (failedCount > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * check that unchanged pages are served from the cache after 304, and
+     * changed pages are downloaded again
+     *
+     * @param client      client to send requests with
+     * @param site        stand-in server
+     * @param base        url of the stand-in server
+     * @param cacheFolder folder to cache pages in
+     * @throws IOException          if failed to get a page
+     * @throws InterruptedException if interrupted
+     */
+    private static void checkRevalidation(HttpClient client, StandIn site, String base, Path cacheFolder)
+            throws IOException, InterruptedException {
+        String path = "/contests/abc001/tasks/abc001_a";
+        site.put(path, "<html>first</html>");
+        HttpCache cache = new HttpCache(client, cacheFolder, Long.MAX_VALUE, false);
+        URI uri = URI.create(base + path);
+
+        Page page = Page.get(cache, uri);
+        check("revalidation: first request is downloaded", page.statusCode == 200 && !page.cached
+                && page.body.equals("<html>first</html>"), page.toString());
+
+        page = Page.get(cache, uri);
+        check("revalidation: unchanged page is served from the cache after 304",
+                page.statusCode == 200 && page.cached && page.body.equals("<html>first</html>")
+                        && site.notModifiedCount.get() == 1,
+                page + ", 304 sent " + site.notModifiedCount.get() + " time(s)");
+
+        String asyncBody = cache.getAsync(uri, response -> response.cached ? Page.read(response) : null).join();
+        check("revalidation: unchanged page is parsed from the cache asynchronously",
+                "<html>first</html>".equals(asyncBody), "body = " + asyncBody);
+
+        site.put(path, "<html>second</html>");
+        page = Page.get(cache, uri);
+        check("revalidation: changed page is downloaded again", !page.cached && page.body.equals("<html>second</html>"),
+                page.toString());
+
+        page = Page.get(cache, uri);
+        check("revalidation: changed page is cached again", page.cached && page.body.equals("<html>second</html>"),
+                page.toString());
+    }
+
+    /**
+     * check that offline mode serves cached pages without any request, and
+     * fails for pages never cached
+     *
+     * @param client      client to send requests with
+     * @param site        stand-in server
+     * @param base        url of the stand-in server
+     * @param cacheFolder folder to cache pages in
+     * @throws IOException          if failed to get a page
+     * @throws InterruptedException if interrupted
+     */
+    private static void checkOffline(HttpClient client, StandIn site, String base, Path cacheFolder)
+            throws IOException, InterruptedException {
+        String cachedPath = "/contests/abc002/tasks/abc002_a";
+        String uncachedPath = "/contests/abc002/tasks/abc002_b";
+        site.put(cachedPath, "<html>cached</html>");
+        site.put(uncachedPath, "<html>never cached</html>");
+        Page.get(new HttpCache(client, cacheFolder, Long.MAX_VALUE, false), URI.create(base + cachedPath));
+
+        HttpCache offline = new HttpCache(client, cacheFolder, Long.MAX_VALUE, true);
+        int requestCount = site.requestCount.get();
+        Page page = Page.get(offline, URI.create(base + cachedPath));
+        check("offline: cached page is served", page.cached && page.body.equals("<html>cached</html>"),
+                page.toString());
+
+        String result;
+        try {
+            result = Page.get(offline, URI.create(base + uncachedPath)).toString();
+        } catch (IOException e) {
+            result = null;
+        }
+        check("offline: page never cached is not served", result == null, result);
+
+        try {
+            result = offline.getAsync(URI.create(base + uncachedPath), Page::read).join();
+        } catch (CompletionException e) {
+            result = null;
+        }
+        check("offline: page never cached is not served asynchronously", result == null, result);
+
+        check("offline: no request is sent", site.requestCount.get() == requestCount,
+                (site.requestCount.get() - requestCount) + " request(s) sent");
+    }
+
+    /**
+     * check that least recently used pages are evicted when the cache exceeds
+     * its limit
+     *
+     * @param client      client to send requests with
+     * @param site        stand-in server
+     * @param base        url of the stand-in server
+     * @param cacheFolder folder to cache pages in
+     * @throws IOException          if failed to get a page
+     * @throws InterruptedException if interrupted
+     */
+    private static void checkEviction(HttpClient client, StandIn site, String base, Path cacheFolder)
+            throws IOException, InterruptedException {
+        Random random = new Random(1);
+        URI[] uris = new URI[3];
+        for (int i = 0; i < uris.length; i++) {
+            String path = "/contests/abc003/tasks/abc003_" + (char) ('a' + i);
+            StringBuilder body = new StringBuilder();
+            while (body.length() < LARGE_PAGE_LENGTH) {
+                body.append((char) ('!' + random.nextInt(94)));
+            }
+            site.put(path, body.toString());
+            uris[i] = URI.create(base + path);
+        }
+
+        // room for 2 pages but not for 3
+        Page.get(new HttpCache(client, cacheFolder, Long.MAX_VALUE, false), uris[0]);
+        long pageBytes = folderSize(cacheFolder);
+        HttpCache cache = new HttpCache(client, cacheFolder, pageBytes * 5 / 2, false);
+
+        Thread.sleep(TOUCH_INTERVAL_MILLIS);
+        Page.get(cache, uris[1]);
+        Thread.sleep(TOUCH_INTERVAL_MILLIS);
+        Page touched = Page.get(cache, uris[0]);
+        Thread.sleep(TOUCH_INTERVAL_MILLIS);
+        Page.get(cache, uris[2]);
+        check("eviction: cache is within the limit", folderSize(cacheFolder) <= pageBytes * 5 / 2,
+                folderSize(cacheFolder) + " bytes for the limit of " + pageBytes * 5 / 2 + " bytes");
+
+        HttpCache offline = new HttpCache(client, cacheFolder, Long.MAX_VALUE, true);
+        boolean[] cached = new boolean[uris.length];
+        for (int i = 0; i < uris.length; i++) {
+            try {
+                cached[i] = Page.get(offline, uris[i]).cached;
+            } catch (IOException e) {
+                cached[i] = false;
+            }
+        }
+        check("eviction: page used again is kept", touched.cached && cached[0],
+                "served from the cache: " + touched.cached + ", kept: " + cached[0]);
+        check("eviction: least recently used page is evicted", !cached[1], "kept: " + cached[1]);
+        check("eviction: newest page is kept", cached[2], "kept: " + cached[2]);
+    }
+
+    /**
+     * report result of a check
+     *
+     * @param name   what is checked
+     * @param passed whether the check passed
+     * @param detail what was found (shown if failed)
+     */
+    private static void check(String name, boolean passed, String detail) {
+        if (passed) {
+            System.out.println("ok: " + name);
+        } else {
+            fail(name, detail);
+        }
+    }
+
+    /**
+     * report a failed check
+     *
+     * @param name   what is checked
+     * @param detail what was found
+     */
+    private static void fail(String name, String detail) {
+        failedCount++;
+        System.out.println("FAILED: " + name + " (" + detail + ")");
+    }
+
+    /**
+     * get total size of files in a folder
+     *
+     * @param folder folder
+     * @return size in bytes
+     * @throws IOException if failed to list the folder
+     */
+    private static long folderSize(Path folder) throws IOException {
+        try (Stream<Path> files = Files.list(folder)) {
+            long size = 0;
+            for (Path file : (Iterable<Path>) files::iterator) {
+                size += Files.size(file);
+            }
+            return size;
+        }
+    }
+
+    /**
+     * delete a folder and its contents (errors are ignored)
+     *
+     * @param folder folder to delete
+     */
+    private static void deleteRecursively(Path folder) {
+        try (Stream<Path> files = Files.walk(folder)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to delete " + folder + ": " + e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * page got through the cache
+     */
+    private static class Page {
+
+        /**
+         * status code of the response
+         */
+        public final int statusCode;
+
+        /**
+         * whether the page was served from the cache
+         */
+        public final boolean cached;
+
+        /**
+         * body of the page
+         */
+        public final String body;
+
+        /**
+         * constructor
+         *
+         * @param statusCode status code of the response
+         * @param cached     whether the page was served from the cache
+         * @param body       body of the page
+         */
+        public Page(int statusCode, boolean cached, String body) {
+            this.statusCode = statusCode;
+            this.cached = cached;
+            this.body = body;
+        }
+
+        /**
+         * get a page and read its whole body (which finishes caching it)
+         *
+         * @param cache cache to get the page through
+         * @param uri   uri of the page
+         * @return page
+         * @throws IOException          if failed to get the page
+         * @throws InterruptedException if interrupted
+         */
+        public static Page get(HttpCache cache, URI uri) throws IOException, InterruptedException {
+            try (HttpCache.Response response = cache.get(uri)) {
+                return new Page(response.statusCode, response.cached, read(response));
+            }
+        }
+
+        /**
+         * read the whole body of a response
+         *
+         * @param response response
+         * @return body
+         * @throws IOException if failed to read the body
+         */
+        public static String read(HttpCache.Response response) throws IOException {
+            return new String(response.body.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String toString() {
+            return "status = " + statusCode + ", cached = " + cached + ", body = "
+                    + (body.length() > 40 ? body.substring(0, 40) + "..." : body);
+        }
+    }
+
+    /**
+     * stand-in server serving pages put by the checks
+     *
+     * ETag changes whenever a page is put, and a request with the current
+     * ETag in If-None-Match is answered with 304.
+     */
+    private static class StandIn implements HttpHandler {
+
+        /**
+         * body of each page by path
+         */
+        private final Map<String, String> pages = new ConcurrentHashMap<>();
+
+        /**
+         * ETag of each page by path
+         */
+        private final Map<String, String> etags = new ConcurrentHashMap<>();
+
+        private final AtomicInteger version = new AtomicInteger();
+
+        /**
+         * number of requests received
+         */
+        public final AtomicInteger requestCount = new AtomicInteger();
+
+        /**
+         * number of 304 responses sent
+         */
+        public final AtomicInteger notModifiedCount = new AtomicInteger();
+
+        /**
+         * put a page, or change it
+         *
+         * @param path path of the page
+         * @param body body of the page
+         */
+        public void put(String path, String body) {
+            pages.put(path, body);
+            etags.put(path, "\"" + version.incrementAndGet() + "\"");
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            requestCount.incrementAndGet();
+            String path = exchange.getRequestURI().getPath();
+            String body = pages.get(path);
+            String etag = etags.get(path);
+            if (body == null) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.getResponseHeaders().set("Last-Modified", "Mon, 01 Jan 2024 00:00:00 GMT");
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModifiedCount.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+}
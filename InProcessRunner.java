@@ -0,0 +1,289 @@
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Consumer;
+
+/**
+ * runner of Main::main (or other programs) on threads of TestExecutor's JVM
+ *
+ * Main can be defined again by a new class loader for each run, so static
+ * fields of Main never carry over from former runs
+ */
+public class InProcessRunner {
+
+    private final Program main;
+    private final BytecodeClassLoader classes;
+    private final StdioMultiplexer multiplexer;
+    private final Watchdog watchdog;
+    private final ThreadPoolExecutor service;
+    private final long cpuLimitNanos;
+    private final long wallLimitNanos;
+    private final long memoryLimitBytes;
+    private final MemoryMeter memoryMeter;
+
+    /**
+     * constructor
+     *
+     * @param main             Main::main to run test cases with
+     * @param classes          class loader of Main whose classes are defined
+     *                         again for each run of Main (null to run main)
+     * @param multiplexer      multiplexer to bind stdin and stdout of test
+     *                         cases
+     * @param watchdog         watchdog to judge the time limits with
+     * @param service          thread pool running test cases
+     * @param threads          number of threads running test cases at the same
+     *                         time (heap usage is only measured if 1)
+     * @param cpuLimitNanos    limit of CPU time of each run
+     * @param wallLimitNanos   limit of wall-clock time of each run
+     * @param memoryLimitBytes limit of heap in use of each run
+     */
+    public InProcessRunner(Program main, BytecodeClassLoader classes, StdioMultiplexer multiplexer,
+            Watchdog watchdog, ThreadPoolExecutor service, int threads, long cpuLimitNanos, long wallLimitNanos,
+            long memoryLimitBytes) {
+        this.main = main;
+        this.classes = classes;
+        this.multiplexer = multiplexer;
+        this.watchdog = watchdog;
+        this.service = service;
+        this.cpuLimitNanos = cpuLimitNanos;
+        this.wallLimitNanos = wallLimitNanos;
+        this.memoryLimitBytes = memoryLimitBytes;
+        // heap usage of a run can't be told apart from runs on other threads (the
+        // pool may have grown to replace given-up threads, which are not counted)
+        this.memoryMeter = new MemoryMeter(threads == 1);
+    }
+
+    /**
+     * run Main::main once on the calling thread (a thread of the pool)
+     *
+     * if classes of Main are defined again, loading them is measured apart
+     * from the run and is not limited
+     *
+     * @param in         stream to pass to Main::main as stdin
+     * @param out        stream to pass to Main::main as stdout
+     * @param onExceeded called if the run exceeds a limit, since this method
+     *                   may never return then
+     * @return result of the run
+     * @throws Exception thrown by Main::main
+     */
+    public Run run(InputStream in, PrintStream out, Consumer<Watchdog.Watch> onExceeded) throws Exception {
+        if (classes == null) {
+            return run(main, new String[0], in, out, true, onExceeded);
+        }
+
+        long start = System.nanoTime();
+        Program program = loadProgram("Main", classes.renew());
+        long classLoadingNanos = System.nanoTime() - start;
+
+        Run run = run(program, new String[0], in, out, true, onExceeded);
+        return new Run(run.watch, run.memory, classLoadingNanos);
+    }
+
+    /**
+     * get Main::main to run repeatedly, so static fields of Main start over
+     * only for the first run
+     *
+     * @return Main::main of classes defined again (shared Main::main if classes
+     *         are not defined again)
+     */
+    public Program renewMain() {
+        return classes != null ? loadProgram("Main", classes.renew()) : main;
+    }
+
+    /**
+     * run a program once on the calling thread (a thread of the pool)
+     *
+     * @param program       program to run
+     * @param args          arguments to pass to the program
+     * @param in            stream to pass to the program as stdin
+     * @param out           stream to pass to the program as stdout
+     * @param measureMemory whether to measure memory usage (measurement may
+     *                      collect garbage, which is too slow for many short
+     *                      runs)
+     * @param onExceeded    called if the run exceeds a limit, since this method
+     *                      may never return then
+     * @return result of the run (memory is null if not measured)
+     * @throws Exception thrown by the program
+     */
+    public Run run(Program program, String[] args, InputStream in, PrintStream out, boolean measureMemory,
+            Consumer<Watchdog.Watch> onExceeded) throws Exception {
+        // replace stdin and stdout of this thread to pass data to the program
+        multiplexer.bind(in, out);
+
+        // start memory measurement first since it may collect garbage
+        MemoryMeter.Measurement measurement = measureMemory ? memoryMeter.start() : null;
+        Replacement replacement = new Replacement();
+        Watchdog.Watch watch = watchdog.watch(cpuLimitNanos, wallLimitNanos, exceeded -> {
+            // report first, since the interrupted thread may throw and report an error
+            onExceeded.accept(exceeded);
+            // give up this thread and let another thread execute the rest of test cases
+            exceeded.getThread().interrupt();
+            replacement.giveUp();
+        });
+        if (measurement != null) {
+            // give up this thread in the same way, since it may hold the memory for long
+            measurement.limit(memoryLimitBytes, watch::exceedMemoryLimit);
+        }
+        MemoryMeter.Usage usage;
+        try {
+            program.main(args);
+        } finally {
+            boolean finished = watch.finish();
+            usage = measurement != null ? measurement.finish() : null;
+            if (!finished) {
+                // this thread has been given up but came back
+                replacement.comeBack();
+            }
+            multiplexer.unbind();
+        }
+        return new Run(watch, usage);
+    }
+
+    /**
+     * load main method of a class as program
+     *
+     * @param className   name of the class
+     * @param classLoader class loader to load the class with
+     * @return program calling main method of the class
+     * @throws IllegalArgumentException if the class doesn't have main method
+     */
+    public static Program loadProgram(String className, ClassLoader classLoader) {
+        Method method;
+        try {
+            // initialize the class when called, since its static fields may refer to stdin
+            method = Class.forName(className, false, classLoader).getMethod("main", String[].class);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Failed to load main method of \"" + className + "\": " + e);
+        }
+        return args -> {
+            try {
+                method.invoke(null, (Object) args);
+            } catch (InvocationTargetException e) {
+                // rethrow what the program threw as if called directly
+                if (e.getCause() instanceof Exception) {
+                    throw (Exception) e.getCause();
+                }
+                throw (Error) e.getCause();
+            }
+        };
+    }
+
+    /**
+     * change number of threads of the pool
+     *
+     * @param delta number of threads to add (or remove if negative)
+     */
+    private void resizePool(int delta) {
+        synchronized (service) {
+            // maximum pool size must not be less than core pool size at any moment
+            if (delta > 0) {
+                service.setMaximumPoolSize(service.getMaximumPoolSize() + delta);
+                service.setCorePoolSize(service.getCorePoolSize() + delta);
+            } else {
+                service.setCorePoolSize(service.getCorePoolSize() + delta);
+                service.setMaximumPoolSize(service.getMaximumPoolSize() + delta);
+            }
+        }
+    }
+
+    /**
+     * replacement of a thread given up by the watchdog
+     *
+     * the thread may come back before the watchdog adds a thread to replace it,
+     * so the pool is only shrunk after it has grown, and never below its size
+     */
+    private class Replacement {
+
+        // guarded by service
+        private boolean replaced = false;
+        private boolean cameBack = false;
+
+        /**
+         * add a thread to the pool unless the given-up thread has already come
+         * back (called from the watchdog thread)
+         */
+        public void giveUp() {
+            synchronized (service) {
+                if (!cameBack) {
+                    replaced = true;
+                    resizePool(1);
+                }
+            }
+        }
+
+        /**
+         * remove the added thread from the pool, since the given-up thread has
+         * come back (called on the given-up thread)
+         */
+        public void comeBack() {
+            synchronized (service) {
+                cameBack = true;
+                if (replaced) {
+                    resizePool(-1);
+                }
+            }
+        }
+    }
+
+    /**
+     * program with main method like Main
+     */
+    @FunctionalInterface
+    public interface Program {
+
+        /**
+         * run the program
+         *
+         * @param args command line arguments
+         * @throws Exception thrown by the program
+         */
+        void main(String[] args) throws Exception;
+    }
+
+    /**
+     * result of a run
+     */
+    public static class Run {
+
+        /**
+         * watch of the run (state is FINISHED unless exceeded)
+         */
+        public final Watchdog.Watch watch;
+
+        /**
+         * memory usage of the run (null if not measured)
+         */
+        public final MemoryMeter.Usage memory;
+
+        /**
+         * time to define classes of Main before the run in nanoseconds (-1 if
+         * classes are not defined again)
+         */
+        public final long classLoadingNanos;
+
+        /**
+         * constructor
+         *
+         * @param watch  of the run
+         * @param memory usage of the run
+         */
+        public Run(Watchdog.Watch watch, MemoryMeter.Usage memory) {
+            this(watch, memory, -1);
+        }
+
+        /**
+         * constructor
+         *
+         * @param watch             of the run
+         * @param memory            usage of the run
+         * @param classLoadingNanos time to define classes of Main before the run
+         */
+        public Run(Watchdog.Watch watch, MemoryMeter.Usage memory, long classLoadingNanos) {
+            this.watch = watch;
+            this.memory = memory;
+            this.classLoadingNanos = classLoadingNanos;
+        }
+    }
+}
@@ -0,0 +1,1365 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.ToLongFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * specification of input of a task parsed from "制約" (constraints) and "入力"
+ * (input format) of the task page, which generates worst-case inputs
+ *
+ * the input format is lines of variables in {@code <var>}, where an array may
+ * be repeated horizontally with \ldots (A_1 A_2 \ldots A_N) and lines may be
+ * repeated vertically with \vdots (u_1 v_1 \vdots u_M v_M). bounds of each
+ * variable are taken from chains of inequalities like "1 \leq A_i \leq 10^9",
+ * and lengths and characters of strings from |S| or text like "長さ N の英小文字
+ * からなる文字列". variables without subscript are always at their upper
+ * bounds, so every variant has the maximum size. relations between variables
+ * other than bounds (distinctness, graphs, sums, etc.) are not satisfied.
+ */
+public class InputSpec {
+
+    /**
+     * how values of variables with subscript are chosen
+     */
+    public enum Variant {
+
+        /**
+         * every value at its upper bound
+         */
+        MAX,
+
+        /**
+         * uniformly random values
+         */
+        RANDOM,
+
+        /**
+         * the same random value for all elements of each variable
+         */
+        EQUAL,
+
+        /**
+         * values ascending from the lower bound to the upper bound
+         */
+        SORTED;
+
+        /**
+         * get file name of the input of this variant
+         *
+         * @return file name like "worst_max.txt"
+         */
+        public String getFileName() {
+            return "worst_" + name().toLowerCase() + ".txt";
+        }
+    }
+
+    /**
+     * maximum size of generated inputs (larger sizes mean constraints not
+     * understood, such as a sum of sizes)
+     */
+    private static final long MAX_INPUT_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * characters of strings whose characters are not detected
+     */
+    private static final String DEFAULT_CHARACTERS = "abcdefghijklmnopqrstuvwxyz";
+
+    private static final Pattern ITEM_PATTERN = Pattern.compile("<li>(.*?)</li>", Pattern.DOTALL);
+    private static final Pattern VAR_PATTERN = Pattern.compile("<var>(.*?)</var>", Pattern.DOTALL);
+    private static final Pattern CODE_PATTERN = Pattern.compile("<code>(.*?)</code>", Pattern.DOTALL);
+    private static final Pattern TAG_PATTERN = Pattern.compile("<[^>]*>");
+    private static final Pattern RELATION_PATTERN = Pattern.compile("[≤<≥>=]");
+    private static final Pattern SUBJECT_PATTERN = Pattern.compile(
+            "(\\|?)([A-Za-z])(?:_(?:\\{[^{}]*\\}|[A-Za-z0-9]))?\\1");
+    private static final Pattern FORMAT_TOKEN_PATTERN = Pattern.compile(
+            "(\\s*)(\\\\[A-Za-z]+|\\.\\.\\.|([A-Za-z])(?:_(\\{[^{}]*\\}|[A-Za-z0-9]+))?|\\S)");
+
+    private final List<Line> lines;
+    private final Map<String, List<Bound>> lowers;
+    private final Map<String, List<Bound>> uppers;
+    private final Map<String, String> characters;
+    private final Map<String, Long> scalars = new LinkedHashMap<>();
+    private final Set<String> strings = new HashSet<>();
+
+    /**
+     * constructor (sizes are resolved and checked)
+     *
+     * @param lines      lines of the input format
+     * @param lowers     lower bounds by variable name ("|S|" for length of S)
+     * @param uppers     upper bounds by variable name
+     * @param characters characters of strings by variable name
+     * @throws IllegalArgumentException if sizes can't be resolved
+     */
+    private InputSpec(List<Line> lines, Map<String, List<Bound>> lowers, Map<String, List<Bound>> uppers,
+            Map<String, String> characters) {
+        this.lines = lines;
+        this.lowers = lowers;
+        this.uppers = uppers;
+        this.characters = characters;
+
+        List<String> pending = new ArrayList<>();
+        for (Line line : lines) {
+            for (Item item : line.items) {
+                if (characters.containsKey(item.name) || uppers.containsKey("|" + item.name + "|")) {
+                    strings.add(item.name);
+                    // length of a single string is a size like N
+                    String length = "|" + item.name + "|";
+                    if (line.rows == null && item.count == null && !item.indexed && uppers.containsKey(length)
+                            && !pending.contains(length)) {
+                        pending.add(length);
+                    }
+                } else if (line.rows == null && item.count == null && !item.indexed
+                        && !pending.contains(item.name)) {
+                    pending.add(item.name);
+                }
+            }
+        }
+        resolveScalars(pending);
+
+        long bytes = 0;
+        for (Line line : lines) {
+            bytes += estimateBytes(line);
+            if (bytes > MAX_INPUT_BYTES) {
+                throw new IllegalArgumentException(String.format(
+                        "input would be too large (over %d MB), which may be limited by a sum of sizes",
+                        MAX_INPUT_BYTES / 1024 / 1024));
+            }
+        }
+    }
+
+    /**
+     * parse constraints and input format of a task page
+     *
+     * @param constraintsHtml html of the list of constraints
+     * @param formatHtml      html in {@code <pre>} of the input format
+     * @return parsed specification
+     * @throws IllegalArgumentException if the input format is not supported or
+     *                                  sizes can't be resolved
+     */
+    public static InputSpec parse(String constraintsHtml, String formatHtml) {
+        Map<String, List<Bound>> lowers = new HashMap<>();
+        Map<String, List<Bound>> uppers = new HashMap<>();
+        Map<String, String> characters = new HashMap<>();
+        Matcher item = ITEM_PATTERN.matcher(constraintsHtml);
+        while (item.find()) {
+            parseConstraint(item.group(1), lowers, uppers, characters);
+        }
+        return new InputSpec(parseFormat(formatHtml), lowers, uppers, characters);
+    }
+
+    /**
+     * get the maximum size of the task, which is the first variable of the
+     * input format (N, etc.)
+     *
+     * @return upper bound of the first variable without subscript, or -1 if
+     *         none
+     */
+    public long getMaxSize() {
+        return scalars.isEmpty() ? -1 : scalars.values().iterator().next();
+    }
+
+    /**
+     * write an input
+     *
+     * @param variant how to choose values
+     * @param path    file to write into
+     * @param seed    seed of random values
+     * @throws IOException if failed to write
+     */
+    public void write(Variant variant, Path path, long seed) throws IOException {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            FastIO.Writer writer = new FastIO.Writer(out);
+            new Generation(variant, seed, writer).run();
+            writer.flush();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        scalars.forEach((name, value) -> text.append(text.length() > 0 ? ", " : "").append(name).append(" = ")
+                .append(value));
+        return text.length() > 0 ? text.toString() : "no size variable";
+    }
+
+    /**
+     * assign upper bounds to variables without subscript, in order of the
+     * input format as long as their bounds refer to assigned variables
+     *
+     * @param pending variables to assign
+     * @throws IllegalArgumentException if a variable has no upper bound
+     */
+    private void resolveScalars(List<String> pending) {
+        Set<String> unresolved = new HashSet<>(pending);
+        while (!pending.isEmpty()) {
+            boolean progress = false;
+            for (int i = 0; i < pending.size(); i++) {
+                String name = pending.get(i);
+                Range range = evaluateRange(name, scalars, unresolved);
+                if (range == null) {
+                    continue;
+                }
+                if (range.upper == Long.MAX_VALUE) {
+                    throw new IllegalArgumentException("no upper bound of " + name);
+                }
+                scalars.put(name, range.upper);
+                unresolved.remove(name);
+                pending.remove(i--);
+                progress = true;
+            }
+            if (!progress) {
+                throw new IllegalArgumentException("bounds of " + pending + " refer to each other");
+            }
+        }
+    }
+
+    /**
+     * estimate size of a line with the maximum values
+     *
+     * @param line line of the input format
+     * @return estimated bytes
+     */
+    private long estimateBytes(Line line) {
+        Map<String, Long> values = new HashMap<>(scalars);
+        long bytes = 1;
+        for (Item item : line.items) {
+            long count = item.count == null ? 1 : evaluate(item.count, values, item.name);
+            long each;
+            if (strings.contains(item.name)) {
+                each = lengthOf(item.name, values, null) + 1;
+            } else {
+                Range range = evaluateRange(item.name, values, Set.of());
+                if (range == null || range.upper == Long.MAX_VALUE) {
+                    throw new IllegalArgumentException("no upper bound of " + item.name);
+                }
+                values.put(item.key, range.upper);
+                each = Long.toString(range.upper).length() + 1;
+            }
+            bytes = Math.addExact(bytes, Math.multiplyExact(count, each));
+        }
+        return Math.multiplyExact(bytes, line.rows == null ? 1 : evaluate(line.rows, values, "rows"));
+    }
+
+    /**
+     * get the maximum length of a string
+     *
+     * @param name   name of the string variable
+     * @param values values of variables
+     * @param cache  cache of lengths not depending on rows (null if not cached)
+     * @return upper bound of the length (1 if no bounds, a character)
+     */
+    private long lengthOf(String name, Map<String, Long> values, Map<String, Range> cache) {
+        String key = "|" + name + "|";
+        if (!uppers.containsKey(key)) {
+            return 1;
+        }
+        Range range = cache != null ? cache.get(key) : null;
+        if (range == null) {
+            range = evaluateRange(key, values, Set.of());
+            if (range == null || range.upper == Long.MAX_VALUE) {
+                throw new IllegalArgumentException("no upper bound of " + key);
+            }
+            if (cache != null && !range.dependsOnRow) {
+                cache.put(key, range);
+            }
+        }
+        return range.upper;
+    }
+
+    /**
+     * evaluate bounds of a variable (the largest lower bound and the smallest
+     * upper bound)
+     *
+     * @param name       name of the variable ("|S|" for length of S)
+     * @param values     values of variables
+     * @param unresolved variables not assigned yet
+     * @return range (Long.MAX_VALUE if no upper bound), or null if an upper
+     *         bound refers to an unresolved variable
+     */
+    private Range evaluateRange(String name, Map<String, Long> values, Set<String> unresolved) {
+        long lower = Long.MIN_VALUE;
+        long upper = Long.MAX_VALUE;
+        boolean dependsOnRow = false;
+        for (Bound bound : lowers.getOrDefault(name, List.of())) {
+            // unresolved variables are assigned their upper bounds, so their lower bounds don't wait
+            Evaluation evaluation = bound.evaluate(values, unresolved);
+            if (evaluation != null && evaluation != Evaluation.BLOCKED) {
+                lower = Math.max(lower, evaluation.value);
+                dependsOnRow |= evaluation.dependsOnRow;
+            }
+        }
+        for (Bound bound : uppers.getOrDefault(name, List.of())) {
+            Evaluation evaluation = bound.evaluate(values, unresolved);
+            if (evaluation == Evaluation.BLOCKED) {
+                return null;
+            }
+            if (evaluation != null) {
+                upper = Math.min(upper, evaluation.value);
+                dependsOnRow |= evaluation.dependsOnRow;
+            }
+        }
+        if (lower == Long.MIN_VALUE) {
+            lower = Math.min(1, upper);
+        }
+        return new Range(Math.min(lower, upper), upper, dependsOnRow);
+    }
+
+    /**
+     * evaluate an expression which must be evaluable
+     *
+     * @param expression expression to evaluate
+     * @param values     values of variables
+     * @param what       what the expression is for (to report)
+     * @return value
+     * @throws IllegalArgumentException if not evaluable
+     */
+    private static long evaluate(Expression expression, Map<String, Long> values, String what) {
+        if (!values.keySet().containsAll(expression.variables)) {
+            throw new IllegalArgumentException("unknown count of " + what + ": " + expression);
+        }
+        try {
+            return expression.function.applyAsLong(values);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("count of " + what + " overflows: " + expression);
+        }
+    }
+
+    /**
+     * parse a constraint in an item of the list
+     *
+     * @param html       html of the item
+     * @param lowers     map to add lower bounds to
+     * @param uppers     map to add upper bounds to
+     * @param characters map to put characters of strings to
+     */
+    private static void parseConstraint(String html, Map<String, List<Bound>> lowers,
+            Map<String, List<Bound>> uppers, Map<String, String> characters) {
+        List<String> vars = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        Matcher var = VAR_PATTERN.matcher(html);
+        int end = 0;
+        while (var.find()) {
+            texts.add(html.substring(end, var.start()));
+            vars.add(normalize(var.group(1)));
+            end = var.end();
+        }
+        texts.add(html.substring(end));
+        for (String latex : vars) {
+            parseChain(latex, lowers, uppers);
+        }
+        if (vars.isEmpty()) {
+            return;
+        }
+
+        // strings described in Japanese like "S は長さ 1 以上 N 以下の英小文字からなる文字列"
+        String text = TAG_PATTERN.matcher(String.join("", texts)).replaceAll("");
+        Matcher subject = SUBJECT_PATTERN.matcher(vars.get(0).trim());
+        if (!subject.lookingAt()) {
+            return;
+        }
+        String name = subject.group(2);
+        StringBuilder chars = new StringBuilder();
+        Matcher code = CODE_PATTERN.matcher(html);
+        while (code.find()) {
+            String c = normalize(TAG_PATTERN.matcher(code.group(1)).replaceAll("")).trim();
+            if (c.length() == 1 && chars.indexOf(c) < 0) {
+                chars.append(c);
+            }
+        }
+        if (text.contains("数字")) {
+            chars.append("0123456789");
+        }
+        if (text.contains("英大文字")) {
+            chars.append("ABCDEFGHIJKLMNOPQRSTUVWXYZ");
+        }
+        if (text.contains("英小文字")) {
+            chars.append(DEFAULT_CHARACTERS);
+        }
+        if (chars.length() > 0 || text.contains("文字列")) {
+            characters.put(name, chars.length() > 0 ? chars.toString() : DEFAULT_CHARACTERS);
+        }
+        for (int i = 0; i + 1 < texts.size() && i + 1 < vars.size(); i++) {
+            if (!texts.get(i + 1).contains("長さ")) {
+                continue;
+            }
+            // texts.get(i + 1) is between vars i and i + 1, and texts.get(i + 2) follows var i + 1
+            Expression length = Expression.parse(vars.get(i + 1));
+            String after = i + 2 < texts.size() ? texts.get(i + 2).trim() : "";
+            if (length == null) {
+                break;
+            }
+            String key = "|" + name + "|";
+            if (after.startsWith("以上") && i + 2 < vars.size()) {
+                Expression upper = Expression.parse(vars.get(i + 2));
+                lowers.computeIfAbsent(key, k -> new ArrayList<>()).add(new Bound(length, 0));
+                if (upper != null) {
+                    uppers.computeIfAbsent(key, k -> new ArrayList<>()).add(new Bound(upper, 0));
+                }
+            } else {
+                lowers.computeIfAbsent(key, k -> new ArrayList<>()).add(new Bound(length, 0));
+                uppers.computeIfAbsent(key, k -> new ArrayList<>()).add(new Bound(length, 0));
+            }
+            characters.putIfAbsent(name, DEFAULT_CHARACTERS);
+            break;
+        }
+    }
+
+    /**
+     * parse a chain of inequalities like "1 \leq u_i \lt v_i \leq N" into
+     * bounds of its variables
+     *
+     * each variable is bounded by the nearest evaluable term on each side, so
+     * 1 and N are bounds of u_i and v_i.
+     *
+     * @param latex  normalized text of {@code <var>}
+     * @param lowers map to add lower bounds to
+     * @param uppers map to add upper bounds to
+     */
+    private static void parseChain(String latex, Map<String, List<Bound>> lowers, Map<String, List<Bound>> uppers) {
+        if (latex.contains("≠")) {
+            return;
+        }
+        List<String> terms = new ArrayList<>();
+        List<Character> relations = new ArrayList<>();
+        Matcher relation = RELATION_PATTERN.matcher(latex);
+        int end = 0;
+        while (relation.find()) {
+            terms.add(latex.substring(end, relation.start()).trim());
+            relations.add(relation.group().charAt(0));
+            end = relation.end();
+        }
+        terms.add(latex.substring(end).trim());
+        if (relations.isEmpty()) {
+            return;
+        }
+
+        // turn descending chains into ascending ones
+        boolean ascending = relations.stream().allMatch(c -> c == '≤' || c == '<' || c == '=');
+        boolean descending = relations.stream().allMatch(c -> c == '≥' || c == '>' || c == '=');
+        if (!ascending && !descending) {
+            return;
+        }
+        if (!ascending) {
+            Collections.reverse(terms);
+            Collections.reverse(relations);
+            relations.replaceAll(c -> c == '≥' ? '≤' : c == '>' ? '<' : c);
+        }
+
+        List<Expression> expressions = new ArrayList<>();
+        for (String term : terms) {
+            expressions.add(Expression.parse(term));
+        }
+        for (int k = 0; k < terms.size(); k++) {
+            List<String> subjects = parseSubjects(terms.get(k));
+            if (subjects.isEmpty()) {
+                continue;
+            }
+            Bound lower = new Bound();
+            Bound upper = new Bound();
+            if (k + 1 < terms.size() && relations.get(k) == '=' && expressions.get(k + 1) != null) {
+                lower.add(expressions.get(k + 1), 0);
+            }
+            if (k > 0 && relations.get(k - 1) == '=' && expressions.get(k - 1) != null) {
+                upper.add(expressions.get(k - 1), 0);
+            }
+            long offset = 0;
+            for (int j = k - 1; j >= 0; j--) {
+                offset += relations.get(j) == '<' ? 1 : 0;
+                if (expressions.get(j) != null) {
+                    lower.add(expressions.get(j), offset);
+                }
+            }
+            offset = 0;
+            for (int j = k + 1; j < terms.size(); j++) {
+                offset -= relations.get(j - 1) == '<' ? 1 : 0;
+                if (expressions.get(j) != null) {
+                    upper.add(expressions.get(j), offset);
+                }
+            }
+            for (String subject : subjects) {
+                if (!lower.alternatives.isEmpty()) {
+                    lowers.computeIfAbsent(subject, key -> new ArrayList<>()).add(lower);
+                }
+                if (!upper.alternatives.isEmpty()) {
+                    uppers.computeIfAbsent(subject, key -> new ArrayList<>()).add(upper);
+                }
+            }
+        }
+    }
+
+    /**
+     * parse a term of variables like "N, M", "A_i" or "|S|"
+     *
+     * @param term term of a chain
+     * @return names of the variables ("|S|" for length of S), or empty if the
+     *         term is not variables
+     */
+    private static List<String> parseSubjects(String term) {
+        List<String> subjects = new ArrayList<>();
+        // commas in subscript like A_{i,j} don't separate variables
+        for (String part : term.split(",(?![^{]*\\})")) {
+            Matcher m = SUBJECT_PATTERN.matcher(part.trim());
+            if (!m.matches()) {
+                return List.of();
+            }
+            subjects.add(m.group(1).isEmpty() ? m.group(2) : "|" + m.group(2) + "|");
+        }
+        return subjects;
+    }
+
+    /**
+     * normalize text of {@code <var>} (html entities, relations, spaces and
+     * remarks of indices like "(1 \leq i \leq N)")
+     *
+     * @param latex text of {@code <var>}
+     * @return normalized text
+     */
+    private static String normalize(String latex) {
+        String s = latex.replace("&lt;", "<").replace("&gt;", ">").replace("&amp;", "&")
+                .replace("&le;", "≤").replace("&ge;", "≥").replace("≦", "≤").replace("≧", "≥");
+        s = s.replaceAll("\\\\leq?q?(?:slant)?(?![A-Za-z])", "≤")
+                .replaceAll("\\\\geq?q?(?:slant)?(?![A-Za-z])", "≥")
+                .replaceAll("\\\\lt(?![A-Za-z])", "<").replaceAll("\\\\gt(?![A-Za-z])", ">")
+                .replaceAll("\\\\neq?(?![A-Za-z])", "≠");
+        s = s.replaceAll("\\\\(?:left|right|big|Big)(?![A-Za-z])", "").replace("{,}", "")
+                .replaceAll("\\\\(?:q?quad(?![A-Za-z])|[ ,;!])", " ").replace('~', ' ');
+        // remarks like "(1 \leq i \leq N)" are not bounds of the variables
+        return s.replaceAll("\\([^()]*[≤<≥>][^()]*\\)", " ");
+    }
+
+    /**
+     * parse lines of the input format
+     *
+     * @param html html in {@code <pre>} of the input format
+     * @return lines
+     * @throws IllegalArgumentException if the format is not supported
+     */
+    private static List<Line> parseFormat(String html) {
+        List<List<Token>> rows = new ArrayList<>();
+        for (String text : html.split("\r?\n")) {
+            List<Token> tokens = tokenize(text);
+            if (!tokens.isEmpty()) {
+                rows.add(tokens);
+            }
+        }
+
+        List<Line> lines = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            List<Token> row = rows.get(i);
+            if (row.size() == 1 && row.get(0).isVerticalEllipsis()) {
+                // lines like "u_1 v_1" (and "u_2 v_2") are repeated down to the next line like "u_M v_M"
+                if (lines.isEmpty() || i + 1 >= rows.size()) {
+                    throw new IllegalArgumentException("\\vdots without first or last line");
+                }
+                Line last = parseLine(rows.get(++i), null);
+                Line first = null;
+                while (!lines.isEmpty() && lines.get(lines.size() - 1).hasSameShape(last)) {
+                    first = lines.remove(lines.size() - 1);
+                }
+                if (first == null) {
+                    throw new IllegalArgumentException("lines around \\vdots differ");
+                }
+                lines.add(new Line(first.items, createCount(first.getRowIndex(), last.getRowIndex())));
+            } else {
+                lines.add(parseLine(row, null));
+            }
+        }
+        if (lines.isEmpty()) {
+            throw new IllegalArgumentException("no variable in the input format");
+        }
+        return lines;
+    }
+
+    /**
+     * tokenize a line of the input format
+     *
+     * @param html html of the line
+     * @return tokens of variables and ellipses
+     * @throws IllegalArgumentException if the line has unsupported text
+     */
+    private static List<Token> tokenize(String html) {
+        List<Token> tokens = new ArrayList<>();
+        Matcher var = VAR_PATTERN.matcher(html);
+        int end = 0;
+        while (var.find()) {
+            String between = TAG_PATTERN.matcher(html.substring(end, var.start())).replaceAll("");
+            boolean spaced = tokens.isEmpty() || !between.isEmpty();
+            if (!between.isBlank() && !between.trim().equals(":")) {
+                throw new IllegalArgumentException("text out of <var>: \"" + between.trim() + "\"");
+            }
+            if (between.trim().equals(":")) {
+                tokens.add(new Token("\\vdots", null, null, true));
+            }
+            String latex = normalize(var.group(1));
+            Matcher token = FORMAT_TOKEN_PATTERN.matcher(latex);
+            int position = 0;
+            while (position < latex.length() && token.find(position) && token.start() == position) {
+                if (token.group(3) != null) {
+                    tokens.add(new Token(token.group(2), token.group(3), token.group(4), spaced
+                            || !token.group(1).isEmpty()));
+                } else if (!token.group(2).isBlank()) {
+                    tokens.add(new Token(token.group(2), null, null, spaced || !token.group(1).isEmpty()));
+                }
+                spaced = false;
+                position = token.end();
+            }
+            end = var.end();
+        }
+        String rest = TAG_PATTERN.matcher(html.substring(end)).replaceAll("").trim();
+        if (rest.equals(":")) {
+            tokens.add(new Token("\\vdots", null, null, true));
+        } else if (!rest.isEmpty()) {
+            throw new IllegalArgumentException("text out of <var>: \"" + rest + "\"");
+        }
+        for (Token token : tokens) {
+            if (token.name == null && !token.isHorizontalEllipsis() && !token.isVerticalEllipsis()) {
+                throw new IllegalArgumentException("unsupported token \"" + token.text + "\"");
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * parse a line of variables and horizontal arrays
+     *
+     * @param tokens tokens of the line
+     * @param rows   number of times the line is repeated (null if once)
+     * @return line
+     * @throws IllegalArgumentException if the line is not supported
+     */
+    private static Line parseLine(List<Token> tokens, Expression rows) {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token.name == null) {
+                throw new IllegalArgumentException("misplaced \"" + token.text + "\"");
+            }
+            // array like "A_1 A_2 \ldots A_N" up to the last element after \ldots
+            int ellipsis = i + 1;
+            while (ellipsis < tokens.size() && token.name.equals(tokens.get(ellipsis).name)) {
+                ellipsis++;
+            }
+            if (ellipsis + 1 < tokens.size() && tokens.get(ellipsis).isHorizontalEllipsis()
+                    && token.name.equals(tokens.get(ellipsis + 1).name) && token.subscript != null) {
+                Token last = tokens.get(ellipsis + 1);
+                Expression count = createCount(token.getColumnIndex(), last.getColumnIndex());
+                boolean spaced = ellipsis > i + 1 ? tokens.get(i + 1).spaced : last.spaced;
+                items.add(new Item(token.name, true, token.subscript, count, spaced ? " " : "", token.spaced));
+                i = ellipsis + 1;
+            } else {
+                items.add(new Item(token.name, token.subscript != null, token.subscript, null, "", token.spaced));
+            }
+        }
+        return new Line(items, rows);
+    }
+
+    /**
+     * create number of elements from the first index to the last index
+     *
+     * @param first first index like "1"
+     * @param last  last index like "N"
+     * @return count expression
+     * @throws IllegalArgumentException if an index is not an expression
+     */
+    private static Expression createCount(String first, String last) {
+        Expression count = first.equals("1") ? Expression.parse(last)
+                : Expression.parse("(" + last + ")-(" + first + ")+1");
+        if (count == null) {
+            throw new IllegalArgumentException("unsupported indices from " + first + " to " + last);
+        }
+        return count;
+    }
+
+    /**
+     * generation of an input
+     */
+    private class Generation {
+
+        private final Variant variant;
+        private final SplittableRandom random;
+        private final FastIO.Writer writer;
+        private final Map<String, Long> values = new HashMap<>(scalars);
+        private final Map<String, Range> ranges = new HashMap<>();
+        private final Map<String, Long> equalValues = new HashMap<>();
+
+        /**
+         * constructor
+         *
+         * @param variant how to choose values
+         * @param seed    seed of random values
+         * @param writer  writer of the input
+         */
+        Generation(Variant variant, long seed, FastIO.Writer writer) {
+            this.variant = variant;
+            this.random = new SplittableRandom(seed);
+            this.writer = writer;
+        }
+
+        /**
+         * write all lines
+         */
+        void run() {
+            for (Line line : lines) {
+                long rows = line.rows == null ? 1 : evaluate(line.rows, values, "rows");
+                for (long row = 0; row < rows; row++) {
+                    // bounds refer to elements of the same row only after they are written
+                    for (Item item : line.items) {
+                        if (item.indexed) {
+                            values.remove(item.key);
+                        }
+                    }
+                    for (int i = 0; i < line.items.size(); i++) {
+                        Item item = line.items.get(i);
+                        if (i > 0 && item.spaced) {
+                            writer.print(' ');
+                        }
+                        writeItem(item, row, rows);
+                    }
+                    writer.println();
+                }
+            }
+        }
+
+        /**
+         * write a variable or an array
+         *
+         * @param item variable or array
+         * @param row  index of the row of repeated lines
+         * @param rows number of repeated lines
+         */
+        private void writeItem(Item item, long row, long rows) {
+            long count = item.count == null ? 1 : evaluate(item.count, values, item.name);
+            for (long column = 0; column < count; column++) {
+                if (column > 0) {
+                    writer.print(item.separator);
+                }
+                long ordinal = row * count + column;
+                if (strings.contains(item.name)) {
+                    writeString(item.name, ordinal, rows * count);
+                } else if (!item.indexed) {
+                    writer.print(values.get(item.name));
+                } else {
+                    long value = choose(item.name, ordinal, rows * count);
+                    values.put(item.key, value);
+                    writer.print(value);
+                }
+            }
+        }
+
+        /**
+         * choose a value of an element
+         *
+         * @param name    name of the variable
+         * @param ordinal index of the element among all elements of the variable
+         * @param total   number of elements of the variable
+         * @return value
+         */
+        private long choose(String name, long ordinal, long total) {
+            Range range = getRange(name);
+            switch (variant) {
+                case MAX:
+                    return range.upper;
+                case RANDOM:
+                    return range.random(random);
+                case EQUAL:
+                    long value = equalValues.computeIfAbsent(name, key -> range.random(random));
+                    return Math.max(range.lower, Math.min(range.upper, value));
+                default:
+                    // evenly ascending, so no sort is needed while streaming
+                    return range.lower + (long) ((double) (range.upper - range.lower) * ordinal
+                            / Math.max(1, total - 1));
+            }
+        }
+
+        /**
+         * write a string of the maximum length
+         *
+         * @param name    name of the variable
+         * @param ordinal index of the string among all strings of the variable
+         * @param total   number of strings of the variable
+         */
+        private void writeString(String name, long ordinal, long total) {
+            String chars = characters.getOrDefault(name, DEFAULT_CHARACTERS);
+            long length = lengthOf(name, values, ranges);
+            char equal = chars.charAt((int) (equalValues.computeIfAbsent(name,
+                    key -> (long) random.nextInt(chars.length())).longValue()));
+            for (long i = 0; i < length; i++) {
+                switch (variant) {
+                    case MAX:
+                        writer.print(chars.charAt(chars.length() - 1));
+                        break;
+                    case RANDOM:
+                        writer.print(chars.charAt(random.nextInt(chars.length())));
+                        break;
+                    case EQUAL:
+                        writer.print(equal);
+                        break;
+                    default:
+                        writer.print(chars.charAt((int) (i * chars.length() / length)));
+                        break;
+                }
+            }
+        }
+
+        /**
+         * get bounds of a variable (cached unless they depend on the row)
+         *
+         * @param name name of the variable
+         * @return range
+         * @throws IllegalArgumentException if no upper bound
+         */
+        private Range getRange(String name) {
+            Range range = ranges.get(name);
+            if (range != null) {
+                return range;
+            }
+            range = evaluateRange(name, values, Set.of());
+            if (range == null || range.upper == Long.MAX_VALUE) {
+                throw new IllegalArgumentException("no upper bound of " + name);
+            }
+            if (!range.dependsOnRow) {
+                ranges.put(name, range);
+            }
+            return range;
+        }
+    }
+
+    /**
+     * token of the input format
+     */
+    private static class Token {
+
+        final String text;
+        final String name;
+        final String subscript;
+        final boolean spaced;
+
+        /**
+         * constructor
+         *
+         * @param text      text of the token
+         * @param name      name of the variable (null if not a variable)
+         * @param subscript subscript without braces (null if none)
+         * @param spaced    whether whitespace precedes the token
+         */
+        Token(String text, String name, String subscript, boolean spaced) {
+            this.text = text;
+            this.name = name;
+            this.subscript = subscript == null ? null : subscript.replaceAll("^\\{|\\}$", "");
+            this.spaced = spaced;
+        }
+
+        /**
+         * get the index of the column, which is the last index
+         *
+         * @return index like "N"
+         */
+        String getColumnIndex() {
+            String[] indices = subscript.split(",");
+            return indices[indices.length - 1].trim();
+        }
+
+        /**
+         * check if the token is \ldots
+         *
+         * @return true if \ldots, \cdots, \dots or "..."
+         */
+        boolean isHorizontalEllipsis() {
+            return text.equals("\\ldots") || text.equals("\\cdots") || text.equals("\\dots") || text.equals("...");
+        }
+
+        /**
+         * check if the token is \vdots
+         *
+         * @return true if \vdots or ":"
+         */
+        boolean isVerticalEllipsis() {
+            return text.equals("\\vdots") || text.equals(":");
+        }
+    }
+
+    /**
+     * variable or horizontal array in a line
+     */
+    private static class Item {
+
+        final String name;
+        final String key;
+        final boolean indexed;
+        final String subscript;
+        final Expression count;
+        final String separator;
+        final boolean spaced;
+
+        /**
+         * constructor
+         *
+         * @param name      name of the variable without subscript
+         * @param indexed   whether the variable has subscript
+         * @param subscript subscript of the first element (null if none)
+         * @param count     number of elements of an array (null if a variable)
+         * @param separator separator between elements
+         * @param spaced    whether separated from the previous item by a space
+         */
+        Item(String name, boolean indexed, String subscript, Expression count, String separator,
+                boolean spaced) {
+            this.name = name;
+            this.key = indexed ? name + "_" : name;
+            this.indexed = indexed;
+            this.subscript = subscript;
+            this.count = count;
+            this.separator = separator;
+            this.spaced = spaced;
+        }
+    }
+
+    /**
+     * line of the input format
+     */
+    private static class Line {
+
+        final List<Item> items;
+        final Expression rows;
+
+        /**
+         * constructor
+         *
+         * @param items variables and arrays of the line
+         * @param rows  number of times the line is repeated (null if once)
+         */
+        Line(List<Item> items, Expression rows) {
+            this.items = items;
+            this.rows = rows;
+        }
+
+        /**
+         * check if another line has the same variables in the same order
+         *
+         * @param other line to compare
+         * @return true if the same shape
+         */
+        boolean hasSameShape(Line other) {
+            if (items.size() != other.items.size()) {
+                return false;
+            }
+            for (int i = 0; i < items.size(); i++) {
+                if (!items.get(i).name.equals(other.items.get(i).name)
+                        || (items.get(i).count == null) != (other.items.get(i).count == null)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * get the index of the row, which is the first index of the first
+         * variable with subscript
+         *
+         * @return index like "M"
+         * @throws IllegalArgumentException if no variable has subscript
+         */
+        String getRowIndex() {
+            for (Item item : items) {
+                if (item.subscript != null) {
+                    return item.subscript.split(",")[0].trim();
+                }
+            }
+            throw new IllegalArgumentException("repeated lines without subscript");
+        }
+    }
+
+    /**
+     * range of a variable
+     */
+    private static class Range {
+
+        final long lower;
+        final long upper;
+        final boolean dependsOnRow;
+
+        /**
+         * constructor
+         *
+         * @param lower        lower bound
+         * @param upper        upper bound
+         * @param dependsOnRow whether the bounds refer to variables of the row
+         */
+        Range(long lower, long upper, boolean dependsOnRow) {
+            this.lower = lower;
+            this.upper = upper;
+            this.dependsOnRow = dependsOnRow;
+        }
+
+        /**
+         * choose a random value in the range
+         *
+         * @param random random generator
+         * @return value
+         */
+        long random(SplittableRandom random) {
+            long width = upper - lower + 1;
+            return width > 0 ? lower + random.nextLong(width) : random.nextLong();
+        }
+    }
+
+    /**
+     * bound of a variable in a chain, which is the nearest evaluable term
+     */
+    private static class Bound {
+
+        final List<Expression> alternatives = new ArrayList<>();
+        final List<Long> offsets = new ArrayList<>();
+
+        /**
+         * constructor of an empty bound
+         */
+        Bound() {
+        }
+
+        /**
+         * constructor of a bound with a term
+         *
+         * @param expression term of the bound
+         * @param offset     offset added to the term
+         */
+        Bound(Expression expression, long offset) {
+            add(expression, offset);
+        }
+
+        /**
+         * add a term farther than the terms added before
+         *
+         * @param expression term of the bound
+         * @param offset     offset added to the term (1 or -1 for each strict
+         *                   inequality between)
+         */
+        void add(Expression expression, long offset) {
+            alternatives.add(expression);
+            offsets.add(offset);
+        }
+
+        /**
+         * evaluate the nearest term referring only to known variables
+         *
+         * @param values     values of variables
+         * @param unresolved variables not assigned yet
+         * @return evaluated bound, null if no term is evaluable, or BLOCKED if
+         *         the nearest term refers to an unresolved variable
+         */
+        Evaluation evaluate(Map<String, Long> values, Set<String> unresolved) {
+            for (int i = 0; i < alternatives.size(); i++) {
+                Expression expression = alternatives.get(i);
+                boolean known = true;
+                for (String variable : expression.variables) {
+                    if (unresolved.contains(variable)) {
+                        return Evaluation.BLOCKED;
+                    }
+                    known &= values.containsKey(variable);
+                }
+                if (!known) {
+                    // refers to an element of another variable like v_i
+                    continue;
+                }
+                try {
+                    return new Evaluation(Math.addExact(expression.function.applyAsLong(values), offsets.get(i)),
+                            expression.dependsOnRow);
+                } catch (ArithmeticException e) {
+                    // too large bound like 10^{100}
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * value of a bound
+     */
+    private static class Evaluation {
+
+        /**
+         * evaluation waiting for unresolved variables
+         */
+        static final Evaluation BLOCKED = new Evaluation(0, false);
+
+        final long value;
+        final boolean dependsOnRow;
+
+        /**
+         * constructor
+         *
+         * @param value        value of the bound
+         * @param dependsOnRow whether the bound refers to variables of the row
+         */
+        Evaluation(long value, boolean dependsOnRow) {
+            this.value = value;
+            this.dependsOnRow = dependsOnRow;
+        }
+    }
+
+    /**
+     * arithmetic expression in LaTeX like "2 \times 10^5" or "\min(N(N-1)/2, M)"
+     *
+     * variables are single letters (adjacent letters are multiplied), and a
+     * variable with subscript like "K_i" is named "K_" meaning the element of
+     * the current row, and "|S|" is the length of a string S. values are exact
+     * long integers and division floors.
+     */
+    static class Expression {
+
+        private static final Pattern TOKEN_PATTERN = Pattern.compile(
+                "\\s*(\\\\[A-Za-z]+|[0-9]+|\\|[A-Za-z]\\||[A-Za-z](?:_(?:\\{[^{}]*\\}|[A-Za-z0-9]))?|\\S)");
+
+        final String source;
+        final Set<String> variables = new HashSet<>();
+        ToLongFunction<Map<String, Long>> function;
+        boolean dependsOnRow = false;
+
+        private final List<String> tokens = new ArrayList<>();
+        private int position = 0;
+
+        /**
+         * constructor
+         *
+         * @param source text of the expression
+         */
+        private Expression(String source) {
+            this.source = source;
+        }
+
+        /**
+         * parse an expression
+         *
+         * @param source normalized text of the expression
+         * @return parsed expression, or null if not an expression
+         */
+        static Expression parse(String source) {
+            Expression expression = new Expression(source.trim());
+            Matcher token = TOKEN_PATTERN.matcher(source);
+            int end = 0;
+            while (token.find() && token.start() == end) {
+                expression.tokens.add(token.group(1));
+                end = token.end();
+            }
+            if (end != source.length() && !source.substring(end).isBlank() || expression.tokens.isEmpty()) {
+                return null;
+            }
+            try {
+                expression.function = expression.parseSum();
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            return expression.position == expression.tokens.size() ? expression : null;
+        }
+
+        /**
+         * parse terms added or subtracted
+         *
+         * @return function of the sum
+         */
+        private ToLongFunction<Map<String, Long>> parseSum() {
+            ToLongFunction<Map<String, Long>> left = parseProduct();
+            while (peek("+") || peek("-")) {
+                boolean plus = next().equals("+");
+                ToLongFunction<Map<String, Long>> a = left;
+                ToLongFunction<Map<String, Long>> b = parseProduct();
+                left = plus ? v -> Math.addExact(a.applyAsLong(v), b.applyAsLong(v))
+                        : v -> Math.subtractExact(a.applyAsLong(v), b.applyAsLong(v));
+            }
+            return left;
+        }
+
+        /**
+         * parse factors multiplied or divided (adjacent factors are multiplied)
+         *
+         * @return function of the product
+         */
+        private ToLongFunction<Map<String, Long>> parseProduct() {
+            ToLongFunction<Map<String, Long>> left = parseUnary();
+            while (true) {
+                boolean divide = false;
+                if (peek("\\times") || peek("\\cdot") || peek("*")) {
+                    next();
+                } else if (peek("/") || peek("\\div")) {
+                    next();
+                    divide = true;
+                } else if (!startsFactor()) {
+                    return left;
+                }
+                ToLongFunction<Map<String, Long>> a = left;
+                ToLongFunction<Map<String, Long>> b = parseUnary();
+                left = divide ? v -> Math.floorDiv(a.applyAsLong(v), b.applyAsLong(v))
+                        : v -> Math.multiplyExact(a.applyAsLong(v), b.applyAsLong(v));
+            }
+        }
+
+        /**
+         * parse a factor with optional minus sign
+         *
+         * @return function of the factor
+         */
+        private ToLongFunction<Map<String, Long>> parseUnary() {
+            if (peek("-")) {
+                next();
+                ToLongFunction<Map<String, Long>> a = parseUnary();
+                return v -> Math.negateExact(a.applyAsLong(v));
+            }
+            ToLongFunction<Map<String, Long>> base = parsePrimary();
+            if (peek("^")) {
+                next();
+                ToLongFunction<Map<String, Long>> exponent = parsePrimary();
+                return v -> power(base.applyAsLong(v), exponent.applyAsLong(v));
+            }
+            return base;
+        }
+
+        /**
+         * parse a number, a variable, a group or a function
+         *
+         * @return function of the primary
+         */
+        private ToLongFunction<Map<String, Long>> parsePrimary() {
+            String token = next();
+            if (token.equals("(") || token.equals("{") || token.equals("[")) {
+                ToLongFunction<Map<String, Long>> inner = parseSum();
+                expect(token.equals("(") ? ")" : token.equals("{") ? "}" : "]");
+                return inner;
+            }
+            if (token.equals("\\min") || token.equals("\\max")) {
+                boolean min = token.equals("\\min");
+                String open = next();
+                if (!open.equals("(") && !open.equals("\\{")) {
+                    throw new IllegalArgumentException("no arguments");
+                }
+                List<ToLongFunction<Map<String, Long>>> arguments = new ArrayList<>();
+                arguments.add(parseSum());
+                while (peek(",")) {
+                    next();
+                    arguments.add(parseSum());
+                }
+                expect(open.equals("(") ? ")" : "\\}");
+                return v -> {
+                    long result = arguments.get(0).applyAsLong(v);
+                    for (ToLongFunction<Map<String, Long>> argument : arguments) {
+                        long value = argument.applyAsLong(v);
+                        result = min ? Math.min(result, value) : Math.max(result, value);
+                    }
+                    return result;
+                };
+            }
+            if (token.equals("\\frac") || token.equals("\\dfrac")) {
+                ToLongFunction<Map<String, Long>> numerator = parsePrimary();
+                ToLongFunction<Map<String, Long>> denominator = parsePrimary();
+                return v -> Math.floorDiv(numerator.applyAsLong(v), denominator.applyAsLong(v));
+            }
+            if (token.equals("\\lfloor") || token.equals("\\lceil")) {
+                ToLongFunction<Map<String, Long>> inner = parseSum();
+                expect(token.equals("\\lfloor") ? "\\rfloor" : "\\rceil");
+                return inner;
+            }
+            if (token.matches("[0-9]+")) {
+                long value = Long.parseLong(token);
+                return v -> value;
+            }
+            if (token.matches("\\|[A-Za-z]\\|")) {
+                variables.add(token);
+                return v -> v.get(token);
+            }
+            if (token.matches("[A-Za-z].*")) {
+                String name = token.length() > 1 ? token.charAt(0) + "_" : token;
+                variables.add(name);
+                dependsOnRow |= token.length() > 1;
+                return v -> v.get(name);
+            }
+            throw new IllegalArgumentException("unexpected \"" + token + "\"");
+        }
+
+        /**
+         * check if the next token starts a factor multiplied implicitly
+         *
+         * @return true if a number, a variable, a group or a function follows
+         */
+        private boolean startsFactor() {
+            if (position >= tokens.size()) {
+                return false;
+            }
+            String token = tokens.get(position);
+            return token.equals("(") || token.equals("{") || token.matches("[0-9A-Za-z|].*")
+                    || token.equals("\\min") || token.equals("\\max") || token.equals("\\frac")
+                    || token.equals("\\dfrac") || token.equals("\\lfloor") || token.equals("\\lceil");
+        }
+
+        /**
+         * check the next token
+         *
+         * @param token expected token
+         * @return true if the next token is the token
+         */
+        private boolean peek(String token) {
+            return position < tokens.size() && tokens.get(position).equals(token);
+        }
+
+        /**
+         * consume the next token
+         *
+         * @return the token
+         * @throws IllegalArgumentException if no token is left
+         */
+        private String next() {
+            if (position >= tokens.size()) {
+                throw new IllegalArgumentException("unexpected end");
+            }
+            return tokens.get(position++);
+        }
+
+        /**
+         * consume the next token which must be the token
+         *
+         * @param token expected token
+         * @throws IllegalArgumentException if the next token differs
+         */
+        private void expect(String token) {
+            if (!next().equals(token)) {
+                throw new IllegalArgumentException("\"" + token + "\" expected");
+            }
+        }
+
+        /**
+         * raise to a power exactly
+         *
+         * @param base     base
+         * @param exponent non-negative exponent
+         * @return base ^ exponent
+         * @throws ArithmeticException if overflows or the exponent is negative
+         */
+        private static long power(long base, long exponent) {
+            if (exponent < 0) {
+                throw new ArithmeticException("negative exponent");
+            }
+            long result = 1;
+            for (long i = 0; i < exponent; i++) {
+                result = Math.multiplyExact(result, base);
+                if (result == 0 || result == 1 && base == 1) {
+                    break;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return source;
+        }
+    }
+}
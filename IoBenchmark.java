@@ -0,0 +1,263 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.StringTokenizer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * benchmark of ways for Main to read input and write output
+ *
+ * each way runs as a program through the same runner as Main, so stdin and
+ * stdout go through the multiplexer like test cases. readers sum a generated
+ * input of random integers, and writers print the same integers. the output
+ * of the first run is verified, and throughput is reported from the median
+ * of measured runs after warmup.
+ */
+public class IoBenchmark {
+
+    /**
+     * number of runs before measurement
+     */
+    private static final int WARMUP_RUNS = 2;
+
+    /**
+     * number of measured runs
+     */
+    private static final int MEASURED_RUNS = 5;
+
+    /**
+     * number of integers on each line of the input
+     */
+    private static final int TOKENS_PER_LINE = 10;
+
+    private final InProcessRunner runner;
+    private final Executor service;
+    private final Checker checker = new OutputComparator();
+
+    /**
+     * constructor
+     *
+     * @param runner  runner of programs
+     * @param service thread pool running programs (the pool of the runner)
+     */
+    public IoBenchmark(InProcessRunner runner, Executor service) {
+        this.runner = runner;
+        this.service = service;
+    }
+
+    /**
+     * run all readers and writers in turn
+     *
+     * @param tokens number of integers to read and write
+     * @return results by name like "read.Scanner"
+     */
+    public Map<String, String> run(int tokens) {
+        StringBuilder integers = new StringBuilder();
+        long sum = 0;
+        for (int i = 0; i < tokens; i++) {
+            integers.append(value(i)).append(i % TOKENS_PER_LINE == TOKENS_PER_LINE - 1 ? '\n' : ' ');
+            sum += value(i);
+        }
+        byte[] input = (tokens + "\n" + integers + "\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] sumAnswer = (sum + "\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] integersAnswer = integers.toString().getBytes(StandardCharsets.US_ASCII);
+        String[] args = { Integer.toString(tokens) };
+        byte[] noInput = new byte[0];
+
+        Map<String, String> results = new LinkedHashMap<>();
+        results.put("read.Scanner", measure(IoBenchmark::readWithScanner, args, input, sumAnswer,
+                input.length, tokens));
+        results.put("read.BufferedReader", measure(IoBenchmark::readWithBufferedReader, args, input, sumAnswer,
+                input.length, tokens));
+        results.put("read.FastIO", measure(IoBenchmark::readWithFastIO, args, input, sumAnswer,
+                input.length, tokens));
+        results.put("write.PrintStream", measure(IoBenchmark::writeWithPrintStream, args, noInput, integersAnswer,
+                integersAnswer.length, tokens));
+        results.put("write.PrintWriter", measure(IoBenchmark::writeWithPrintWriter, args, noInput, integersAnswer,
+                integersAnswer.length, tokens));
+        results.put("write.FastIO", measure(IoBenchmark::writeWithFastIO, args, noInput, integersAnswer,
+                integersAnswer.length, tokens));
+        return results;
+    }
+
+    /**
+     * run a program repeatedly and measure its throughput
+     *
+     * @param program program to run
+     * @param args    arguments to pass to the program
+     * @param input   stdin of the program
+     * @param answer  expected output of the program
+     * @param bytes   bytes read or written by the program
+     * @param tokens  integers read or written by the program
+     * @return result
+     */
+    private String measure(InProcessRunner.Program program, String[] args, byte[] input, byte[] answer,
+            long bytes, int tokens) {
+        long[] samples = new long[MEASURED_RUNS];
+        long firstNanos = 0;
+        for (int i = 0; i < WARMUP_RUNS + MEASURED_RUNS; i++) {
+            OutputBuffer output = new OutputBuffer();
+            CompletableFuture<String> done = new CompletableFuture<>();
+            long[] elapsedNanos = new long[1];
+            service.execute(() -> {
+                try (PrintStream out = new PrintStream(output)) {
+                    Watchdog.Watch watch = runner.run(program, args, new ByteArrayInputStream(input), out, false,
+                            exceeded -> done.complete(describe(exceeded))).watch;
+                    elapsedNanos[0] = watch.getWallNanos();
+                    done.complete(watch.getState() == Watchdog.Watch.FINISHED ? null : describe(watch));
+                } catch (OutOfMemoryError e) {
+                    done.complete("memory limit exceeded (out of memory)");
+                } catch (Throwable e) {
+                    // program given up by the watchdog may throw when interrupted
+                    done.complete("runtime error: " + e);
+                }
+            });
+            String result = done.join();
+            if (result != null) {
+                return result;
+            }
+            if (i == 0) {
+                firstNanos = elapsedNanos[0];
+                try {
+                    Checker.Result judge = checker.check(ByteBuffer.allocate(0), output.toByteBuffer(),
+                            ByteBuffer.wrap(answer));
+                    if (!judge.accepted) {
+                        return "failed (" + judge.message + ")";
+                    }
+                } catch (Exception e) {
+                    return "failed to judge: " + e;
+                }
+            }
+            if (i >= WARMUP_RUNS) {
+                samples[i - WARMUP_RUNS] = elapsedNanos[0];
+            }
+        }
+        TimingStatistics statistics = new TimingStatistics(samples);
+        double seconds = statistics.median / 1e9;
+        return String.format("succeeded (median = %s, %.1f MB/s, %.2f M tokens/s, first run = %s)",
+                TimingStatistics.toMillisText(statistics.median), bytes / seconds / 1e6, tokens / seconds / 1e6,
+                TimingStatistics.toMillisText(firstNanos));
+    }
+
+    /**
+     * describe a run which exceeded a limit
+     *
+     * @param watch watch of the run
+     * @return result
+     */
+    private static String describe(Watchdog.Watch watch) {
+        return watch.getState() == Watchdog.Watch.TIME_LIMIT_EXCEEDED ? "time limit exceeded"
+                : "execution stalled";
+    }
+
+    /**
+     * get an integer of the generated input
+     *
+     * @param index index of the integer
+     * @return pseudo-random integer from -10^9 to 10^9
+     */
+    private static int value(int index) {
+        return (int) (index * 1_000_003L % 2_000_000_001L) - 1_000_000_000;
+    }
+
+    /**
+     * sum integers with Scanner
+     *
+     * @param args command line arguments (unused)
+     */
+    private static void readWithScanner(String[] args) {
+        Scanner sc = new Scanner(System.in);
+        int n = sc.nextInt();
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += sc.nextInt();
+        }
+        System.out.println(sum);
+    }
+
+    /**
+     * sum integers with BufferedReader and StringTokenizer
+     *
+     * @param args command line arguments (unused)
+     * @throws Exception if failed to read
+     */
+    private static void readWithBufferedReader(String[] args) throws Exception {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+        int n = Integer.parseInt(reader.readLine().trim());
+        long sum = 0;
+        int read = 0;
+        while (read < n) {
+            StringTokenizer tokenizer = new StringTokenizer(reader.readLine());
+            while (tokenizer.hasMoreTokens()) {
+                sum += Integer.parseInt(tokenizer.nextToken());
+                read++;
+            }
+        }
+        System.out.println(sum);
+    }
+
+    /**
+     * sum integers with FastIO.Reader
+     *
+     * @param args command line arguments (unused)
+     */
+    private static void readWithFastIO(String[] args) {
+        FastIO.Reader in = new FastIO.Reader(System.in);
+        int n = in.nextInt();
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += in.nextInt();
+        }
+        System.out.println(sum);
+    }
+
+    /**
+     * print integers with System.out
+     *
+     * @param args number of integers
+     */
+    private static void writeWithPrintStream(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        for (int i = 0; i < n; i++) {
+            System.out.println(value(i));
+        }
+    }
+
+    /**
+     * print integers with PrintWriter over BufferedWriter
+     *
+     * @param args number of integers
+     */
+    private static void writeWithPrintWriter(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
+        for (int i = 0; i < n; i++) {
+            out.println(value(i));
+        }
+        out.flush();
+    }
+
+    /**
+     * print integers with FastIO.Writer
+     *
+     * @param args number of integers
+     */
+    private static void writeWithFastIO(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        FastIO.Writer out = new FastIO.Writer(System.out);
+        for (int i = 0; i < n; i++) {
+            out.println(value(i));
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,311 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * meter of memory consumed by test cases
+ *
+ * heap usage and GC activity are measured for the whole JVM. heap usage is
+ * only measured if test cases are measured one at a time, since peaks can't
+ * be told apart between test cases running at the same time, and resetting
+ * them or collecting garbage would disturb the others. GC activity includes
+ * other test cases running at the same time.
+ *
+ * the peak includes garbage which the JVM didn't need to collect yet, so
+ * garbage is collected when heap in use exceeds the limit, and the limit is
+ * judged on what is left. once what is left exceeds the limit, the test case
+ * is reported at once instead of collecting garbage again and again.
+ */
+public class MemoryMeter {
+
+    /**
+     * heap usage at the start of measurement above which garbage is collected
+     * in advance, not to count garbage of former test cases in the peak
+     */
+    private static final long GC_THRESHOLD_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * interval to check heap in use against the limit
+     */
+    private static final long PROBING_INTERVAL_MILLIS = 10;
+
+    /**
+     * thread checking heap in use of measurements (shared, since measurements
+     * which check it never overlap)
+     *
+     * it's started by a test case, so it must not inherit stdin and stdout
+     * bound to the test case, since it reports test cases exceeding the limit
+     */
+    private static final ScheduledExecutorService PROBER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(null, r, "memory-prober", 0, false);
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final boolean exclusive;
+    private final com.sun.management.ThreadMXBean threadMXBean;
+    private final List<MemoryPoolMXBean> heapPools;
+    private final List<GarbageCollectorMXBean> collectors;
+
+    /**
+     * constructor
+     *
+     * @param exclusive whether test cases are measured one at a time (heap
+     *                  usage is not measured otherwise)
+     */
+    public MemoryMeter(boolean exclusive) {
+        this.exclusive = exclusive;
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            this.threadMXBean = (com.sun.management.ThreadMXBean) bean;
+            this.threadMXBean.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            this.threadMXBean = null;
+        }
+        this.heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP).collect(Collectors.toList());
+        this.collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    }
+
+    /**
+     * start measurement of the calling thread (without a limit until
+     * {@link Measurement#limit} is called)
+     *
+     * @return measurement to finish on the same thread
+     */
+    public Measurement start() {
+        return new Measurement();
+    }
+
+    /**
+     * get heap in use of the whole JVM
+     *
+     * @return bytes in use
+     */
+    private long heapUsedBytes() {
+        return heapPools.stream().mapToLong(pool -> pool.getUsage().getUsed()).sum();
+    }
+
+    /**
+     * get bytes allocated by a thread so far
+     *
+     * @param thread thread to get from
+     * @return allocated bytes, or 0 if not supported
+     */
+    private long allocatedBytes(Thread thread) {
+        if (threadMXBean == null) {
+            return 0;
+        }
+        return Thread.currentThread() == thread ? threadMXBean.getCurrentThreadAllocatedBytes()
+                : threadMXBean.getThreadAllocatedBytes(thread.getId());
+    }
+
+    /**
+     * get total collection count of all garbage collectors
+     *
+     * @return collection count
+     */
+    private long currentGcCount() {
+        return collectors.stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).filter(c -> c > 0).sum();
+    }
+
+    /**
+     * get total collection time of all garbage collectors
+     *
+     * @return collection time in milliseconds
+     */
+    private long currentGcMillis() {
+        return collectors.stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).filter(c -> c > 0).sum();
+    }
+
+    /**
+     * measurement of a test case
+     */
+    public class Measurement {
+
+        private final Thread thread = Thread.currentThread();
+        private final long startAllocatedBytes;
+        private final long startGcCount;
+        private final long startGcMillis;
+
+        // guarded by this
+        private long limitBytes = Long.MAX_VALUE;
+        private LongConsumer onExceeded;
+        private ScheduledFuture<?> probe;
+        private long liveHeapBytes = 0;
+        private boolean finished = false;
+
+        /**
+         * constructor (must be called on the thread to measure)
+         *
+         * garbage is collected and peaks are reset only if exclusive, since it
+         * would stop and disturb test cases running at the same time
+         */
+        private Measurement() {
+            if (exclusive) {
+                if (heapUsedBytes() > GC_THRESHOLD_BYTES) {
+                    System.gc();
+                }
+                heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+            }
+            this.startGcCount = currentGcCount();
+            this.startGcMillis = currentGcMillis();
+            this.startAllocatedBytes = allocatedBytes(thread);
+        }
+
+        /**
+         * start checking heap in use against a limit (nothing is checked unless
+         * exclusive, since heap usage is not measured then)
+         *
+         * @param limitBytes memory limit of the test case
+         * @param onExceeded called from the prober thread with heap left after
+         *                   collecting garbage, if it exceeds the limit
+         */
+        public synchronized void limit(long limitBytes, LongConsumer onExceeded) {
+            if (!exclusive || finished) {
+                return;
+            }
+            this.limitBytes = limitBytes;
+            this.onExceeded = onExceeded;
+            this.probe = PROBER.scheduleWithFixedDelay(this::probe, PROBING_INTERVAL_MILLIS,
+                    PROBING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * collect garbage if heap in use exceeds the limit, and record what is
+         * left (called from the prober thread)
+         *
+         * live objects over the limit stay until the next check, so they are
+         * caught unless the test case ends within the interval. once they are,
+         * checking stops, since collecting garbage again would only slow the
+         * test case down until it is judged
+         */
+        private void probe() {
+            long live;
+            synchronized (this) {
+                if (finished || heapUsedBytes() <= limitBytes) {
+                    return;
+                }
+                System.gc();
+                liveHeapBytes = Math.max(liveHeapBytes, heapUsedBytes());
+                if (liveHeapBytes <= limitBytes) {
+                    return;
+                }
+                probe.cancel(false);
+                live = liveHeapBytes;
+            }
+            // outside the lock, since the test case may be finishing now
+            onExceeded.accept(live);
+        }
+
+        /**
+         * finish measurement (usually called on the measured thread)
+         *
+         * @return memory usage during the measurement
+         */
+        public Usage finish() {
+            long allocatedBytes = allocatedBytes(thread) - startAllocatedBytes;
+            if (!exclusive) {
+                return new Usage(allocatedBytes, -1, -1, currentGcCount() - startGcCount,
+                        currentGcMillis() - startGcMillis);
+            }
+            long peakHeapBytes = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+            long live;
+            synchronized (this) {
+                // wait for a running check not to collect garbage after this
+                finished = true;
+                if (probe != null) {
+                    probe.cancel(false);
+                }
+                live = liveHeapBytes;
+            }
+            return new Usage(allocatedBytes, peakHeapBytes, live, currentGcCount() - startGcCount,
+                    currentGcMillis() - startGcMillis);
+        }
+    }
+
+    /**
+     * memory usage of a test case
+     */
+    public static class Usage {
+
+        /**
+         * bytes allocated by the thread running the test case
+         */
+        public final long allocatedBytes;
+
+        /**
+         * peak of heap in use, including garbage not collected yet (-1 if not
+         * measured)
+         */
+        public final long peakHeapBytes;
+
+        /**
+         * peak of heap in use right after collecting garbage when it exceeded
+         * the limit, which is the memory limit judged on (0 if it never
+         * exceeded, -1 if not measured)
+         */
+        public final long liveHeapBytes;
+
+        /**
+         * number of garbage collections
+         */
+        public final long gcCount;
+
+        /**
+         * total pause time of garbage collections in milliseconds
+         */
+        public final long gcMillis;
+
+        /**
+         * constructor
+         *
+         * @param allocatedBytes bytes allocated by the thread
+         * @param peakHeapBytes  peak of heap in use
+         * @param liveHeapBytes  peak of heap in use after collecting garbage
+         * @param gcCount        number of garbage collections
+         * @param gcMillis       total pause time of garbage collections
+         */
+        public Usage(long allocatedBytes, long peakHeapBytes, long liveHeapBytes, long gcCount, long gcMillis) {
+            this.allocatedBytes = allocatedBytes;
+            this.peakHeapBytes = peakHeapBytes;
+            this.liveHeapBytes = liveHeapBytes;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+
+        /**
+         * format bytes as megabytes
+         *
+         * @param bytes size in bytes
+         * @return formatted text
+         */
+        public static String toMegabytesText(long bytes) {
+            return String.format("%.1f MB", (double) bytes / (1024 * 1024));
+        }
+
+        @Override
+        public String toString() {
+            String text = String.format("allocated = %s, gc = %d (%d ms)", toMegabytesText(allocatedBytes), gcCount,
+                    gcMillis);
+            if (peakHeapBytes < 0) {
+                return text;
+            }
+            String heapText = "memory = " + toMegabytesText(peakHeapBytes);
+            if (liveHeapBytes > 0) {
+                heapText += ", live = " + toMegabytesText(liveHeapBytes);
+            }
+            return heapText + ", " + text;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * growable in-memory buffer capturing output of a test case
+ *
+ * unlike ByteArrayOutputStream, writes are not synchronized (PrintStream
+ * already locks itself) and saving doesn't copy the buffer
+ */
+public class OutputBuffer extends OutputStream {
+
+    /**
+     * initial capacity of the buffer
+     */
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    /**
+     * maximum capacity of an array
+     */
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int count = 0;
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(count + 1);
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    /**
+     * get number of bytes written
+     *
+     * @return size of the output
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * get the output as read-only buffer without copying (invalid after
+     * further writes)
+     *
+     * @return view of the output
+     */
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(buffer, 0, count).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * get the output as stream without copying (invalid after further writes)
+     *
+     * @return stream reading the output
+     */
+    public InputStream toInputStream() {
+        return new ByteArrayInputStream(buffer, 0, count);
+    }
+
+    /**
+     * save the output to a file
+     *
+     * @param path file to save into
+     * @throws IOException if failed to write the file
+     */
+    public void writeTo(Path path) throws IOException {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            out.write(buffer, 0, count);
+        }
+    }
+
+    /**
+     * grow the buffer to hold at least the given size
+     *
+     * @param capacity required capacity
+     * @throws OutOfMemoryError if the required capacity exceeds the limit of
+     *                          an array
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity < 0 || capacity > MAX_CAPACITY) {
+            throw new OutOfMemoryError("output exceeds " + MAX_CAPACITY + " bytes");
+        }
+        if (capacity > buffer.length) {
+            int grown = buffer.length > MAX_CAPACITY / 2 ? MAX_CAPACITY : buffer.length * 2;
+            buffer = Arrays.copyOf(buffer, Math.max(grown, capacity));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * checker comparing output with expected output token by token exactly
+ *
+ * files are read through memory mapping and compared without allocation, so
+ * huge outputs never get loaded on heap. identical prefix of the files is
+ * skipped by bulk comparison before comparing tokens.
+ */
+public class OutputComparator implements Checker {
+
+    @Override
+    public Result check(Path inputFilePath, Path outputFilePath, Path answerFilePath) throws IOException {
+        return compare(outputFilePath, answerFilePath);
+    }
+
+    /**
+     * compare output with expected output ignoring differences of whitespace
+     *
+     * @param outputFilePath output of the test case
+     * @param answerFilePath expected output of the test case
+     * @return result of the comparison
+     * @throws IOException if failed to read the files
+     */
+    public static Result compare(Path outputFilePath, Path answerFilePath) throws IOException {
+        try (TokenReader actual = new TokenReader(outputFilePath);
+                TokenReader expected = new TokenReader(answerFilePath)) {
+            return compare(actual, expected);
+        }
+    }
+
+    @Override
+    public Result check(ByteBuffer input, ByteBuffer output, ByteBuffer answer) throws IOException {
+        return compare(new TokenReader(output), new TokenReader(answer));
+    }
+
+    /**
+     * compare tokens of two readers ignoring differences of whitespace
+     *
+     * @param actual   reader of output
+     * @param expected reader of expected output
+     * @return result of the comparison
+     * @throws IOException if failed to map the files
+     */
+    private static Result compare(TokenReader actual, TokenReader expected) throws IOException {
+        if (TokenReader.skipCommonPrefix(actual, expected)) {
+            return Result.ACCEPTED;
+        }
+
+        while (true) {
+            actual.skipWhitespace();
+            expected.skipWhitespace();
+
+            if (actual.peek() < 0 && expected.peek() < 0) {
+                return Result.ACCEPTED;
+            }
+            if (!actual.matchToken(expected)) {
+                return Result.rejected(actual.describeMismatch(expected));
+            }
+        }
+    }
+}
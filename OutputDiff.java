@@ -0,0 +1,756 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * diff of output and expected output to report how a failed test case differs
+ *
+ * lines are aligned by Myers' algorithm in linear space: the middle snake of a
+ * region is found with two vectors of furthest reaching paths, and the regions
+ * before and after it are aligned in turn, so memory is linear in the number of
+ * lines instead of quadratic. lines are compared by hashes of their tokens,
+ * ignoring whitespace like the judge, and each pair of changed lines is aligned
+ * again by tokens to mark the differing tokens.
+ *
+ * alignment stops once the hunks to report are found. a region needing more
+ * edits than the work budget allows is split at the furthest reaching path
+ * instead of its middle snake, so completely different outputs of millions of
+ * lines never take quadratic time (the diff may be longer than the shortest
+ * then).
+ */
+public class OutputDiff {
+
+    /**
+     * number of equal lines shown around changes
+     */
+    private static final int CONTEXT_LINES = 2;
+
+    /**
+     * maximum number of lines shown in a hunk
+     */
+    private static final int MAX_HUNK_LINES = 12;
+
+    /**
+     * maximum length of a line shown in a report
+     */
+    private static final int MAX_LINE_LENGTH = 100;
+
+    /**
+     * number of equal tokens shown before the first changed token of a line
+     */
+    private static final int CONTEXT_TOKENS = 3;
+
+    /**
+     * product of the length of a region and the number of edits searched in it
+     * before giving up its middle snake
+     */
+    private static final long WORK_BUDGET = 50_000_000L;
+
+    /**
+     * minimum number of edits searched in a region regardless of the budget
+     */
+    private static final int MIN_EDIT_LIMIT = 64;
+
+    private final int maxHunks;
+
+    /**
+     * constructor
+     *
+     * @param maxHunks number of hunks to report
+     */
+    public OutputDiff(int maxHunks) {
+        this.maxHunks = maxHunks;
+    }
+
+    /**
+     * report differences of files read through memory mapping
+     *
+     * @param outputFilePath output of the test case
+     * @param answerFilePath expected output of the test case
+     * @return lines of the report, each starting with a line separator (empty
+     *         if no line differs)
+     * @throws IOException if failed to map the files
+     */
+    public String diff(Path outputFilePath, Path answerFilePath) throws IOException {
+        try (FileChannel output = FileChannel.open(outputFilePath, StandardOpenOption.READ);
+                FileChannel answer = FileChannel.open(answerFilePath, StandardOpenOption.READ)) {
+            return diff(map(output), map(answer));
+        }
+    }
+
+    /**
+     * map a whole file
+     *
+     * @param channel channel of the file
+     * @return mapped buffer
+     * @throws IOException if failed to map the file or it is too large
+     */
+    private static ByteBuffer map(FileChannel channel) throws IOException {
+        if (channel.size() > Integer.MAX_VALUE) {
+            throw new IOException("too large to diff");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    /**
+     * report differences of buffers in memory
+     *
+     * @param output output of the program (between position and limit)
+     * @param answer expected output (between position and limit)
+     * @return lines of the report, each starting with a line separator (empty
+     *         if no line differs)
+     */
+    public String diff(ByteBuffer output, ByteBuffer answer) {
+        Lines expected = new Lines(answer.slice());
+        Lines actual = new Lines(output.slice());
+
+        List<List<int[]>> hunks = new ArrayList<>();
+        int[] changedLines = new int[1];
+        boolean[] cut = new boolean[1];
+        boolean complete = new Aligner((a, b) -> expected.hashes[a] == actual.hashes[b], expected.count,
+                actual.count, (aStart, aEnd, bStart, bEnd) -> {
+                    List<int[]> hunk = hunks.isEmpty() ? null : hunks.get(hunks.size() - 1);
+                    int[] last = hunk == null ? null : hunk.get(hunk.size() - 1);
+                    if (last != null && last[1] == aStart && last[3] == bStart) {
+                        // a deletion followed by an insertion is a replacement
+                        changedLines[0] -= Math.max(last[1] - last[0], last[3] - last[2]);
+                        last[1] = aEnd;
+                        last[3] = bEnd;
+                        changedLines[0] += Math.max(last[1] - last[0], last[3] - last[2]);
+                    } else if (last != null && aStart - last[1] <= CONTEXT_LINES * 2) {
+                        hunk.add(new int[] { aStart, aEnd, bStart, bEnd });
+                        changedLines[0] += Math.max(aEnd - aStart, bEnd - bStart);
+                    } else if (hunks.size() < maxHunks) {
+                        hunks.add(new ArrayList<>(List.of(new int[] { aStart, aEnd, bStart, bEnd })));
+                        changedLines[0] = Math.max(aEnd - aStart, bEnd - bStart);
+                    } else {
+                        return false;
+                    }
+                    // the rest of the last hunk is not shown, so a huge replacement ends here
+                    cut[0] = hunks.size() == maxHunks && changedLines[0] > MAX_HUNK_LINES;
+                    return !cut[0];
+                }).align();
+        if (hunks.isEmpty()) {
+            return "";
+        }
+
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("%n  first %d differing hunk(s) of answer (-) and output (+):", hunks.size()));
+        for (int i = 0; i < hunks.size(); i++) {
+            appendHunk(text, expected, actual, hunks.get(i), !cut[0] || i < hunks.size() - 1);
+        }
+        if (!complete) {
+            text.append(String.format("%n  ... more differences follow"));
+        }
+        return text.toString();
+    }
+
+    /**
+     * append a hunk with its context
+     *
+     * @param text     text to append to
+     * @param expected lines of expected output
+     * @param actual   lines of output
+     * @param changes  changed regions of the hunk as {answer start, answer end,
+     *                 output start, output end}
+     * @param complete whether all changes of the hunk are found (the number of
+     *                 lines not shown is unknown if not)
+     */
+    private static void appendHunk(StringBuilder text, Lines expected, Lines actual, List<int[]> changes,
+            boolean complete) {
+        int[] first = changes.get(0);
+        int[] last = changes.get(changes.size() - 1);
+        int aStart = Math.max(0, first[0] - CONTEXT_LINES);
+        int bStart = first[2] - (first[0] - aStart);
+        int aEnd = Math.min(expected.count, last[1] + CONTEXT_LINES);
+        int bEnd = last[3] + (aEnd - last[1]);
+        text.append(String.format("%n  @@ answer %s, output %s @@", expected.describeRange(aStart, aEnd),
+                actual.describeRange(bStart, bEnd)));
+
+        // rows are context lines, pairs of changed lines, and lines only in either
+        // (only shown rows are rendered, since a hunk may replace millions of lines)
+        List<String> rows = new ArrayList<>();
+        long total = aEnd - aStart;
+        int a = aStart;
+        for (int[] change : changes) {
+            for (; a < change[0] && rows.size() < MAX_HUNK_LINES; a++) {
+                rows.add("  " + expected.render(a));
+            }
+            int pairs = Math.min(change[1] - change[0], change[3] - change[2]);
+            for (int i = 0; i < pairs && rows.size() < MAX_HUNK_LINES; i++) {
+                rows.add("~ " + renderTokenDiff(expected, change[0] + i, actual, change[2] + i));
+            }
+            for (int i = change[0] + pairs; i < change[1] && rows.size() < MAX_HUNK_LINES; i++) {
+                rows.add("- " + expected.render(i));
+            }
+            for (int i = change[2] + pairs; i < change[3] && rows.size() < MAX_HUNK_LINES; i++) {
+                rows.add("+ " + actual.render(i));
+            }
+            total += Math.max(0, (change[3] - change[2]) - (change[1] - change[0]));
+            a = change[1];
+        }
+        for (; a < aEnd && rows.size() < MAX_HUNK_LINES; a++) {
+            rows.add("  " + expected.render(a));
+        }
+
+        for (String row : rows) {
+            text.append(String.format("%n  %s", row));
+        }
+        if (total > rows.size() && complete) {
+            text.append(String.format("%n  ... %d more line(s)", total - rows.size()));
+        }
+    }
+
+    /**
+     * render a pair of changed lines as tokens of the output with differing
+     * tokens marked like "1 [-2-]{+3+} 4"
+     *
+     * @param expected lines of expected output
+     * @param a        index of the line of expected output
+     * @param actual   lines of output
+     * @param b        index of the line of output
+     * @return rendered line starting a few tokens before the first change
+     */
+    private static String renderTokenDiff(Lines expected, int a, Lines actual, int b) {
+        Tokens x = new Tokens(expected, a);
+        Tokens y = new Tokens(actual, b);
+        List<int[]> changes = new ArrayList<>();
+        new Aligner((i, j) -> x.matches(i, y, j), x.count, y.count, (aStart, aEnd, bStart, bEnd) -> {
+            int[] last = changes.isEmpty() ? null : changes.get(changes.size() - 1);
+            if (last != null && last[1] == aStart && last[3] == bStart) {
+                last[1] = aEnd;
+                last[3] = bEnd;
+            } else {
+                changes.add(new int[] { aStart, aEnd, bStart, bEnd });
+            }
+            // changes beyond the shown part of the line are not needed
+            return changes.size() <= MAX_LINE_LENGTH / 2;
+        }).align();
+        if (changes.isEmpty()) {
+            // equal lines can be paired in a region split at a furthest reaching path
+            return x.join(0, x.count);
+        }
+
+        StringBuilder line = new StringBuilder();
+        int i = Math.max(0, changes.get(0)[0] - CONTEXT_TOKENS);
+        if (i > 0) {
+            line.append("...");
+        }
+        for (int[] change : changes) {
+            if (line.length() > MAX_LINE_LENGTH) {
+                break;
+            }
+            appendWithSpace(line, x.join(i, change[0]));
+            if (change[1] > change[0]) {
+                appendWithSpace(line, "[-" + x.join(change[0], change[1]) + "-]");
+            }
+            if (change[3] > change[2]) {
+                line.append(change[1] > change[0] ? "" : " ").append("{+" + y.join(change[2], change[3]) + "+}");
+            }
+            i = change[1];
+        }
+        appendWithSpace(line, x.join(i, x.count));
+        return shorten(line.toString().trim());
+    }
+
+    /**
+     * append text separated by a space
+     *
+     * @param line line to append to
+     * @param text text to append (nothing is appended if empty)
+     */
+    private static void appendWithSpace(StringBuilder line, String text) {
+        if (text.isEmpty()) {
+            return;
+        }
+        if (line.length() > 0) {
+            line.append(' ');
+        }
+        line.append(text);
+    }
+
+    /**
+     * shorten a line to show
+     *
+     * @param line line to shorten
+     * @return the line, or its head followed by "..." if too long
+     */
+    private static String shorten(String line) {
+        return line.length() <= MAX_LINE_LENGTH ? line : line.substring(0, MAX_LINE_LENGTH) + "...";
+    }
+
+    /**
+     * equality of elements of two sequences
+     */
+    private interface Equality {
+
+        /**
+         * compare elements
+         *
+         * @param a index in the first sequence
+         * @param b index in the second sequence
+         * @return true if equal
+         */
+        boolean test(int a, int b);
+    }
+
+    /**
+     * receiver of changed regions in order
+     */
+    private interface ChangeSink {
+
+        /**
+         * receive a region replaced between the sequences
+         *
+         * @param aStart start in the first sequence
+         * @param aEnd   end in the first sequence
+         * @param bStart start in the second sequence
+         * @param bEnd   end in the second sequence
+         * @return false to stop alignment
+         */
+        boolean accept(int aStart, int aEnd, int bStart, int bEnd);
+    }
+
+    /**
+     * aligner of two sequences by Myers' algorithm in linear space
+     */
+    private static class Aligner {
+
+        private final Equality equality;
+        private final int n;
+        private final int m;
+        private final ChangeSink sink;
+        private final int editLimit;
+        private boolean stopped = false;
+
+        /**
+         * constructor
+         *
+         * @param equality equality of elements
+         * @param n        length of the first sequence
+         * @param m        length of the second sequence
+         * @param sink     receiver of changed regions
+         */
+        Aligner(Equality equality, int n, int m, ChangeSink sink) {
+            this.equality = equality;
+            this.n = n;
+            this.m = m;
+            this.sink = sink;
+            this.editLimit = (int) Math.max(MIN_EDIT_LIMIT, Math.min(Integer.MAX_VALUE / 4,
+                    WORK_BUDGET / Math.max(1, (long) n + m)));
+        }
+
+        /**
+         * align the whole sequences
+         *
+         * @return true if completed, false if stopped by the sink
+         */
+        boolean align() {
+            align(0, n, 0, m);
+            return !stopped;
+        }
+
+        /**
+         * align a region and pass its changes to the sink
+         *
+         * the region before each split point is aligned recursively and the
+         * region after it by the loop, so the stack stays shallow even if a long
+         * region is split many times at furthest reaching paths
+         *
+         * @param aLo start in the first sequence
+         * @param aHi end in the first sequence
+         * @param bLo start in the second sequence
+         * @param bHi end in the second sequence
+         */
+        private void align(int aLo, int aHi, int bLo, int bHi) {
+            while (!stopped) {
+                while (aLo < aHi && bLo < bHi && equality.test(aLo, bLo)) {
+                    aLo++;
+                    bLo++;
+                }
+                while (aLo < aHi && bLo < bHi && equality.test(aHi - 1, bHi - 1)) {
+                    aHi--;
+                    bHi--;
+                }
+                if (aLo == aHi || bLo == bHi) {
+                    if ((aLo < aHi || bLo < bHi) && !sink.accept(aLo, aHi, bLo, bHi)) {
+                        stopped = true;
+                    }
+                    return;
+                }
+                long split = findSplit(aLo, aHi, bLo, bHi);
+                if (split < 0) {
+                    if (!sink.accept(aLo, aHi, bLo, bHi)) {
+                        stopped = true;
+                    }
+                    return;
+                }
+                int x = (int) (split >>> 32);
+                int y = (int) split;
+                align(aLo, x, bLo, y);
+                aLo = x;
+                bLo = y;
+            }
+        }
+
+        /**
+         * find the middle snake of a region whose first and last elements differ
+         *
+         * paths reaching furthest from the start and from the end are extended
+         * one edit at a time until they overlap. if the edits exceed the limit,
+         * the forward path reaching furthest is taken instead.
+         *
+         * @param aLo start in the first sequence
+         * @param aHi end in the first sequence
+         * @param bLo start in the second sequence
+         * @param bHi end in the second sequence
+         * @return split point packed as (x << 32 | y), strictly between the
+         *         corners of the region, or -1 if no element is common
+         */
+        private long findSplit(int aLo, int aHi, int bLo, int bHi) {
+            int n = aHi - aLo;
+            int m = bHi - bLo;
+            int maxD = Math.min((n + m + 1) / 2, editLimit);
+            int offset = maxD;
+            int length = maxD * 2 + 2;
+            int[] forward = new int[length];
+            int[] backward = new int[length];
+            Arrays.fill(forward, -1);
+            Arrays.fill(backward, -1);
+            forward[offset + 1] = 0;
+            backward[offset + 1] = 0;
+            int delta = n - m;
+            boolean odd = (delta & 1) != 0;
+
+            // diagonals which ran off the region are pruned from both ends
+            int forwardStart = 0;
+            int forwardEnd = 0;
+            int backwardStart = 0;
+            int backwardEnd = 0;
+            for (int d = 0; d < maxD; d++) {
+                for (int k = -d + forwardStart; k <= d - forwardEnd; k += 2) {
+                    int kOffset = offset + k;
+                    int x = k == -d || (k != d && forward[kOffset - 1] < forward[kOffset + 1])
+                            ? forward[kOffset + 1]
+                            : forward[kOffset - 1] + 1;
+                    int y = x - k;
+                    while (x < n && y < m && equality.test(aLo + x, bLo + y)) {
+                        x++;
+                        y++;
+                    }
+                    forward[kOffset] = x;
+                    if (x > n) {
+                        forwardEnd += 2;
+                    } else if (y > m) {
+                        forwardStart += 2;
+                    } else if (odd) {
+                        int backwardOffset = offset + delta - k;
+                        if (backwardOffset >= 0 && backwardOffset < length && backward[backwardOffset] != -1
+                                && x >= n - backward[backwardOffset]) {
+                            return pack(aLo + x, bLo + y);
+                        }
+                    }
+                }
+                for (int k = -d + backwardStart; k <= d - backwardEnd; k += 2) {
+                    int kOffset = offset + k;
+                    int x = k == -d || (k != d && backward[kOffset - 1] < backward[kOffset + 1])
+                            ? backward[kOffset + 1]
+                            : backward[kOffset - 1] + 1;
+                    int y = x - k;
+                    while (x < n && y < m && equality.test(aHi - 1 - x, bHi - 1 - y)) {
+                        x++;
+                        y++;
+                    }
+                    backward[kOffset] = x;
+                    if (x > n) {
+                        backwardEnd += 2;
+                    } else if (y > m) {
+                        backwardStart += 2;
+                    } else if (!odd) {
+                        int forwardOffset = offset + delta - k;
+                        if (forwardOffset >= 0 && forwardOffset < length && forward[forwardOffset] != -1) {
+                            int forwardX = forward[forwardOffset];
+                            if (forwardX >= n - x) {
+                                return pack(aLo + forwardX, bLo + forwardX - (forwardOffset - offset));
+                            }
+                        }
+                    }
+                }
+            }
+
+            if (maxD < editLimit) {
+                return -1;
+            }
+
+            // too expensive: split where the forward paths got furthest
+            int bestX = 0;
+            int bestY = 0;
+            for (int k = -maxD + 1; k <= maxD - 1; k++) {
+                int x = forward[offset + k];
+                int y = x - k;
+                if (x >= 0 && x <= n && y >= 0 && y <= m && x + y > bestX + bestY && (x < n || y < m)) {
+                    bestX = x;
+                    bestY = y;
+                }
+            }
+            return bestX + bestY > 0 ? pack(aLo + bestX, bLo + bestY) : -1;
+        }
+
+        /**
+         * pack a point into a long
+         *
+         * @param x index in the first sequence
+         * @param y index in the second sequence
+         * @return packed point
+         */
+        private static long pack(int x, int y) {
+            return (long) x << 32 | (y & 0xffffffffL);
+        }
+    }
+
+    /**
+     * lines with tokens of an output (lines without tokens are skipped, since
+     * the judge ignores them)
+     *
+     * only the start, the line number and the hash of each line are kept, and
+     * the rest is read from the bytes when shown
+     */
+    private static class Lines {
+
+        /**
+         * bytes of the output
+         */
+        final ByteBuffer bytes;
+
+        /**
+         * number of lines
+         */
+        final int count;
+
+        /**
+         * start of the first token of each line
+         */
+        final int[] starts;
+
+        /**
+         * line number of each line in the output
+         */
+        final int[] numbers;
+
+        /**
+         * hash of tokens of each line
+         */
+        final long[] hashes;
+
+        /**
+         * constructor
+         *
+         * @param bytes bytes of the output (from 0 to limit)
+         */
+        Lines(ByteBuffer bytes) {
+            this.bytes = bytes;
+            int size = bytes.limit();
+
+            // line breaks bound the number of lines, so arrays are never resized
+            int capacity = 1;
+            for (int at = 0; at < size; at++) {
+                if (bytes.get(at) == '\n') {
+                    capacity++;
+                }
+            }
+            starts = new int[capacity];
+            numbers = new int[capacity];
+            hashes = new long[capacity];
+
+            int lines = 0;
+            int number = 1;
+            int at = 0;
+            while (at < size) {
+                int start = -1;
+                int end = -1;
+                long hash = 0xcbf29ce484222325L;
+                int b;
+                while (at < size && (b = bytes.get(at)) != '\n') {
+                    if (!TokenReader.isWhitespace(b)) {
+                        if (start < 0) {
+                            start = at;
+                        } else if (end < at) {
+                            // whitespace between tokens counts as a single space
+                            hash = (hash ^ ' ') * 0x100000001b3L;
+                        }
+                        hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+                        end = at + 1;
+                    }
+                    at++;
+                }
+                if (start >= 0) {
+                    starts[lines] = start;
+                    numbers[lines] = number;
+                    hashes[lines] = hash;
+                    lines++;
+                }
+                at++;
+                number++;
+            }
+            count = lines;
+        }
+
+        /**
+         * find the end of a line
+         *
+         * @param line index of the line
+         * @return end of the last token of the line
+         */
+        int end(int line) {
+            int end = starts[line];
+            for (int at = starts[line]; at < bytes.limit() && bytes.get(at) != '\n'; at++) {
+                if (!TokenReader.isWhitespace(bytes.get(at))) {
+                    end = at + 1;
+                }
+            }
+            return end;
+        }
+
+        /**
+         * describe a range of lines by their line numbers
+         *
+         * @param start first line
+         * @param end   end of the lines
+         * @return description like "lines 3-5", or "none" if empty
+         */
+        String describeRange(int start, int end) {
+            if (start >= end) {
+                return "none";
+            }
+            if (end - start == 1) {
+                return "line " + numbers[start];
+            }
+            return "lines " + numbers[start] + "-" + numbers[end - 1];
+        }
+
+        /**
+         * render a line with whitespace between tokens replaced by a space
+         *
+         * @param line index of the line
+         * @return rendered line (shortened if too long)
+         */
+        String render(int line) {
+            byte[] buffer = new byte[MAX_LINE_LENGTH + 1];
+            int length = 0;
+            boolean space = false;
+            int end = end(line);
+            for (int at = starts[line]; at < end && length < buffer.length; at++) {
+                byte b = bytes.get(at);
+                if (TokenReader.isWhitespace(b)) {
+                    space = true;
+                    continue;
+                }
+                if (space) {
+                    buffer[length++] = ' ';
+                    space = false;
+                }
+                if (length < buffer.length) {
+                    buffer[length++] = b;
+                }
+            }
+            return shorten(new String(buffer, 0, length, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * tokens of a line
+     */
+    private static class Tokens {
+
+        private final ByteBuffer bytes;
+
+        /**
+         * number of tokens
+         */
+        final int count;
+
+        private final int[] starts;
+        private final int[] ends;
+
+        /**
+         * constructor
+         *
+         * @param lines lines of an output
+         * @param line  index of the line
+         */
+        Tokens(Lines lines, int line) {
+            this.bytes = lines.bytes;
+            int start = lines.starts[line];
+            int end = lines.end(line);
+
+            // the line starts and ends with tokens, so each run of whitespace separates two
+            int tokens = 1;
+            for (int at = start + 1; at < end; at++) {
+                if (TokenReader.isWhitespace(bytes.get(at)) && !TokenReader.isWhitespace(bytes.get(at - 1))) {
+                    tokens++;
+                }
+            }
+            this.count = tokens;
+            this.starts = new int[count];
+            this.ends = new int[count];
+            int at = start;
+            for (int i = 0; i < count; i++) {
+                while (TokenReader.isWhitespace(bytes.get(at))) {
+                    at++;
+                }
+                starts[i] = at;
+                while (at < end && !TokenReader.isWhitespace(bytes.get(at))) {
+                    at++;
+                }
+                ends[i] = at;
+            }
+        }
+
+        /**
+         * compare a token with a token of another line
+         *
+         * @param i     index of the token
+         * @param other tokens of another line
+         * @param j     index of the token of the other line
+         * @return true if equal
+         */
+        boolean matches(int i, Tokens other, int j) {
+            int length = ends[i] - starts[i];
+            if (length != other.ends[j] - other.starts[j]) {
+                return false;
+            }
+            for (int k = 0; k < length; k++) {
+                if (bytes.get(starts[i] + k) != other.bytes.get(other.starts[j] + k)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * join tokens with spaces
+         *
+         * @param from first token
+         * @param to   end of the tokens
+         * @return joined tokens (shortened if too long)
+         */
+        String join(int from, int to) {
+            StringBuilder text = new StringBuilder();
+            for (int i = from; i < to && text.length() <= MAX_LINE_LENGTH; i++) {
+                if (i > from) {
+                    text.append(' ');
+                }
+                byte[] token = new byte[Math.min(ends[i] - starts[i], MAX_LINE_LENGTH + 1)];
+                bytes.get(starts[i], token);
+                text.append(new String(token, StandardCharsets.UTF_8));
+            }
+            return shorten(text.toString());
+        }
+    }
+}
@@ -0,0 +1,252 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongFunction;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedClassLoader;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * profiler of test cases with JDK Flight Recorder
+ *
+ * a recording receives events of the whole JVM, so execution and allocation
+ * samples are filtered by the thread running the test case, and by stack
+ * traces through classes of Main (defined by BytecodeClassLoader) to leave
+ * out the harness. GC pauses can't
+ * be attributed to a thread, so they include pauses caused by test cases
+ * running concurrently with --parallel.
+ */
+public class Profiler {
+
+    /**
+     * interval of execution samples
+     */
+    private static final Duration SAMPLING_PERIOD = Duration.ofMillis(1);
+
+    /**
+     * maximum rate of allocation samples (each sample is weighted by bytes
+     * allocated since the previous one)
+     */
+    private static final String ALLOCATION_THROTTLE = "1000/s";
+
+    private final Path folder;
+    private final int top;
+
+    /**
+     * constructor
+     *
+     * @param folder folder to keep recordings in
+     * @param top    number of hot methods and allocation sites to show
+     */
+    public Profiler(Path folder, int top) {
+        this.folder = folder;
+        this.top = top;
+    }
+
+    /**
+     * start recording a test case executed on the calling thread
+     *
+     * @param fileName file name of the test case
+     * @return session to stop the recording with
+     * @throws IOException if failed to create the folder
+     */
+    public Session start(String fileName) throws IOException {
+        Files.createDirectories(folder);
+        Recording recording = new Recording();
+        recording.setName(fileName);
+        recording.enable("jdk.ExecutionSample").withPeriod(SAMPLING_PERIOD);
+        recording.enable("jdk.ObjectAllocationSample").with("throttle", ALLOCATION_THROTTLE).withStackTrace();
+        recording.enable("jdk.GarbageCollection");
+        recording.start();
+        return new Session(recording, Thread.currentThread().getId(), folder.resolve(fileName + ".jfr"));
+    }
+
+    /**
+     * recording of a test case
+     */
+    public class Session {
+
+        private final Recording recording;
+        private final long threadId;
+        private final Path recordingFilePath;
+        private boolean stopped = false;
+        private IOException failure = null;
+
+        /**
+         * constructor
+         *
+         * @param recording         started recording
+         * @param threadId          ID of the thread running the test case
+         * @param recordingFilePath file to save the recording into
+         */
+        private Session(Recording recording, long threadId, Path recordingFilePath) {
+            this.recording = recording;
+            this.threadId = threadId;
+            this.recordingFilePath = recordingFilePath;
+        }
+
+        /**
+         * stop the recording and save it (only the first call does, since a test
+         * case exceeding a limit is stopped by the watchdog)
+         *
+         * failure to save the recording is thrown by {@link #summarize()}
+         */
+        public synchronized void stop() {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+            try {
+                recording.stop();
+                recording.dump(recordingFilePath);
+            } catch (IOException e) {
+                failure = e;
+            } finally {
+                recording.close();
+            }
+        }
+
+        /**
+         * summarize the saved recording
+         *
+         * @return lines of hot methods, allocation sites, GC pauses and the
+         *         recording file, each starting with a line separator
+         * @throws IOException if failed to save or read the recording
+         */
+        public synchronized String summarize() throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+            Map<String, Long> samples = new HashMap<>();
+            Map<String, Long> allocations = new HashMap<>();
+            long sampleCount = 0;
+            long allocatedBytes = 0;
+            int gcCount = 0;
+            Duration gcPause = Duration.ZERO;
+            Duration longestPause = Duration.ZERO;
+
+            try (RecordingFile file = new RecordingFile(recordingFilePath)) {
+                while (file.hasMoreEvents()) {
+                    RecordedEvent event = file.readEvent();
+                    switch (event.getEventType().getName()) {
+                        case "jdk.ExecutionSample":
+                            if (isOnThread(event.getThread("sampledThread"))
+                                    && findMainFrame(event.getStackTrace()) != null) {
+                                // self time of the method on the top of the stack
+                                samples.merge(describe(event.getStackTrace().getFrames().get(0), false), 1L,
+                                        Long::sum);
+                                sampleCount++;
+                            }
+                            break;
+                        case "jdk.ObjectAllocationSample":
+                            RecordedFrame site = findMainFrame(event.getStackTrace());
+                            if (isOnThread(event.getThread()) && site != null) {
+                                // the top of the stack is usually in the JDK (ArrayList.grow, etc.)
+                                long weight = event.getLong("weight");
+                                allocations.merge(describe(site, true) + " " + event.getClass("objectClass").getName(),
+                                        weight, Long::sum);
+                                allocatedBytes += weight;
+                            }
+                            break;
+                        case "jdk.GarbageCollection":
+                            gcCount++;
+                            gcPause = gcPause.plus(event.getDuration("sumOfPauses"));
+                            Duration pause = event.getDuration("longestPause");
+                            if (pause.compareTo(longestPause) > 0) {
+                                longestPause = pause;
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+
+            StringBuilder text = new StringBuilder();
+            long totalSamples = sampleCount;
+            text.append(String.format("%n  hot methods (%d samples): ", totalSamples));
+            appendTop(text, samples, count -> String.format("%.1f%%", count * 100.0 / totalSamples));
+            text.append(String.format("%n  allocation sites (%.1f MB sampled): ", allocatedBytes / 1e6));
+            appendTop(text, allocations, bytes -> String.format("%.1f MB", bytes / 1e6));
+            text.append(String.format("%n  gc pauses of JVM: %d (total = %s, longest = %s)", gcCount,
+                    TimingStatistics.toMillisText(gcPause.toNanos()),
+                    TimingStatistics.toMillisText(longestPause.toNanos())));
+            text.append(String.format("%n  recording: %s", recordingFilePath));
+            return text.toString();
+        }
+
+        /**
+         * check if an event happened on the thread of the test case
+         *
+         * @param thread thread of the event
+         * @return true if on the thread
+         */
+        private boolean isOnThread(RecordedThread thread) {
+            return thread != null && thread.getJavaThreadId() == threadId;
+        }
+
+        /**
+         * append entries with the largest values
+         *
+         * @param text   text to append to
+         * @param values values by entry
+         * @param format formatter of values
+         */
+        private void appendTop(StringBuilder text, Map<String, Long> values, LongFunction<String> format) {
+            if (values.isEmpty()) {
+                text.append("none");
+                return;
+            }
+            List<Map.Entry<String, Long>> entries = new ArrayList<>(values.entrySet());
+            entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+            for (int i = 0; i < Math.min(top, entries.size()); i++) {
+                if (i > 0) {
+                    text.append(", ");
+                }
+                text.append(entries.get(i).getKey()).append(' ').append(format.apply(entries.get(i).getValue()));
+            }
+        }
+    }
+
+    /**
+     * find the innermost frame in classes of Main
+     *
+     * @param stackTrace stack trace of an event (may be null)
+     * @return the frame, or null if the event is not caused by Main
+     */
+    private static RecordedFrame findMainFrame(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return null;
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            RecordedClassLoader classLoader = frame.getMethod().getType().getClassLoader();
+            if (classLoader != null && classLoader.getType() != null
+                    && classLoader.getType().getName().equals(BytecodeClassLoader.class.getName())) {
+                return frame;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * describe a frame
+     *
+     * @param frame    frame to describe
+     * @param withLine whether to append the line number
+     * @return method name with class name like "Main.main:12"
+     */
+    private static String describe(RecordedFrame frame, boolean withLine) {
+        String method = frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+        return withLine && frame.getLineNumber() > 0 ? method + ":" + frame.getLineNumber() : method;
+    }
+}
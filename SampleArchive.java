@@ -0,0 +1,489 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * archive of samples of many tasks kept in an append-only binary file, with
+ * an index of records by task
+ *
+ * a record holds metadata and samples of a task, prefixed by its length so
+ * records can be skipped without parsing them. a task archived again is
+ * appended as a new record, which replaces the old one in the index. the
+ * index is rebuilt by scanning the records if it doesn't match the size of
+ * the archive (a truncated record at the end written by an interrupted import
+ * is ignored). a record is read by mapping only its range of the file, and its
+ * samples are views of the mapping, so nothing is extracted into files.
+ */
+public class SampleArchive {
+
+    /**
+     * magic number at the head of each record ("SMPL")
+     */
+    private static final int RECORD_MAGIC = 0x534d504c;
+
+    /**
+     * magic number at the head of the index file ("SIDX")
+     */
+    private static final int INDEX_MAGIC = 0x53494458;
+
+    /**
+     * bytes of the magic number and the length before the body of a record
+     */
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES * 2;
+
+    private final Path archiveFilePath;
+    private final Path indexFilePath;
+
+    /**
+     * constructor
+     *
+     * @param archiveFilePath file to keep records in
+     * @param indexFilePath   file to keep the index in
+     */
+    public SampleArchive(Path archiveFilePath, Path indexFilePath) {
+        this.archiveFilePath = archiveFilePath;
+        this.indexFilePath = indexFilePath;
+    }
+
+    /**
+     * get archived tasks
+     *
+     * @return offsets of records by task name like "abc300_a" (empty if no
+     *         archive)
+     * @throws IOException if failed to read the archive
+     */
+    public Map<String, Long> getTasks() throws IOException {
+        if (!Files.exists(archiveFilePath)) {
+            return Collections.emptyMap();
+        }
+        try (FileChannel channel = FileChannel.open(archiveFilePath, StandardOpenOption.READ)) {
+            return Collections.unmodifiableMap(loadIndex(channel));
+        }
+    }
+
+    /**
+     * read samples of a task
+     *
+     * @param task task name like "abc300_a"
+     * @return archived entry, or null if the task is not archived
+     * @throws IOException if failed to read the archive or it is corrupted
+     */
+    public Entry get(String task) throws IOException {
+        if (!Files.exists(archiveFilePath)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(archiveFilePath, StandardOpenOption.READ)) {
+            Long offset = loadIndex(channel).get(task);
+            if (offset == null) {
+                return null;
+            }
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+            channel.read(header, offset);
+            int length = header.flip().getInt(Integer.BYTES);
+
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer body = channel.map(FileChannel.MapMode.READ_ONLY, offset + RECORD_HEADER_BYTES, length);
+            try {
+                return Entry.read(body);
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new IOException("Corrupted record of " + task + " in \"" + archiveFilePath + "\"");
+            }
+        }
+    }
+
+    /**
+     * append entries to the archive and update the index
+     *
+     * @param entries entries to append
+     * @throws IOException if failed to write the archive or the index
+     */
+    public void append(List<Entry> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (Entry entry : entries) {
+                entry.write(out);
+            }
+        }
+        Files.createDirectories(archiveFilePath.toAbsolutePath().getParent());
+        try (FileChannel channel = FileChannel.open(archiveFilePath, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Map<String, Long> index = loadIndex(channel);
+
+            // overwrite a truncated record at the end, so records keep being scanned to the end
+            long offset = index.isEmpty() ? 0 : findEnd(channel, index);
+            channel.truncate(offset);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, offset + buffer.position());
+            }
+            channel.force(false);
+
+            // offsets of appended records follow the same layout as written
+            for (Entry entry : entries) {
+                index.put(entry.metadata.task, offset);
+                offset += RECORD_HEADER_BYTES + entry.getBodyLength();
+            }
+            saveIndex(index, channel.size());
+        }
+    }
+
+    /**
+     * load the index, or rebuild it if it doesn't match the archive
+     *
+     * @param channel channel of the archive
+     * @return offsets of records by task name
+     * @throws IOException if failed to read the archive
+     */
+    private Map<String, Long> loadIndex(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (Files.exists(indexFilePath)) {
+            ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(indexFilePath));
+            try {
+                if (index.getInt() == INDEX_MAGIC && index.getLong() == size) {
+                    Map<String, Long> offsets = new TreeMap<>();
+                    int count = index.getInt();
+                    for (int i = 0; i < count; i++) {
+                        String task = readString(index);
+                        offsets.put(task, index.getLong());
+                    }
+                    return offsets;
+                }
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                // rebuilt below
+            }
+        }
+        Map<String, Long> offsets = scan(channel);
+        if (size > 0) {
+            saveIndex(offsets, size);
+        }
+        return offsets;
+    }
+
+    /**
+     * scan records of the archive
+     *
+     * @param channel channel of the archive
+     * @return offsets of complete records by task name (later records replace
+     *         earlier ones)
+     * @throws IOException if failed to read the archive
+     */
+    private static Map<String, Long> scan(FileChannel channel) throws IOException {
+        Map<String, Long> offsets = new TreeMap<>();
+        long size = channel.size();
+        long offset = 0;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES + Integer.BYTES);
+        while (offset + header.capacity() <= size) {
+            header.clear();
+            channel.read(header, offset);
+            header.flip();
+            int length = header.getInt(Integer.BYTES);
+            if (header.getInt(0) != RECORD_MAGIC || length < Integer.BYTES
+                    || offset + RECORD_HEADER_BYTES + length > size) {
+                break;
+            }
+            // the task name is at the head of the body
+            int taskLength = header.getInt(RECORD_HEADER_BYTES);
+            if (taskLength < 0 || taskLength > length - Integer.BYTES) {
+                break;
+            }
+            ByteBuffer task = ByteBuffer.allocate(taskLength);
+            channel.read(task, offset + header.capacity());
+            offsets.put(new String(task.array(), StandardCharsets.UTF_8), offset);
+            offset += RECORD_HEADER_BYTES + length;
+        }
+        return offsets;
+    }
+
+    /**
+     * find the end of the last complete record
+     *
+     * @param channel channel of the archive
+     * @param index   offsets of records by task name
+     * @return offset after the last record
+     * @throws IOException if failed to read the archive
+     */
+    private static long findEnd(FileChannel channel, Map<String, Long> index) throws IOException {
+        long last = Collections.max(index.values());
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        channel.read(header, last);
+        return last + RECORD_HEADER_BYTES + header.flip().getInt(Integer.BYTES);
+    }
+
+    /**
+     * save the index into a temporary file and move it over the old one, so
+     * an interrupted save never leaves a broken index
+     *
+     * @param offsets     offsets of records by task name
+     * @param archiveSize size of the archive the index belongs to
+     * @throws IOException if failed to write the index
+     */
+    private void saveIndex(Map<String, Long> offsets, long archiveSize) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeLong(archiveSize);
+            out.writeInt(offsets.size());
+            for (Map.Entry<String, Long> entry : offsets.entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+        }
+        Path temporary = indexFilePath.resolveSibling(indexFilePath.getFileName() + ".tmp");
+        Files.write(temporary, bytes.toByteArray());
+        Files.move(temporary, indexFilePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * write a string as its length and UTF-8 bytes
+     *
+     * @param out stream to write to
+     * @param s   string to write
+     * @throws IOException if failed to write
+     */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * read a string written by {@link #writeString(DataOutputStream, String)}
+     *
+     * @param buffer buffer to read from
+     * @return read string
+     * @throws BufferUnderflowException if the buffer ends
+     * @throws IllegalArgumentException if the length is invalid
+     */
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[readLength(buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * read length of following bytes
+     *
+     * @param buffer buffer to read from
+     * @return length
+     * @throws BufferUnderflowException if the buffer ends
+     * @throws IllegalArgumentException if the length is negative or exceeds
+     *                                  the rest of the buffer
+     */
+    private static int readLength(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid length " + length);
+        }
+        return length;
+    }
+
+    /**
+     * samples and metadata of a task
+     */
+    public static class Entry {
+
+        /**
+         * metadata of the task (task is the key of the index)
+         */
+        public final TaskMetadata metadata;
+
+        /**
+         * samples of the task
+         */
+        public final List<Sample> samples;
+
+        /**
+         * constructor
+         *
+         * @param metadata metadata of the task
+         * @param samples  samples of the task
+         */
+        public Entry(TaskMetadata metadata, List<Sample> samples) {
+            this.metadata = metadata;
+            this.samples = samples;
+        }
+
+        /**
+         * read the body of a record
+         *
+         * @param body body of the record
+         * @return read entry whose samples are views of the body
+         * @throws BufferUnderflowException if the body ends
+         * @throws IllegalArgumentException if a length is invalid
+         */
+        private static Entry read(ByteBuffer body) {
+            String task = readString(body);
+            String contest = readString(body);
+            long timeLimitMillis = body.getLong();
+            int memoryLimitMegabytes = body.getInt();
+            long maxSize = body.getLong();
+            int count = body.getInt();
+            List<Sample> samples = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                ByteBuffer input = readBytes(body);
+                ByteBuffer answer = readBytes(body);
+                samples.add(new Sample(input, answer));
+            }
+            return new Entry(new TaskMetadata(contest, task, timeLimitMillis, memoryLimitMegabytes, maxSize),
+                    samples);
+        }
+
+        /**
+         * read bytes written with their length as a view
+         *
+         * @param buffer buffer to read from
+         * @return read-only view of the bytes
+         * @throws BufferUnderflowException if the buffer ends
+         * @throws IllegalArgumentException if the length is invalid
+         */
+        private static ByteBuffer readBytes(ByteBuffer buffer) {
+            int length = readLength(buffer);
+            ByteBuffer bytes = buffer.slice(buffer.position(), length).asReadOnlyBuffer();
+            buffer.position(buffer.position() + length);
+            return bytes;
+        }
+
+        /**
+         * write the entry as a record
+         *
+         * @param out stream to write to
+         * @throws IOException if failed to write
+         */
+        private void write(DataOutputStream out) throws IOException {
+            out.writeInt(RECORD_MAGIC);
+            out.writeInt(getBodyLength());
+            writeString(out, metadata.task);
+            writeString(out, metadata.contest != null ? metadata.contest : "");
+            out.writeLong(metadata.timeLimitMillis);
+            out.writeInt(metadata.memoryLimitMegabytes);
+            out.writeLong(metadata.maxSize);
+            out.writeInt(samples.size());
+            for (Sample sample : samples) {
+                writeBytes(out, sample.input);
+                writeBytes(out, sample.answer);
+            }
+        }
+
+        /**
+         * calculate length of the body of the record
+         *
+         * @return bytes after the magic number and the length
+         */
+        private int getBodyLength() {
+            long length = Integer.BYTES + metadata.task.getBytes(StandardCharsets.UTF_8).length + Integer.BYTES
+                    + (metadata.contest != null ? metadata.contest.getBytes(StandardCharsets.UTF_8).length : 0)
+                    + Long.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES;
+            for (Sample sample : samples) {
+                length += Integer.BYTES + sample.input.remaining() + Integer.BYTES + sample.answer.remaining();
+            }
+            return Math.toIntExact(length);
+        }
+
+        /**
+         * write bytes with their length
+         *
+         * @param out    stream to write to
+         * @param buffer bytes between position and limit are written
+         * @throws IOException if failed to write
+         */
+        private static void writeBytes(DataOutputStream out, ByteBuffer buffer) throws IOException {
+            ByteBuffer bytes = buffer.duplicate();
+            out.writeInt(bytes.remaining());
+            while (bytes.hasRemaining()) {
+                out.write(bytes.get());
+            }
+        }
+    }
+
+    /**
+     * input and expected output of a sample
+     */
+    public static class Sample {
+
+        /**
+         * input data (read-only, a view of the archive if read from it)
+         */
+        public final ByteBuffer input;
+
+        /**
+         * expected output
+         */
+        public final ByteBuffer answer;
+
+        /**
+         * constructor
+         *
+         * @param input  input data
+         * @param answer expected output
+         */
+        public Sample(ByteBuffer input, ByteBuffer answer) {
+            this.input = input;
+            this.answer = answer;
+        }
+
+        /**
+         * open the input as a stream without copying it
+         *
+         * @return stream reading the input
+         */
+        public InputStream openInput() {
+            return new BufferInputStream(input.duplicate());
+        }
+    }
+
+    /**
+     * stream reading bytes of a buffer
+     */
+    private static class BufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        /**
+         * constructor
+         *
+         * @param buffer bytes between position and limit are read (the position
+         *               is moved)
+         */
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
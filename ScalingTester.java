@@ -0,0 +1,443 @@
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * scaling tester which runs Main on inputs of growing sizes, fits the timings
+ * to complexity models and predicts the time at the maximum size
+ *
+ * the generator is the same as the stress test (called with a seed and a
+ * size). sizes double up to the maximum size, and each size is repeated with
+ * different seeds. Main shares its classes between runs, so smaller sizes warm
+ * up JIT compiler, and CPU time of Main is measured, since wall-clock time
+ * includes compiler threads on few cores. each model is fitted to the largest
+ * sizes as a + c * f(n) by least squares of relative errors.
+ */
+public class ScalingTester {
+
+    /**
+     * complexity models to fit
+     */
+    private static final List<Model> MODELS = List.of(
+            new Model("O(log n)", n -> Math.log(n)),
+            new Model("O(sqrt n)", n -> Math.sqrt(n)),
+            new Model("O(n)", n -> n),
+            new Model("O(n log n)", n -> n * Math.log(n)),
+            new Model("O(n sqrt n)", n -> n * Math.sqrt(n)),
+            new Model("O(n^2)", n -> n * n),
+            new Model("O(n^2 log n)", n -> n * n * Math.log(n)),
+            new Model("O(n^3)", n -> n * n * n));
+
+    /**
+     * ratio of predicted time to the time limit regarded as close to it (the
+     * judge runs Main on a cold JVM, which is slower than warmed up runs)
+     */
+    private static final double CLOSE_RATIO = 0.5;
+
+    /**
+     * timings shorter than this are mostly noise, so they are not fitted if
+     * enough longer timings are measured
+     */
+    private static final long MIN_FIT_NANOS = 1_000_000;
+
+    /**
+     * least number of sizes to fit models
+     */
+    private static final int MIN_FIT_SIZES = 3;
+
+    /**
+     * number of the largest sizes to fit models to (smaller sizes are
+     * dominated by overhead rather than the complexity)
+     */
+    private static final int MAX_FIT_SIZES = 5;
+
+    /**
+     * number of times the smallest size is halved from the maximum size
+     */
+    private static final int SIZE_STEPS = 10;
+
+    private final InProcessRunner runner;
+    private final InProcessRunner.Program main;
+    private final Executor service;
+    private final InProcessRunner.Program generator;
+
+    /**
+     * constructor
+     *
+     * @param runner    runner of programs
+     * @param main      Main::main to test
+     * @param service   thread pool running programs (the pool of the runner)
+     * @param generator generator of inputs
+     */
+    public ScalingTester(InProcessRunner runner, InProcessRunner.Program main, Executor service,
+            InProcessRunner.Program generator) {
+        this.runner = runner;
+        this.main = main;
+        this.service = service;
+        this.generator = generator;
+    }
+
+    /**
+     * run Main on doubling sizes up to the maximum size (stops at a size whose
+     * median exceeds the time limit, or where Main fails to finish), then fit
+     * the timings
+     *
+     * @param maxSize        maximum size of the task
+     * @param repeats        number of runs of each size
+     * @param timeLimitNanos time limit of the task
+     * @return report of the test
+     */
+    public Report run(int maxSize, int repeats, long timeLimitNanos) {
+        List<Point> points = new ArrayList<>();
+        for (int size : createSizes(maxSize)) {
+            long[] samples = new long[repeats];
+            for (int i = 0; i < repeats; i++) {
+                String[] args = { Integer.toString(i + 1), Integer.toString(size) };
+                OutputBuffer input = new OutputBuffer();
+                long[] elapsedNanos = new long[1];
+                String result = execute((out, onExceeded) -> runner.run(generator, args,
+                        InputStream.nullInputStream(), out, false, onExceeded), input, elapsedNanos);
+                if (result != null) {
+                    return new Report(maxSize, timeLimitNanos, points,
+                            "stopped by generator " + result + " (seed = " + args[0] + ", size = " + size + ")");
+                }
+                result = execute((out, onExceeded) -> runner.run(main, new String[0], input.toInputStream(), out,
+                        false, onExceeded), new OutputBuffer(), elapsedNanos);
+                if (result != null) {
+                    return new Report(maxSize, timeLimitNanos, points,
+                            result + " at N = " + size + " (seed = " + args[0] + ")");
+                }
+                samples[i] = elapsedNanos[0];
+            }
+            Point point = new Point(size, new TimingStatistics(samples).median);
+            points.add(point);
+            if (point.nanos > timeLimitNanos) {
+                // larger sizes would only take longer
+                break;
+            }
+        }
+        return new Report(maxSize, timeLimitNanos, points, null);
+    }
+
+    /**
+     * create sizes halving the maximum size
+     *
+     * @param maxSize maximum size
+     * @return sizes in ascending order
+     */
+    private static List<Integer> createSizes(int maxSize) {
+        List<Integer> sizes = new ArrayList<>();
+        for (int step = SIZE_STEPS; step >= 0; step--) {
+            int size = maxSize >> step;
+            if (size > 0 && !sizes.contains(size)) {
+                sizes.add(size);
+            }
+        }
+        return sizes;
+    }
+
+    /**
+     * run a program on a thread of the pool and wait for it
+     *
+     * @param execution    how to run the program
+     * @param output       buffer to capture stdout of the program into
+     * @param elapsedNanos array to put CPU time of the run into
+     * @return null if the program finished normally, otherwise result
+     */
+    private String execute(Execution execution, OutputBuffer output, long[] elapsedNanos) {
+        CompletableFuture<String> done = new CompletableFuture<>();
+        service.execute(() -> {
+            try (PrintStream out = new PrintStream(output)) {
+                Watchdog.Watch watch = execution.run(out, exceeded -> done.complete(describe(exceeded))).watch;
+                elapsedNanos[0] = watch.getCpuNanos();
+                done.complete(watch.getState() == Watchdog.Watch.FINISHED ? null : describe(watch));
+            } catch (OutOfMemoryError e) {
+                done.complete("memory limit exceeded (out of memory)");
+            } catch (Throwable e) {
+                // program given up by the watchdog may throw when interrupted
+                done.complete("runtime error: " + e);
+            }
+        });
+        return done.join();
+    }
+
+    /**
+     * describe a run which exceeded a limit
+     *
+     * @param watch watch of the run
+     * @return result
+     */
+    private static String describe(Watchdog.Watch watch) {
+        return watch.getState() == Watchdog.Watch.TIME_LIMIT_EXCEEDED ? "time limit exceeded"
+                : "execution stalled";
+    }
+
+    /**
+     * fit timings to a model
+     *
+     * @param model  model to fit
+     * @param points sizes and timings
+     * @return fitted model, or null if the timings don't grow along the model
+     */
+    static Fit fit(Model model, List<Point> points) {
+        // weighted least squares of a + c * f(n) with weights 1 / t^2
+        double sw = 0;
+        double sf = 0;
+        double st = 0;
+        double sff = 0;
+        double sft = 0;
+        for (Point point : points) {
+            double w = 1 / ((double) point.nanos * point.nanos);
+            double f = model.function.applyAsDouble(point.size);
+            sw += w;
+            sf += w * f;
+            st += w * point.nanos;
+            sff += w * f * f;
+            sft += w * f * point.nanos;
+        }
+        double c = (sw * sft - sf * st) / (sw * sff - sf * sf);
+        double a = (st - c * sf) / sw;
+        if (!(a >= 0)) {
+            // negative overhead is meaningless, so fit without it
+            a = 0;
+            c = sft / sff;
+        }
+        if (!(c > 0) || Double.isInfinite(c)) {
+            return null;
+        }
+
+        double squareSum = 0;
+        for (Point point : points) {
+            double relative = (a + c * model.function.applyAsDouble(point.size)) / point.nanos - 1;
+            squareSum += relative * relative;
+        }
+        return new Fit(model, a, c, Math.sqrt(squareSum / points.size()));
+    }
+
+    /**
+     * how to run a program on a thread of the pool
+     */
+    @FunctionalInterface
+    private interface Execution {
+
+        /**
+         * run the program on the calling thread
+         *
+         * @param out        stdout of the program
+         * @param onExceeded called with the watch if the program exceeds a limit
+         * @return result of the run
+         * @throws Exception thrown by the program
+         */
+        InProcessRunner.Run run(PrintStream out, Consumer<Watchdog.Watch> onExceeded) throws Exception;
+    }
+
+    /**
+     * complexity model
+     */
+    static class Model {
+
+        /**
+         * name like "O(n log n)"
+         */
+        final String name;
+
+        /**
+         * growth function of the size
+         */
+        final DoubleUnaryOperator function;
+
+        /**
+         * constructor
+         *
+         * @param name     name of the model
+         * @param function growth function of the size
+         */
+        Model(String name, DoubleUnaryOperator function) {
+            this.name = name;
+            this.function = function;
+        }
+    }
+
+    /**
+     * model fitted as a + c * f(n)
+     */
+    static class Fit {
+
+        /**
+         * fitted model
+         */
+        final Model model;
+
+        /**
+         * constant overhead in nanoseconds
+         */
+        final double overhead;
+
+        /**
+         * coefficient of the growth function
+         */
+        final double coefficient;
+
+        /**
+         * root mean square of relative errors
+         */
+        final double error;
+
+        /**
+         * constructor
+         *
+         * @param model       fitted model
+         * @param overhead    constant overhead
+         * @param coefficient coefficient of the growth function
+         * @param error       root mean square of relative errors
+         */
+        Fit(Model model, double overhead, double coefficient, double error) {
+            this.model = model;
+            this.overhead = overhead;
+            this.coefficient = coefficient;
+            this.error = error;
+        }
+
+        /**
+         * predict time of a size
+         *
+         * @param size size of the input
+         * @return predicted time in nanoseconds
+         */
+        double predict(int size) {
+            return overhead + coefficient * model.function.applyAsDouble(size);
+        }
+    }
+
+    /**
+     * median time of a size
+     */
+    static class Point {
+
+        /**
+         * size passed to the generator
+         */
+        final int size;
+
+        /**
+         * median of CPU time in nanoseconds
+         */
+        final long nanos;
+
+        /**
+         * constructor
+         *
+         * @param size  size passed to the generator
+         * @param nanos median of CPU time
+         */
+        Point(int size, long nanos) {
+            this.size = size;
+            this.nanos = nanos;
+        }
+    }
+
+    /**
+     * report of a scaling test
+     */
+    public static class Report {
+
+        /**
+         * maximum size of the task
+         */
+        public final int maxSize;
+
+        /**
+         * time limit of the task in nanoseconds
+         */
+        public final long timeLimitNanos;
+
+        /**
+         * why testing was stopped by Main or the generator (null if all sizes
+         * were measured or a median exceeded the time limit)
+         */
+        public final String error;
+
+        private final List<Point> points;
+        private final List<Fit> fits = new ArrayList<>();
+
+        /**
+         * constructor (models are fitted to the points)
+         *
+         * @param maxSize        maximum size of the task
+         * @param timeLimitNanos time limit of the task
+         * @param points         median times of measured sizes
+         * @param error          why testing was stopped
+         */
+        public Report(int maxSize, long timeLimitNanos, List<Point> points, String error) {
+            this.maxSize = maxSize;
+            this.timeLimitNanos = timeLimitNanos;
+            this.points = points;
+            this.error = error;
+
+            List<Point> fitted = new ArrayList<>();
+            for (Point point : points) {
+                if (point.nanos >= MIN_FIT_NANOS) {
+                    fitted.add(point);
+                }
+            }
+            if (fitted.size() < MIN_FIT_SIZES) {
+                fitted = points;
+            }
+            fitted = fitted.subList(Math.max(0, fitted.size() - MAX_FIT_SIZES), fitted.size());
+            if (fitted.size() >= MIN_FIT_SIZES) {
+                for (Model model : MODELS) {
+                    Fit fit = fit(model, fitted);
+                    if (fit != null) {
+                        fits.add(fit);
+                    }
+                }
+                fits.sort(Comparator.comparingDouble(fit -> fit.error));
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            Point last = points.isEmpty() ? null : points.get(points.size() - 1);
+            if (error != null) {
+                text.append(error);
+            } else if (last != null && last.nanos > timeLimitNanos) {
+                text.append(String.format("time limit exceeded at N = %d (median = %s)", last.size,
+                        TimingStatistics.toMillisText(last.nanos)));
+            } else if (fits.isEmpty()) {
+                text.append(String.format("no model fits (time doesn't grow with N, or less than %d sizes)",
+                        MIN_FIT_SIZES));
+            } else {
+                Fit best = fits.get(0);
+                double predicted = best.predict(maxSize);
+                double ratio = predicted / timeLimitNanos;
+                text.append(ratio >= 1 ? "likely time limit exceeded"
+                        : ratio >= CLOSE_RATIO ? "close to time limit" : "within time limit");
+                text.append(String.format(" (%s fits best with error = %.1f%%, predicted %s at N = %d, "
+                        + "%.0f%% of time limit)", best.model.name, best.error * 100,
+                        TimingStatistics.toMillisText(predicted), maxSize, ratio * 100));
+            }
+            for (Point point : points) {
+                text.append(String.format("%n  N = %d: median = %s", point.size,
+                        TimingStatistics.toMillisText(point.nanos)));
+            }
+            if (!fits.isEmpty()) {
+                text.append(String.format("%n  fits:"));
+                for (Fit fit : fits) {
+                    text.append(String.format(" %s %.1f%% (%s at N = %d)", fit.model.name, fit.error * 100,
+                            TimingStatistics.toMillisText(fit.predict(maxSize)), maxSize));
+                    if (fit != fits.get(fits.size() - 1)) {
+                        text.append(',');
+                    }
+                }
+            }
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,311 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+/**
+ * compiler of Main.java (and other user sources) on TestExecutor's JVM
+ *
+ * sources are compiled into memory, and the bytecode is cached in folders
+ * named by hash of the sources, so unchanged sources are never compiled
+ * again
+ */
+public class SourceCompiler {
+
+    /**
+     * number of compiled versions kept in the cache
+     */
+    private static final int MAX_CACHE_ENTRIES = 16;
+
+    private final Path cacheFolder;
+
+    /**
+     * constructor
+     *
+     * @param cacheFolder folder to cache bytecode in
+     */
+    public SourceCompiler(Path cacheFolder) {
+        this.cacheFolder = cacheFolder;
+    }
+
+    /**
+     * compile sources, or load their bytecode from the cache if compiled before
+     *
+     * @param sourceFilePaths source files to compile together
+     * @param parent          class loader of classes the sources refer to
+     * @return compiled classes
+     * @throws CompileException if the sources have errors
+     * @throws IOException      if failed to read the sources or the cache
+     */
+    public Compilation compile(List<Path> sourceFilePaths, ClassLoader parent)
+            throws CompileException, IOException {
+        Path classFolder = cacheFolder.resolve(hash(sourceFilePaths));
+        if (Files.isDirectory(classFolder)) {
+            // mark as recently used not to be evicted
+            Files.setLastModifiedTime(classFolder, FileTime.fromMillis(System.currentTimeMillis()));
+            return new Compilation(BytecodeClassLoader.load(classFolder, parent), classFolder, true);
+        }
+
+        Map<String, byte[]> classes = compileInMemory(sourceFilePaths);
+        save(classes, classFolder);
+        return new Compilation(new BytecodeClassLoader(classes, parent), classFolder, false);
+    }
+
+    /**
+     * compile sources into memory
+     *
+     * @param sourceFilePaths source files to compile together
+     * @return bytecode by binary name
+     * @throws CompileException if the sources have errors
+     * @throws IOException      if failed to read the sources
+     */
+    private static Map<String, byte[]> compileInMemory(List<Path> sourceFilePaths)
+            throws CompileException, IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new CompileException("Java compiler is not available (run TestExecutor with JDK, not JRE)");
+        }
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Map<String, byte[]> classes = new ConcurrentHashMap<>();
+        try (StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(diagnostics, null,
+                null); InMemoryFileManager fileManager = new InMemoryFileManager(standardFileManager, classes)) {
+            Iterable<? extends JavaFileObject> units = standardFileManager
+                    .getJavaFileObjectsFromPaths(sourceFilePaths);
+            boolean succeeded = compiler.getTask(null, fileManager, diagnostics, null, null, units).call();
+            if (!succeeded) {
+                throw new CompileException(diagnostics.getDiagnostics().stream()
+                        .filter(d -> d.getKind() == Diagnostic.Kind.ERROR).map(Object::toString)
+                        .collect(Collectors.joining(System.lineSeparator())));
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * save bytecode into the cache, and evict old entries
+     *
+     * @param classes     bytecode by binary name
+     * @param classFolder folder of the entry
+     * @throws IOException if failed to write the cache
+     */
+    private void save(Map<String, byte[]> classes, Path classFolder) throws IOException {
+        // write into a temporary folder first not to leave a broken entry
+        Files.createDirectories(cacheFolder);
+        Path temporaryFolder = Files.createTempDirectory(cacheFolder, "tmp");
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            Path file = temporaryFolder.resolve(entry.getKey().replace('.', '/') + ".class");
+            Files.createDirectories(file.getParent());
+            Files.write(file, entry.getValue());
+        }
+        try {
+            Files.move(temporaryFolder, classFolder, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // another TestExecutor has cached the same sources
+            deleteFileTree(temporaryFolder);
+            if (!Files.isDirectory(classFolder)) {
+                throw e;
+            }
+        }
+
+        List<Path> entries;
+        try (Stream<Path> folders = Files.list(cacheFolder)) {
+            entries = folders.filter(Files::isDirectory).collect(Collectors.toList());
+        }
+        if (entries.size() > MAX_CACHE_ENTRIES) {
+            List<Path> sorted = new ArrayList<>(entries);
+            sorted.sort(Comparator.comparing(SourceCompiler::lastModifiedTime).reversed());
+            for (Path entry : sorted.subList(MAX_CACHE_ENTRIES, sorted.size())) {
+                deleteFileTree(entry);
+            }
+        }
+    }
+
+    /**
+     * calculate hash of sources with version of Java compiling them
+     *
+     * @param sourceFilePaths source files
+     * @return hash in hexadecimal
+     * @throws IOException if failed to read the sources
+     */
+    private static String hash(List<Path> sourceFilePaths) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(Runtime.version().toString().getBytes(StandardCharsets.UTF_8));
+        List<Path> sorted = new ArrayList<>(sourceFilePaths);
+        sorted.sort(Comparator.comparing(path -> path.getFileName().toString()));
+        for (Path path : sorted) {
+            digest.update((byte) 0);
+            digest.update(path.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Files.readAllBytes(path));
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * get last modified time of a file
+     *
+     * @param path file
+     * @return last modified time (epoch if failed to get)
+     */
+    private static FileTime lastModifiedTime(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * delete all files and directories below baseDir
+     *
+     * @param baseDir root directory to delete
+     * @throws IOException if failed to delete
+     */
+    private static void deleteFileTree(Path baseDir) throws IOException {
+        Files.walkFileTree(baseDir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                if (exc != null) {
+                    throw exc;
+                }
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * file manager keeping class files in memory
+     */
+    private static class InMemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+        private final Map<String, byte[]> classes;
+
+        /**
+         * constructor
+         *
+         * @param fileManager file manager to read sources and libraries with
+         * @param classes     map to put bytecode into by binary name
+         */
+        public InMemoryFileManager(StandardJavaFileManager fileManager, Map<String, byte[]> classes) {
+            super(fileManager);
+            this.classes = classes;
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                FileObject sibling) throws IOException {
+            if (location != StandardLocation.CLASS_OUTPUT || kind != JavaFileObject.Kind.CLASS) {
+                return super.getJavaFileForOutput(location, className, kind, sibling);
+            }
+            return new SimpleJavaFileObject(URI.create("memory:///" + className.replace('.', '/') + ".class"),
+                    kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return new ByteArrayOutputStream() {
+                        @Override
+                        public void close() {
+                            classes.put(className, toByteArray());
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    /**
+     * compiled classes
+     */
+    public static class Compilation {
+
+        /**
+         * class loader of the compiled classes
+         */
+        public final BytecodeClassLoader classLoader;
+
+        /**
+         * folder of class files in the cache (for worker JVMs)
+         */
+        public final Path classFolder;
+
+        /**
+         * whether loaded from the cache without compiling
+         */
+        public final boolean cached;
+
+        /**
+         * constructor
+         *
+         * @param classLoader class loader of the compiled classes
+         * @param classFolder folder of class files in the cache
+         * @param cached      whether loaded from the cache
+         */
+        public Compilation(BytecodeClassLoader classLoader, Path classFolder, boolean cached) {
+            this.classLoader = classLoader;
+            this.classFolder = classFolder;
+            this.cached = cached;
+        }
+    }
+
+    /**
+     * sources have compile errors
+     */
+    public static class CompileException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * constructor
+         *
+         * @param message compile errors
+         */
+        public CompileException(String message) {
+            super(message);
+        }
+    }
+}
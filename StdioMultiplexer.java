@@ -0,0 +1,306 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * multiplexer of stdin and stdout which routes System.in/System.out calls to
+ * the streams bound to the calling thread
+ */
+public class StdioMultiplexer {
+
+    private final InputStream initialInput;
+    private final PrintStream initialOutput;
+
+    /**
+     * streams bound to each thread (threads started by Main inherit them)
+     */
+    private final InheritableThreadLocal<InputStream> inputs = new InheritableThreadLocal<>();
+    private final InheritableThreadLocal<PrintStream> outputs = new InheritableThreadLocal<>();
+
+    /**
+     * constructor (remember current stdin and stdout as fallback streams)
+     */
+    public StdioMultiplexer() {
+        this.initialInput = System.in;
+        this.initialOutput = System.out;
+    }
+
+    /**
+     * replace System.in and System.out with routing streams
+     */
+    public void install() {
+        System.setIn(new RoutingInputStream());
+        System.setOut(new RoutingPrintStream());
+    }
+
+    /**
+     * restore System.in and System.out which were set before construction
+     */
+    public void uninstall() {
+        System.setIn(initialInput);
+        System.setOut(initialOutput);
+    }
+
+    /**
+     * bind streams to the calling thread
+     *
+     * @param in  stream to read from as stdin
+     * @param out stream to write to as stdout
+     */
+    public void bind(InputStream in, PrintStream out) {
+        inputs.set(in);
+        outputs.set(out);
+    }
+
+    /**
+     * unbind streams from the calling thread
+     */
+    public void unbind() {
+        inputs.remove();
+        outputs.remove();
+    }
+
+    /**
+     * get stdin of the calling thread
+     *
+     * @return bound stream, or initial stdin if nothing is bound
+     */
+    private InputStream currentInput() {
+        InputStream in = inputs.get();
+        return in == null ? initialInput : in;
+    }
+
+    /**
+     * get stdout of the calling thread
+     *
+     * @return bound stream, or initial stdout if nothing is bound
+     */
+    private PrintStream currentOutput() {
+        PrintStream out = outputs.get();
+        return out == null ? initialOutput : out;
+    }
+
+    /**
+     * stdin delegating every call to the stream of the calling thread
+     */
+    private class RoutingInputStream extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            return currentInput().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return currentInput().read(b, off, len);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return currentInput().skip(n);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return currentInput().available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            // closing initial stdin would break following test cases
+            InputStream in = inputs.get();
+            if (in != null) {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * stdout delegating every call to the stream of the calling thread
+     *
+     * each call is delegated as a whole so threads don't contend for the lock
+     * of a shared PrintStream
+     */
+    private class RoutingPrintStream extends PrintStream {
+
+        /**
+         * constructor
+         */
+        public RoutingPrintStream() {
+            super(OutputStream.nullOutputStream());
+        }
+
+        @Override
+        public void write(int b) {
+            currentOutput().write(b);
+        }
+
+        @Override
+        public void write(byte[] buf, int off, int len) {
+            currentOutput().write(buf, off, len);
+        }
+
+        @Override
+        public void write(byte[] buf) throws IOException {
+            currentOutput().write(buf);
+        }
+
+        @Override
+        public void flush() {
+            currentOutput().flush();
+        }
+
+        @Override
+        public void close() {
+            // closing initial stdout would break following test cases
+            PrintStream out = outputs.get();
+            if (out != null) {
+                out.close();
+            }
+        }
+
+        @Override
+        public boolean checkError() {
+            return currentOutput().checkError();
+        }
+
+        @Override
+        public void print(boolean b) {
+            currentOutput().print(b);
+        }
+
+        @Override
+        public void print(char c) {
+            currentOutput().print(c);
+        }
+
+        @Override
+        public void print(int i) {
+            currentOutput().print(i);
+        }
+
+        @Override
+        public void print(long l) {
+            currentOutput().print(l);
+        }
+
+        @Override
+        public void print(float f) {
+            currentOutput().print(f);
+        }
+
+        @Override
+        public void print(double d) {
+            currentOutput().print(d);
+        }
+
+        @Override
+        public void print(char[] s) {
+            currentOutput().print(s);
+        }
+
+        @Override
+        public void print(String s) {
+            currentOutput().print(s);
+        }
+
+        @Override
+        public void print(Object obj) {
+            currentOutput().print(obj);
+        }
+
+        @Override
+        public void println() {
+            currentOutput().println();
+        }
+
+        @Override
+        public void println(boolean x) {
+            currentOutput().println(x);
+        }
+
+        @Override
+        public void println(char x) {
+            currentOutput().println(x);
+        }
+
+        @Override
+        public void println(int x) {
+            currentOutput().println(x);
+        }
+
+        @Override
+        public void println(long x) {
+            currentOutput().println(x);
+        }
+
+        @Override
+        public void println(float x) {
+            currentOutput().println(x);
+        }
+
+        @Override
+        public void println(double x) {
+            currentOutput().println(x);
+        }
+
+        @Override
+        public void println(char[] x) {
+            currentOutput().println(x);
+        }
+
+        @Override
+        public void println(String x) {
+            currentOutput().println(x);
+        }
+
+        @Override
+        public void println(Object x) {
+            currentOutput().println(x);
+        }
+
+        @Override
+        public PrintStream printf(String format, Object... args) {
+            currentOutput().printf(format, args);
+            return this;
+        }
+
+        @Override
+        public PrintStream printf(Locale l, String format, Object... args) {
+            currentOutput().printf(l, format, args);
+            return this;
+        }
+
+        @Override
+        public PrintStream format(String format, Object... args) {
+            currentOutput().format(format, args);
+            return this;
+        }
+
+        @Override
+        public PrintStream format(Locale l, String format, Object... args) {
+            currentOutput().format(l, format, args);
+            return this;
+        }
+
+        @Override
+        public PrintStream append(CharSequence csq) {
+            currentOutput().append(csq);
+            return this;
+        }
+
+        @Override
+        public PrintStream append(CharSequence csq, int start, int end) {
+            currentOutput().append(csq, start, end);
+            return this;
+        }
+
+        @Override
+        public PrintStream append(char c) {
+            currentOutput().append(c);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,365 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * stress tester which runs Main and a reference solution with random inputs
+ * and compares their outputs
+ *
+ * the generator is called with a seed and a size as command line arguments,
+ * and should print an input whose scale is about the size. each case runs
+ * generator, reference and Main in turn on a thread of the pool, so cases are
+ * pipelined on all threads without touching disk.
+ *
+ * each run defines its classes again, since cases running at once on other
+ * threads would otherwise share static fields (like a Scanner of stdin).
+ */
+public class StressTester {
+
+    /**
+     * number of cases tried for each size while shrinking a failing input
+     */
+    private static final int SHRINK_CASES = 200;
+
+    private final InProcessRunner runner;
+    private final BytecodeClassLoader classes;
+    private final Executor service;
+    private final Checker checker;
+    private final String generatorName;
+    private final String referenceName;
+
+    private long nextSeed = 1;
+    private final AtomicInteger executedCount = new AtomicInteger();
+    private final AtomicInteger failedCount = new AtomicInteger();
+    private final AtomicReference<Failure> smallest = new AtomicReference<>();
+    private final AtomicReference<String> error = new AtomicReference<>();
+    private volatile boolean stopped = false;
+
+    /**
+     * constructor
+     *
+     * @param runner        runner of programs
+     * @param classes       class loader of Main, the generator and the
+     *                      reference (renewed for each run)
+     * @param service       thread pool running cases (the pool of the runner)
+     * @param checker       checker to judge outputs of Main with
+     * @param generatorName class name of the generator of inputs
+     * @param referenceName class name of the reference solution which outputs
+     *                      expected outputs
+     */
+    public StressTester(InProcessRunner runner, BytecodeClassLoader classes, Executor service,
+            Checker checker, String generatorName, String referenceName) {
+        this.runner = runner;
+        this.classes = classes;
+        this.service = service;
+        this.checker = checker;
+        this.generatorName = generatorName;
+        this.referenceName = referenceName;
+    }
+
+    /**
+     * run random cases, then shrink the smallest failing input by halving the
+     * size
+     *
+     * testing stops without shrinking if Main exceeds a limit, since threads
+     * running it can't be stopped
+     *
+     * @param cases number of cases
+     * @param size  size passed to the generator
+     * @return report of the test
+     */
+    public Report run(int cases, int size) {
+        long start = System.nanoTime();
+        runBatch(cases, size);
+        long elapsedNanos = System.nanoTime() - start;
+        int executed = executedCount.get();
+        int failed = failedCount.get();
+
+        Failure failure = smallest.get();
+        if (failure != null) {
+            for (int shrunk = failure.size / 2; shrunk > 0 && !stopped && error.get() == null; shrunk /= 2) {
+                int failedBefore = failedCount.get();
+                runBatch(SHRINK_CASES, shrunk);
+                if (failedCount.get() == failedBefore) {
+                    // no failure found in this size
+                    break;
+                }
+            }
+        }
+        return new Report(executed, failed, elapsedNanos, smallest.get(), error.get());
+    }
+
+    /**
+     * run cases on the pool and wait for them
+     *
+     * @param cases number of cases
+     * @param size  size passed to the generator
+     */
+    private void runBatch(int cases, int size) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(cases);
+        for (int i = 0; i < cases; i++) {
+            long seed = nextSeed++;
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            service.execute(() -> {
+                try {
+                    if (!stopped && error.get() == null) {
+                        runCase(seed, size, done);
+                    }
+                } catch (Throwable e) {
+                    // case given up by the watchdog may throw when interrupted
+                    if (!done.isDone()) {
+                        error.compareAndSet(null, "failed to judge (seed = " + seed + "): " + e);
+                    }
+                } finally {
+                    done.complete(null);
+                }
+            });
+            futures.add(done);
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    /**
+     * run a case on the calling thread
+     *
+     * @param seed seed passed to the generator
+     * @param size size passed to the generator
+     * @param done completed when the case is judged (by the watchdog if
+     *             exceeded a limit)
+     * @throws Exception thrown by the checker
+     */
+    private void runCase(long seed, int size, CompletableFuture<Void> done) throws Exception {
+        String[] args = { Long.toString(seed), Integer.toString(size) };
+        OutputBuffer input = new OutputBuffer();
+        OutputBuffer answer = new OutputBuffer();
+        OutputBuffer output = new OutputBuffer();
+
+        String result = execute(generatorName, args, InputStream.nullInputStream(), input, exceeded -> {
+            abort("generator " + exceeded + " (seed = " + seed + ")", done);
+        });
+        if (result != null) {
+            abort("generator " + result + " (seed = " + seed + ")", done);
+            return;
+        }
+        result = execute(referenceName, new String[0], input.toInputStream(), answer, exceeded -> {
+            abort("reference " + exceeded + " (seed = " + seed + ")", done);
+        });
+        if (result != null) {
+            abort("reference " + result + " (seed = " + seed + ")", done);
+            return;
+        }
+        executedCount.incrementAndGet();
+
+        result = execute("Main", new String[0], input.toInputStream(), output, exceeded -> {
+            // runaway threads would slow down the rest of cases
+            stopped = true;
+            fail(new Failure(seed, size, input, answer, exceeded), done);
+        });
+        if (result == null) {
+            Checker.Result judge = checker.check(input.toByteBuffer(), output.toByteBuffer(),
+                    answer.toByteBuffer());
+            if (judge.accepted) {
+                return;
+            }
+            result = "failed (" + judge.message + ")";
+        }
+        fail(new Failure(seed, size, input, answer, result), done);
+    }
+
+    /**
+     * run a program with a buffer as stdout
+     *
+     * classes of the program are defined again before the run, so loading them
+     * is not limited
+     *
+     * @param className  class name of the program to run
+     * @param args       arguments to pass to the program
+     * @param in         stdin of the program
+     * @param out        buffer to capture stdout of the program into
+     * @param onExceeded called with result if the program exceeds a limit
+     * @return null if the program finished normally, otherwise result
+     */
+    private String execute(String className, String[] args, InputStream in, OutputBuffer out,
+            Consumer<String> onExceeded) {
+        try (PrintStream stream = new PrintStream(out)) {
+            InProcessRunner.Program program = InProcessRunner.loadProgram(className, classes.renew());
+            Watchdog.Watch watch = runner.run(program, args, in, stream, false,
+                    exceeded -> onExceeded.accept(describe(exceeded))).watch;
+            return watch.getState() == Watchdog.Watch.FINISHED ? null : describe(watch);
+        } catch (OutOfMemoryError e) {
+            return "memory limit exceeded (out of memory)";
+        } catch (Exception e) {
+            return "runtime error: " + e;
+        }
+    }
+
+    /**
+     * describe a run which exceeded a limit
+     *
+     * @param watch watch of the run
+     * @return result
+     */
+    private static String describe(Watchdog.Watch watch) {
+        return watch.getState() == Watchdog.Watch.TIME_LIMIT_EXCEEDED ? "time limit exceeded"
+                : "execution stalled";
+    }
+
+    /**
+     * record a failing case and keep it if its input is the smallest
+     *
+     * @param failure failing case
+     * @param done    completed to finish the case
+     */
+    private void fail(Failure failure, CompletableFuture<Void> done) {
+        if (!done.complete(null)) {
+            // already judged by the watchdog
+            return;
+        }
+        failedCount.incrementAndGet();
+        smallest.accumulateAndGet(failure, (current, found) -> current == null
+                || found.input.size() < current.input.size() ? found : current);
+    }
+
+    /**
+     * stop testing because of the generator or the reference
+     *
+     * @param message why to stop
+     * @param done    completed to finish the case
+     */
+    private void abort(String message, CompletableFuture<Void> done) {
+        error.compareAndSet(null, message);
+        done.complete(null);
+    }
+
+    /**
+     * failing case
+     */
+    public static class Failure {
+
+        /**
+         * seed passed to the generator
+         */
+        public final long seed;
+
+        /**
+         * size passed to the generator
+         */
+        public final int size;
+
+        /**
+         * generated input
+         */
+        public final OutputBuffer input;
+
+        /**
+         * output of the reference
+         */
+        public final OutputBuffer answer;
+
+        /**
+         * test result of Main
+         */
+        public final String result;
+
+        /**
+         * constructor
+         *
+         * @param seed   seed passed to the generator
+         * @param size   size passed to the generator
+         * @param input  generated input
+         * @param answer output of the reference
+         * @param result test result of Main
+         */
+        public Failure(long seed, int size, OutputBuffer input, OutputBuffer answer, String result) {
+            this.seed = seed;
+            this.size = size;
+            this.input = input;
+            this.answer = answer;
+            this.result = result;
+        }
+
+        /**
+         * save the case as a test case
+         *
+         * @param inputFilePath  file to save the input into
+         * @param answerFilePath file to save the expected output into
+         * @throws IOException if failed to write the files
+         */
+        public void save(Path inputFilePath, Path answerFilePath) throws IOException {
+            Files.createDirectories(inputFilePath.getParent());
+            Files.createDirectories(answerFilePath.getParent());
+            input.writeTo(inputFilePath);
+            answer.writeTo(answerFilePath);
+        }
+
+        @Override
+        public String toString() {
+            return result + " (seed = " + seed + ", size = " + size + ")";
+        }
+    }
+
+    /**
+     * report of a stress test
+     */
+    public static class Report {
+
+        /**
+         * number of executed cases (except shrinking)
+         */
+        public final int executed;
+
+        /**
+         * number of failed cases (except shrinking)
+         */
+        public final int failed;
+
+        /**
+         * elapsed time of executed cases in nanoseconds
+         */
+        public final long elapsedNanos;
+
+        /**
+         * failing case with the smallest input (null if all cases passed)
+         */
+        public final Failure smallest;
+
+        /**
+         * why testing was stopped by the generator or the reference (null if not
+         * stopped)
+         */
+        public final String error;
+
+        /**
+         * constructor
+         *
+         * @param executed     number of executed cases
+         * @param failed       number of failed cases
+         * @param elapsedNanos elapsed time of executed cases
+         * @param smallest     failing case with the smallest input
+         * @param error        why testing was stopped
+         */
+        public Report(int executed, int failed, long elapsedNanos, Failure smallest, String error) {
+            this.executed = executed;
+            this.failed = failed;
+            this.elapsedNanos = elapsedNanos;
+            this.smallest = smallest;
+            this.error = error;
+        }
+
+        @Override
+        public String toString() {
+            String text = String.format("%d cases, %d failed (%.1f cases/sec)", executed, failed,
+                    executed / Math.max(elapsedNanos / 1e9, 1e-9));
+            return error == null ? text : text + ", stopped by " + error;
+        }
+    }
+}
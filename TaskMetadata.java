@@ -0,0 +1,116 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * metadata of a task saved by AtCoderHelper next to its test data, such as
+ * the limits shown on the task page
+ */
+public class TaskMetadata {
+
+    /**
+     * metadata of test data not saved by AtCoderHelper
+     */
+    public static final TaskMetadata UNKNOWN = new TaskMetadata(null, null, -1, -1, -1);
+
+    /**
+     * contest name (null if unknown)
+     */
+    public final String contest;
+
+    /**
+     * task name with contest name like "abc416_a" (null if unknown)
+     */
+    public final String task;
+
+    /**
+     * execution time limit in milliseconds (-1 if unknown)
+     */
+    public final long timeLimitMillis;
+
+    /**
+     * memory limit in megabytes (-1 if unknown)
+     */
+    public final int memoryLimitMegabytes;
+
+    /**
+     * maximum size of the task like the upper bound of N, detected from the
+     * constraints (-1 if unknown)
+     */
+    public final long maxSize;
+
+    /**
+     * constructor
+     *
+     * @param contest              contest name
+     * @param task                 task name with contest name
+     * @param timeLimitMillis      execution time limit in milliseconds
+     * @param memoryLimitMegabytes memory limit in megabytes
+     * @param maxSize              maximum size of the task
+     */
+    public TaskMetadata(String contest, String task, long timeLimitMillis, int memoryLimitMegabytes,
+            long maxSize) {
+        this.contest = contest;
+        this.task = task;
+        this.timeLimitMillis = timeLimitMillis;
+        this.memoryLimitMegabytes = memoryLimitMegabytes;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * load metadata from a properties file
+     *
+     * @param path file to load
+     * @return loaded metadata (UNKNOWN if the file doesn't exist)
+     * @throws IOException if failed to read the file
+     */
+    public static TaskMetadata load(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return UNKNOWN;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            properties.load(reader);
+        }
+        try {
+            return new TaskMetadata(properties.getProperty("contest"), properties.getProperty("task"),
+                    Long.parseLong(properties.getProperty("timeLimitMillis", "-1")),
+                    Integer.parseInt(properties.getProperty("memoryLimitMegabytes", "-1")),
+                    Long.parseLong(properties.getProperty("maxSize", "-1")));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid limit in \"" + path + "\": " + e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * save metadata into a properties file
+     *
+     * @param path file to save into
+     * @throws IOException if failed to write the file
+     */
+    public void save(Path path) throws IOException {
+        Properties properties = new Properties();
+        if (contest != null) {
+            properties.setProperty("contest", contest);
+        }
+        if (task != null) {
+            properties.setProperty("task", task);
+        }
+        properties.setProperty("timeLimitMillis", Long.toString(timeLimitMillis));
+        properties.setProperty("memoryLimitMegabytes", Integer.toString(memoryLimitMegabytes));
+        properties.setProperty("maxSize", Long.toString(maxSize));
+        try (Writer writer = Files.newBufferedWriter(path)) {
+            properties.store(writer, null);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (time limit = %s, memory limit = %s)", task != null ? task : "unknown task",
+                timeLimitMillis >= 0 ? timeLimitMillis / 1000.0 + " sec" : "unknown",
+                memoryLimitMegabytes >= 0 ? memoryLimitMegabytes + " MB" : "unknown");
+    }
+}
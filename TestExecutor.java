@@ -1,133 +1,1097 @@
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystems;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
-import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.time.Duration;
-import java.time.LocalDateTime;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Main class to execute tests
  */
 public class TestExecutor {
 
+    /**
+     * time to gather changes of files after the first change in watch mode
+     */
+    private static final long WATCH_DEBOUNCE_MILLIS = 100;
+
     /**
      * main method to execute all test cases(no need to edit)
      * 
-     * @param args
+     * @param args options (see {@link Options})
      */
     public static void main(String[] args) {
 
-        InputStream initialInput = System.in;
-        PrintStream initialOutput = System.out;
+        // limits of the task saved by AtCoderHelper
+        TaskMetadata metadata = loadTaskMetadata();
+
+        Options options;
+        try {
+            options = Options.parse(args, metadata);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getLocalizedMessage());
+            return;
+        }
+        if (options.archived != null) {
+            metadata = options.archived.metadata;
+        }
+        if (metadata.task != null) {
+            System.out.println(String.format("----- %s (judged with time limit = %s sec, memory limit = %d MB)",
+                    metadata.task, toSec(options.cpuLimitNanos), options.memoryLimitBytes / 1024 / 1024));
+        }
+
+        // compile Main.java on this JVM unless compiled before
+        SourceCompiler compiler = new SourceCompiler(Paths.get(Constants.CLASS_CACHE_FOLDER));
+        SourceCompiler.Compilation compilation = compile(compiler, options);
+        if (compilation == null) {
+            return;
+        }
 
         Path inputFolder = Paths.get(Constants.TEST_INPUT_FOLDER);
         Path outputFolder = Paths.get(Constants.TEST_OUTPUT_FOLDER);
         Path answerFolder = Paths.get(Constants.TEST_ANSWER_FOLDER);
-        Map<String, String> map = new HashMap<>();  //keep test results
+        Map<String, String> map = new ConcurrentHashMap<>(); // keep test results
+
+        // worker JVMs for isolated mode
+        WorkerPool pool = null;
+        if (options.isolated) {
+            try {
+                pool = new WorkerPool(options.threads, options.recycleAfter, options.memoryLimitBytes,
+                        compilation.classFolder);
+            } catch (IOException e) {
+                System.err.println("failed to start worker: " + e.getLocalizedMessage());
+                return;
+            }
+        }
+
+        // route stdin and stdout of each testing thread to its own test case
+        StdioMultiplexer multiplexer = new StdioMultiplexer();
+        multiplexer.install();
+
+        // judge time limit of test cases running in this JVM
+        Watchdog watchdog = new Watchdog();
 
-        //testing thread
-        ExecutorService service = Executors.newSingleThreadExecutor(r -> {
+        //testing threads
+        ThreadPoolExecutor service = new ThreadPoolExecutor(options.threads, options.threads, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = Executors.defaultThreadFactory().newThread(r);
+                    t.setDaemon(true);
+                    return t;
+                });
+        InProcessRunner runner = createRunner(options, multiplexer, watchdog, service);
+
+        // threads saving outputs and asserting them after timing, so testing threads
+        // can go on to the next test case
+        ExecutorService writer = Executors.newFixedThreadPool(options.threads, r -> {
             Thread t = Executors.defaultThreadFactory().newThread(r);
             t.setDaemon(true);
             return t;
         });
 
-        try {
-            //clean old test results
-            if (Files.exists(outputFolder)) {
-                deleteFileTree(outputFolder);
+        long start = System.nanoTime();
+        if (options.stress) {
+            stressTest(runner, service, options, inputFolder, answerFolder, map);
+            printResults(map);
+        } else if (options.scalingMaxSize > 0) {
+            map.put("scaling", new ScalingTester(runner, options.main, service, options.generator)
+                    .run(options.scalingMaxSize, options.scalingRepeats, options.cpuLimitNanos).toString());
+            printResults(map);
+        } else if (options.ioBenchmark) {
+            map.putAll(new IoBenchmark(runner, service).run(options.ioTokens));
+            printResults(map);
+        } else if (options.archived != null) {
+            map.putAll(executeArchivedSamples(runner, service, options));
+            printSummary(map, start);
+        } else {
+            Map<String, TimingHistory.Timing> timings = new ConcurrentHashMap<>();
+            long sourceHash = 0;
+            try {
+                sourceHash = TimingHistory.hash(Paths.get(Constants.MAIN_SOURCE_FILE));
+
+                //clean old test results
+                if (Files.exists(outputFolder)) {
+                    deleteFileTree(outputFolder);
+                }
+
+                Files.createDirectory(outputFolder);
+                if (options.profiler != null) {
+                    deleteFileTree(Paths.get(Constants.TEST_PROFILE_FOLDER));
+                }
+
+                List<Path> inputFilePaths;
+                try (Stream<Path> files = Files.list(inputFolder)) {
+                    inputFilePaths = files.collect(Collectors.toList());
+                }
+
+                map.putAll(executeTestCases(inputFilePaths, runner, pool, service, writer, options, timings));
+            } catch (IOException e) {
+                map.put("failed to execute", "list up failed: " + e.getLocalizedMessage());
             }
+            printSummary(map, start);
+            recordHistory(options, sourceHash, timings);
+        }
 
-            Files.createDirectory(outputFolder);
+        if (options.watch) {
+            watchChanges(options, compiler, compilation.classFolder, pool, multiplexer, watchdog, service, writer);
+        }
 
-            Files.list(inputFolder).forEach(inputFilePath -> {
-                String fileName = inputFilePath.getFileName().toString();
-                Path outputFilePath = outputFolder.resolve(fileName);
+        if (pool != null) {
+            pool.close();
+        }
+        try {
+            // outputs of test cases judged by the watchdog may be being saved
+            writer.shutdown();
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                System.err.println("failed to save outputs");
+            }
+        } catch (InterruptedException e) {
+            System.err.println("failed to save outputs");
+        }
+        watchdog.close();
+        multiplexer.uninstall();
 
-                LocalDateTime start, end;
+        // threads of runaway test cases can't be stopped, but they are daemon threads
+        // and die with this JVM
+        if (service.getCorePoolSize() > options.threads) {
+            service.shutdownNow();
+            return;
+        }
 
-                try (InputStream in = Files.newInputStream(inputFilePath, StandardOpenOption.READ);
-                        PrintStream out = new PrintStream(outputFilePath.toFile())) {
-                    // replace stdin and stdout to pass data to Main::main
-                    System.setIn(in);
-                    System.setOut(out);
+        try {
+            service.shutdown();
+            if(!service.awaitTermination(2, TimeUnit.SECONDS)){
+                service.shutdownNow();
+                if(!service.awaitTermination(2, TimeUnit.SECONDS)){
+                    System.err.println("failed to close service");
+                }
+            }
+        } catch (InterruptedException e) {
+            System.err.println("failed to close service");
+        }
+    }
 
-                    start = LocalDateTime.now();
+    /**
+     * compile Main.java and user sources, and load their classes into options
+     * (errors are printed)
+     * 
+     * @param compiler compiler with bytecode cache
+     * @param options  command line options
+     * @return compiled classes, or null if failed
+     */
+    private static SourceCompiler.Compilation compile(SourceCompiler compiler, Options options) {
+        try {
+            if (options.usesFastIoWithoutCopy()) {
+                System.err.println("warning: Main.java uses FastIO without a copy of it, so FastIO.java is compiled"
+                        + " with it here but the submission fails to compile on AtCoder (paste FastIO below Main)");
+            }
+            SourceCompiler.Compilation compilation = compiler.compile(options.getSourceFilePaths(),
+                    TestExecutor.class.getClassLoader());
+            options.loadClasses(compilation.classLoader);
+            if (!compilation.cached) {
+                // release memory used by the compiler not to count it in test cases
+                System.gc();
+            }
+            return compilation;
+        } catch (SourceCompiler.CompileException e) {
+            System.err.println(e.getMessage());
+        } catch (IOException e) {
+            System.err.println("failed to compile: " + e.getLocalizedMessage());
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getLocalizedMessage());
+        }
+        return null;
+    }
 
-                    Future<LocalDateTime> future = service.submit(() -> {
-                        Main.main(new String[0]);
-                        return LocalDateTime.now();
-                    });
+    /**
+     * create runner of Main::main on threads of this JVM
+     * 
+     * @param options     command line options (with classes loaded)
+     * @param multiplexer multiplexer to bind stdin and stdout of test cases
+     * @param watchdog    watchdog to judge the time limits with
+     * @param service     thread pool running test cases
+     * @return runner
+     */
+    private static InProcessRunner createRunner(Options options, StdioMultiplexer multiplexer, Watchdog watchdog,
+            ThreadPoolExecutor service) {
+        return new InProcessRunner(options.main, options.freshClasses ? options.classes : null, multiplexer,
+                watchdog, service, options.threads, options.cpuLimitNanos, options.wallLimitNanos,
+                options.memoryLimitBytes);
+    }
 
-                    try {
-                        end = future.get(10, TimeUnit.SECONDS);
+    /**
+     * execute test cases on the pool and wait for their results (each result is
+     * printed as soon as the test case is judged)
+     * 
+     * @param inputFilePaths input data of test cases
+     * @param runner         runner of Main::main
+     * @param workerPool     pool of worker JVMs (null unless isolated mode)
+     * @param service        thread pool to execute test cases on
+     * @param writer         threads to save and assert outputs on
+     * @param options        command line options
+     * @param timings        map to put timings of judged test cases into by
+     *                       file name
+     * @return test results by file name
+     */
+    private static Map<String, String> executeTestCases(List<Path> inputFilePaths, InProcessRunner runner,
+            WorkerPool workerPool, ThreadPoolExecutor service, Executor writer, Options options,
+            Map<String, TimingHistory.Timing> timings) {
+        Path outputFolder = Paths.get(Constants.TEST_OUTPUT_FOLDER);
+        Path answerFolder = Paths.get(Constants.TEST_ANSWER_FOLDER);
+        Map<String, String> map = new ConcurrentHashMap<>();
 
-                    } catch (InterruptedException | ExecutionException | TimeoutException e) {
-                        future.cancel(true);
+        // results are completed by the watchdog if test cases exceed the limits,
+        // so waiting for them never blocks forever
+        Map<String, CompletableFuture<String>> futures = new LinkedHashMap<>();
+        for (Path inputFilePath : inputFilePaths) {
+            String fileName = inputFilePath.getFileName().toString();
+            Path outputFilePath = outputFolder.resolve(fileName);
+            Path answerFilePath = answerFolder.resolve(fileName);
+            CompletableFuture<String> future = new CompletableFuture<>();
+            Consumer<TimingHistory.Timing> onMeasured = timing -> timings.put(fileName, timing);
+            service.execute(() -> {
+                try {
+                    if (workerPool != null) {
+                        future.complete(executeTestCase(workerPool, options, inputFilePath, outputFilePath,
+                                answerFilePath, onMeasured));
+                    } else if (options.benchmark) {
+                        future.complete(benchmarkTestCase(runner, options, inputFilePath, outputFilePath,
+                                answerFilePath, future::complete, onMeasured));
+                    } else {
+                        executeTestCase(runner, writer, options, inputFilePath, outputFilePath,
+                                answerFilePath, future::complete, onMeasured).whenComplete((result, e) -> {
+                                    future.complete(e == null ? result : "failed to judge: " + e.getCause());
+                                });
+                    }
+                } catch (OutOfMemoryError e) {
+                    future.complete(createOutOfMemoryResult());
+                } catch (Throwable e) {
+                    // test case given up by the watchdog may throw when interrupted
+                    if (!future.isDone()) {
                         e.printStackTrace();
-                        map.put(fileName, "execution timeout");
-                        return;
+                        future.complete("runtime error: " + e);
                     }
-
-                } catch (IOException e) {
-                    map.put(fileName, "failed to execute: " + e.getLocalizedMessage());
-                    return;
                 }
+            });
+            future.thenAccept(result -> printResult(fileName, result));
+            futures.put(fileName, future);
+        }
 
-                double elapsedSec = (double) Duration.between(start, end).toMillis() / 1000;
+        futures.forEach((fileName, future) -> {
+            try {
+                map.put(fileName, future.get());
+            } catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+                map.put(fileName, "failed to execute: " + e.getLocalizedMessage());
+            }
+        });
+        return map;
+    }
 
-                String expected;
-                String actual;
+    /**
+     * execute samples of a task read from the sample archive
+     * 
+     * samples are passed to Main and the checker as views of the mapped archive
+     * without being extracted into files, and outputs are kept only in memory.
+     * timings are not recorded into the timing history, since the history is
+     * kept for the current task.
+     * 
+     * @param runner  runner of Main::main
+     * @param service thread pool to execute samples on
+     * @param options command line options
+     * @return test results by file name like "test1.txt" (numbered as saved by
+     *         AtCoderHelper)
+     */
+    private static Map<String, String> executeArchivedSamples(InProcessRunner runner, Executor service,
+            Options options) {
+        Map<String, CompletableFuture<String>> futures = new LinkedHashMap<>();
+        List<SampleArchive.Sample> samples = options.archived.samples;
+        for (int i = 0; i < samples.size(); i++) {
+            String fileName = String.format("test%d.txt", i + 1);
+            SampleArchive.Sample sample = samples.get(i);
+            CompletableFuture<String> future = new CompletableFuture<>();
+            service.execute(() -> {
                 try {
-                    expected = Files.readString(answerFolder.resolve(fileName)).trim();
-                    actual = Files.readString(outputFilePath).trim();
+                    OutputBuffer output = new OutputBuffer();
+                    InProcessRunner.Run run;
+                    try (PrintStream out = new PrintStream(output)) {
+                        run = runner.run(sample.openInput(), out,
+                                exceeded -> future.complete(createExceededResult(exceeded)));
+                    }
+                    if (run.watch.getState() != Watchdog.Watch.FINISHED) {
+                        future.complete(createExceededResult(run.watch));
+                    } else if (run.memory.liveHeapBytes > options.memoryLimitBytes) {
+                        future.complete(createMemoryLimitExceededResult(run.memory));
+                    } else {
+                        Checker.Result judge = options.checker.check(sample.input.duplicate(),
+                                output.toByteBuffer(), sample.answer.duplicate());
+                        future.complete(judge.accepted
+                                ? "succeeded " + createDetailsText(options, run.watch.getWallNanos(),
+                                        run.watch.getCpuNanos(), run.classLoadingNanos, run.memory)
+                                : "failed (" + judge.message + ")"
+                                        + createDiffText(options, output.toByteBuffer(), sample.answer.duplicate()));
+                    }
+                } catch (OutOfMemoryError e) {
+                    future.complete(createOutOfMemoryResult());
                 } catch (IOException e) {
-                    map.put(fileName, "failed to load result: " + e.getLocalizedMessage());
-                    return;
+                    future.complete("failed to judge: " + e.getLocalizedMessage());
+                } catch (Throwable e) {
+                    // sample given up by the watchdog may throw when interrupted
+                    if (!future.isDone()) {
+                        e.printStackTrace();
+                        future.complete("runtime error: " + e);
+                    }
                 }
+            });
+            future.thenAccept(result -> printResult(fileName, result));
+            futures.put(fileName, future);
+        }
+
+        Map<String, String> map = new LinkedHashMap<>();
+        futures.forEach((fileName, future) -> map.put(fileName, future.join()));
+        return map;
+    }
 
-                if (expected.equals(actual)) {
-                    map.put(fileName, "succeeded (elapsed = " + elapsedSec + " sec)");
+    /**
+     * watch sources and test data, and re-execute affected test cases when
+     * they are saved (returns only if failed to watch)
+     * 
+     * test cases are executed on this JVM, which has already been warmed up.
+     * when a source is changed, all test cases are executed with recompiled
+     * classes, otherwise only the test cases whose input or answer is changed.
+     * 
+     * @param options     command line options
+     * @param compiler    compiler with bytecode cache
+     * @param classFolder folder of classes currently compiled
+     * @param pool        pool of worker JVMs (null unless isolated mode)
+     * @param multiplexer multiplexer to bind stdin and stdout of test cases
+     * @param watchdog    watchdog to judge the time limits with
+     * @param service     thread pool to execute test cases on
+     * @param writer      threads to save and assert outputs on
+     */
+    private static void watchChanges(Options options, SourceCompiler compiler, Path classFolder, WorkerPool pool,
+            StdioMultiplexer multiplexer, Watchdog watchdog, ThreadPoolExecutor service, Executor writer) {
+        Path inputFolder = Paths.get(Constants.TEST_INPUT_FOLDER).toAbsolutePath().normalize();
+        Path answerFolder = Paths.get(Constants.TEST_ANSWER_FOLDER).toAbsolutePath().normalize();
+        Set<Path> sourceFilePaths = options.getSourceFilePaths().stream()
+                .map(path -> path.toAbsolutePath().normalize()).collect(Collectors.toSet());
+        InProcessRunner runner = createRunner(options, multiplexer, watchdog, service);
+
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            Set<Path> folders = new HashSet<>();
+            sourceFilePaths.forEach(path -> folders.add(path.getParent()));
+            folders.add(inputFolder);
+            folders.add(answerFolder);
+            for (Path folder : folders) {
+                Files.createDirectories(folder);
+                folder.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+            System.out.println("watching changes of sources and test data (press Ctrl+C to stop)");
+
+            while (true) {
+                Set<Path> changedPaths = new HashSet<>();
+                WatchKey key = watcher.take();
+                do {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            // events are lost, so regard everything as changed
+                            changedPaths.addAll(sourceFilePaths);
+                        } else {
+                            changedPaths.add(((Path) key.watchable()).resolve((Path) event.context()));
+                        }
+                    }
+                    key.reset();
+                    // editors may save a file in several steps, so gather changes for a while
+                    key = watcher.poll(WATCH_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+                } while (key != null);
+
+                long start = System.nanoTime();
+                List<Path> inputFilePaths;
+                if (changedPaths.stream().anyMatch(sourceFilePaths::contains)) {
+                    SourceCompiler.Compilation compilation = compile(compiler, options);
+                    if (compilation == null) {
+                        continue;
+                    }
+                    // classes are reloaded anyway, so static fields of Main are reset
+                    runner = createRunner(options, multiplexer, watchdog, service);
+                    if (pool != null && !compilation.classFolder.equals(classFolder)) {
+                        pool.close();
+                        pool = new WorkerPool(options.threads, options.recycleAfter, options.memoryLimitBytes,
+                                compilation.classFolder);
+                    }
+                    classFolder = compilation.classFolder;
+                    try (Stream<Path> files = Files.list(inputFolder)) {
+                        inputFilePaths = files.collect(Collectors.toList());
+                    }
                 } else {
-                    map.put(fileName, "failed");
+                    inputFilePaths = changedPaths.stream()
+                            .filter(path -> path.getParent().equals(inputFolder)
+                                    || path.getParent().equals(answerFolder))
+                            .map(path -> inputFolder.resolve(path.getFileName())).distinct()
+                            .filter(Files::isRegularFile).collect(Collectors.toList());
+                }
+                if (inputFilePaths.isEmpty()) {
+                    continue;
+                }
+
+                Map<String, TimingHistory.Timing> timings = new ConcurrentHashMap<>();
+                long sourceHash = TimingHistory.hash(Paths.get(Constants.MAIN_SOURCE_FILE));
+                printSummary(executeTestCases(inputFilePaths, runner, pool, service, writer, options, timings),
+                        start);
+                recordHistory(options, sourceHash, timings);
+            }
+        } catch (IOException e) {
+            System.err.println("failed to watch changes: " + e.getLocalizedMessage());
+        } catch (InterruptedException e) {
+            System.err.println("stopped watching changes");
+        } finally {
+            if (pool != null) {
+                pool.close();
+            }
+        }
+    }
+
+    /**
+     * print test results in order of file names
+     * 
+     * @param map test results by file name
+     */
+    private static void printResults(Map<String, String> map) {
+        List<String> fileNames = new ArrayList<>(map.keySet());
+        fileNames.sort(TestExecutor::compareFileNames);
+        for (String fileName : fileNames) {
+            printResult(fileName, map.get(fileName));
+        }
+    }
+
+    /**
+     * print a test result (called from any thread as soon as judged)
+     * 
+     * @param fileName file name of the test case
+     * @param result   test result
+     */
+    private static void printResult(String fileName, String result) {
+        // println of the console is synchronized, so lines never get mixed
+        System.out.println(String.format("%s %s", fileName, result));
+    }
+
+    /**
+     * print verdicts of test results in order of file names, after each result
+     * has been printed in order of completion
+     * 
+     * @param map        test results by file name
+     * @param startNanos time when the test cases started
+     */
+    private static void printSummary(Map<String, String> map, long startNanos) {
+        System.out.println(String.format("----- %d test cases (%d ms)", map.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)));
+        List<String> fileNames = new ArrayList<>(map.keySet());
+        fileNames.sort(TestExecutor::compareFileNames);
+        int succeeded = 0;
+        int executed = 0;
+        for (String fileName : fileNames) {
+            String result = map.get(fileName);
+            if (result.startsWith("succeeded")) {
+                succeeded++;
+            } else if (result.startsWith("executed")) {
+                executed++;
+            }
+
+            // verdict is the result without details in parentheses or after colon
+            int end = result.length();
+            if (result.contains(" (")) {
+                end = result.indexOf(" (");
+            }
+            if (result.contains(":")) {
+                end = Math.min(end, result.indexOf(':'));
+            }
+            System.out.println(String.format("%s %s", fileName, result.substring(0, end)));
+        }
+        System.out.println(String.format("%d / %d succeeded", succeeded, map.size() - executed)
+                + (executed > 0 ? String.format(" (%d executed without answer)", executed) : ""));
+    }
+
+    /**
+     * append timings of test cases to the timing history of the current task,
+     * and print test cases significantly slower than with the best previous
+     * version of Main.java
+     * 
+     * @param options    command line options
+     * @param sourceHash hash of Main.java the test cases were executed with
+     * @param timings    timings of judged test cases by file name
+     */
+    private static void recordHistory(Options options, long sourceHash, Map<String, TimingHistory.Timing> timings) {
+        if (!options.history || timings.isEmpty()) {
+            return;
+        }
+        TimingHistory history = new TimingHistory(Paths.get(Constants.TIMING_HISTORY_FILE));
+        Path inputFolder = Paths.get(Constants.TEST_INPUT_FOLDER);
+        TaskMetadata metadata = loadTaskMetadata();
+        String task = metadata.task != null ? metadata.task : "unknown";
+        long recordedMillis = System.currentTimeMillis();
+
+        List<String> fileNames = new ArrayList<>(timings.keySet());
+        fileNames.sort(TestExecutor::compareFileNames);
+        try {
+            List<TimingHistory.Record> previous = history.load(task);
+            List<TimingHistory.Record> records = new ArrayList<>();
+            int regressions = 0;
+            for (String fileName : fileNames) {
+                TimingHistory.Record record = new TimingHistory.Record(recordedMillis, task,
+                        TimingHistory.hash(inputFolder.resolve(fileName)), sourceHash, timings.get(fileName));
+                records.add(record);
+                String regression = TimingHistory.findRegression(previous, record);
+                if (regression != null) {
+                    System.out.println(String.format("%s slowed down: %s", fileName, regression));
+                    regressions++;
+                }
+            }
+            history.append(records);
+            if (regressions == 0) {
+                System.out.println(String.format("no slowdown from timing history of %s (%d record(s))", task,
+                        previous.size()));
+            }
+        } catch (IOException e) {
+            System.err.println("failed to record timing history: " + e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * load metadata of the task of current test data saved by AtCoderHelper
+     * (errors are printed)
+     * 
+     * @return metadata, or TaskMetadata.UNKNOWN if test data is not downloaded
+     *         by AtCoderHelper
+     */
+    private static TaskMetadata loadTaskMetadata() {
+        try {
+            return TaskMetadata.load(Paths.get(Constants.TASK_METADATA_FILE));
+        } catch (IOException e) {
+            System.err.println("failed to load task metadata: " + e.getLocalizedMessage());
+            return TaskMetadata.UNKNOWN;
+        }
+    }
+
+    /**
+     * compare file names comparing runs of digits as numbers, so "test2.txt"
+     * comes before "test10.txt"
+     * 
+     * @param a file name
+     * @param b file name
+     * @return negative, zero or positive if a is less than, equal to or greater
+     *         than b
+     */
+    private static int compareFileNames(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            if (Character.isDigit(a.charAt(i)) && Character.isDigit(b.charAt(j))) {
+                int numberStartA = i;
+                int numberStartB = j;
+                while (i < a.length() && Character.isDigit(a.charAt(i))) {
+                    i++;
+                }
+                while (j < b.length() && Character.isDigit(b.charAt(j))) {
+                    j++;
+                }
+                // longer number without leading zeros is greater, otherwise compare digits
+                String numberA = a.substring(numberStartA, i).replaceFirst("^0+(?=.)", "");
+                String numberB = b.substring(numberStartB, j).replaceFirst("^0+(?=.)", "");
+                int compared = numberA.length() != numberB.length()
+                        ? Integer.compare(numberA.length(), numberB.length())
+                        : numberA.compareTo(numberB);
+                if (compared != 0) {
+                    return compared;
+                }
+            } else {
+                if (a.charAt(i) != b.charAt(j)) {
+                    return Character.compare(a.charAt(i), b.charAt(j));
+                }
+                i++;
+                j++;
+            }
+        }
+        int compared = Integer.compare(a.length() - i, b.length() - j);
+        return compared != 0 ? compared : a.compareTo(b);
+    }
+
+    /**
+     * run stress test with random inputs and save the smallest failing case as
+     * a test case
+     * 
+     * @param runner       runner of programs
+     * @param service      thread pool of the runner
+     * @param options      command line options
+     * @param inputFolder  folder to save input of the failing case into
+     * @param answerFolder folder to save expected output of the failing case
+     *                     into
+     * @param map          map to put results into
+     */
+    private static void stressTest(InProcessRunner runner, ThreadPoolExecutor service, Options options,
+            Path inputFolder, Path answerFolder, Map<String, String> map) {
+        StressTester.Report report = new StressTester(runner, options.classes, service, options.checker,
+                options.generatorName, options.referenceName).run(options.stressCases, options.stressSize);
+        map.put("stress", report.toString());
+        if (report.smallest == null) {
+            return;
+        }
+        try {
+            report.smallest.save(inputFolder.resolve(Constants.STRESS_TEST_FILE),
+                    answerFolder.resolve(Constants.STRESS_TEST_FILE));
+            map.put(Constants.STRESS_TEST_FILE, report.smallest.toString());
+        } catch (IOException e) {
+            map.put(Constants.STRESS_TEST_FILE, report.smallest + ", failed to save: " + e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * execute a test case on the calling thread, then save and assert its
+     * output on a writer thread
+     * 
+     * input is loaded and output is captured in memory, so disk I/O is not
+     * included in the measured time
+     * 
+     * @param runner         runner of Main::main
+     * @param writer         threads to save and assert the output on
+     * @param options        command line options
+     * @param inputFilePath  input data of the test case
+     * @param outputFilePath file to save the output into
+     * @param answerFilePath expected output of the test case
+     * @param onExceeded     called with test result if the test case exceeds a
+     *                       limit, since this method may never return then
+     * @param onMeasured     called with timing of the test case if judged
+     * @return test result completed after the output is asserted
+     * @throws Exception thrown by Main::main
+     */
+    private static CompletableFuture<String> executeTestCase(InProcessRunner runner, Executor writer,
+            Options options, Path inputFilePath, Path outputFilePath, Path answerFilePath,
+            Consumer<String> onExceeded, Consumer<TimingHistory.Timing> onMeasured) throws Exception {
+
+        byte[] input;
+        try {
+            input = Files.readAllBytes(inputFilePath);
+        } catch (IOException e) {
+            return CompletableFuture.completedFuture("failed to execute: " + e.getLocalizedMessage());
+        }
+
+        OutputBuffer output = new OutputBuffer();
+        Profiler.Session session = null;
+        if (options.profiler != null) {
+            try {
+                session = options.profiler.start(inputFilePath.getFileName().toString());
+            } catch (IOException e) {
+                return CompletableFuture.completedFuture("failed to profile: " + e.getLocalizedMessage());
+            }
+        }
+        Profiler.Session profile = session;
+        InProcessRunner.Run run;
+        try (PrintStream out = new PrintStream(output)) {
+            // test cases exceeding a limit are worth profiling most, so the profile is added by the watchdog too
+            run = runner.run(new ByteArrayInputStream(input), out,
+                    exceeded -> onExceeded.accept(createExceededResult(exceeded) + createProfileText(profile)));
+        } catch (Exception e) {
+            // keep partial output to investigate the error
+            writer.execute(() -> {
+                try {
+                    output.writeTo(outputFilePath);
+                } catch (IOException ignored) {
+                    // the test case has already failed
                 }
             });
+            throw e;
+        } finally {
+            if (profile != null) {
+                // stop recording before this thread goes on to the next test case
+                profile.stop();
+            }
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                output.writeTo(outputFilePath);
+            } catch (IOException e) {
+                return "failed to save output: " + e.getLocalizedMessage();
+            }
+            if (run.watch.getState() != Watchdog.Watch.FINISHED) {
+                return createExceededResult(run.watch) + createProfileText(profile);
+            }
+            return assertOutput(options, inputFilePath, outputFilePath, answerFilePath, run.watch.getWallNanos(),
+                    run.watch.getCpuNanos(), run.classLoadingNanos, run.memory,
+                    run.classLoadingNanos >= 0 ? TimingHistory.MODE_FRESH_CLASSES : TimingHistory.MODE_IN_PROCESS,
+                    onMeasured) + createProfileText(profile);
+        }, writer);
+    }
+
+    /**
+     * report how the output of a failed test case differs from the expected
+     * output
+     * 
+     * @param options        command line options
+     * @param outputFilePath output of the test case
+     * @param answerFilePath expected output of the test case
+     * @return lines to append to the test result (empty if disabled by --diff=0)
+     */
+    private static String createDiffText(Options options, Path outputFilePath, Path answerFilePath) {
+        if (options.diff == null) {
+            return "";
+        }
+        try {
+            return options.diff.diff(outputFilePath, answerFilePath);
         } catch (IOException e) {
-            map.put("failed to execute", "list up failed: " + e.getLocalizedMessage());
+            return String.format("%n  failed to diff: %s", e.getLocalizedMessage());
         }
+    }
 
-        System.setIn(initialInput);
-        System.setOut(initialOutput);
+    /**
+     * report how an output in memory differs from the expected output
+     * 
+     * @param options command line options
+     * @param output  output of the test case
+     * @param answer  expected output of the test case
+     * @return lines to append to the test result (empty if disabled by --diff=0)
+     */
+    private static String createDiffText(Options options, ByteBuffer output, ByteBuffer answer) {
+        return options.diff == null ? "" : options.diff.diff(output, answer);
+    }
 
-        map.forEach((key, value) -> {
-            System.out.println(String.format("%s %s", key, value));
-        });
+    /**
+     * stop profiling a test case and summarize it
+     * 
+     * @param session recording of the test case (null unless profiling)
+     * @return lines to append to the test result (empty unless profiling)
+     */
+    private static String createProfileText(Profiler.Session session) {
+        if (session == null) {
+            return "";
+        }
+        session.stop();
+        try {
+            return session.summarize();
+        } catch (IOException e) {
+            return String.format("%n  failed to profile: %s", e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * execute a test case repeatedly on the calling thread and measure its
+     * timing statistics
+     * 
+     * the first run is asserted and reported as cold start, then warmup runs
+     * let JIT compile Main before measured runs. classes of Main are defined
+     * again before the first run and shared by the rest of runs of this test
+     * case only
+     * 
+     * @param runner         runner of Main::main
+     * @param options        command line options
+     * @param inputFilePath  input data of the test case
+     * @param outputFilePath file to save the output of the first run into
+     * @param answerFilePath expected output of the test case
+     * @param onExceeded     called with test result if a run exceeds a limit,
+     *                       since this method may never return then
+     * @param onMeasured     called with timing of the test case if judged
+     * @return test result
+     * @throws Exception thrown by Main::main
+     */
+    private static String benchmarkTestCase(InProcessRunner runner, Options options, Path inputFilePath,
+            Path outputFilePath, Path answerFilePath, Consumer<String> onExceeded,
+            Consumer<TimingHistory.Timing> onMeasured) throws Exception {
 
+        // load input in advance not to measure disk I/O repeatedly
+        byte[] input;
         try {
-            service.shutdown();
-            if(!service.awaitTermination(2, TimeUnit.SECONDS)){
-                service.shutdownNow();
-                if(!service.awaitTermination(2, TimeUnit.SECONDS)){
-                    System.err.println("failed to close service");
+            input = Files.readAllBytes(inputFilePath);
+        } catch (IOException e) {
+            return "failed to execute: " + e.getLocalizedMessage();
+        }
+
+        Consumer<Watchdog.Watch> onRunExceeded = exceeded -> onExceeded.accept(createExceededResult(exceeded));
+        InProcessRunner.Program main = runner.renewMain();
+
+        OutputBuffer output = new OutputBuffer();
+        InProcessRunner.Run cold;
+        try (PrintStream out = new PrintStream(output)) {
+            cold = runner.run(main, new String[0], new ByteArrayInputStream(input), out, true, onRunExceeded);
+        }
+        try {
+            output.writeTo(outputFilePath);
+        } catch (IOException e) {
+            return "failed to save output: " + e.getLocalizedMessage();
+        }
+        if (cold.watch.getState() != Watchdog.Watch.FINISHED) {
+            return createExceededResult(cold.watch);
+        }
+        TimingHistory.Timing rejected = new TimingHistory.Timing(false, TimingHistory.MODE_BENCHMARK, 1,
+                cold.watch.getWallNanos(), 0, cold.watch.getCpuNanos(), cold.memory.peakHeapBytes);
+        if (cold.memory.liveHeapBytes > options.memoryLimitBytes) {
+            onMeasured.accept(rejected);
+            return createMemoryLimitExceededResult(cold.memory);
+        }
+
+        // a test case without answer is only benchmarked
+        boolean judged = Files.exists(answerFilePath);
+        if (judged) {
+            try {
+                Checker.Result judge = options.checker.check(inputFilePath, outputFilePath, answerFilePath);
+                if (!judge.accepted) {
+                    onMeasured.accept(rejected);
+                    return "failed (" + judge.message + ")" + createDiffText(options, outputFilePath, answerFilePath);
                 }
+            } catch (IOException e) {
+                return "failed to load result: " + e.getLocalizedMessage();
             }
-        } catch (InterruptedException e) {
-            System.err.println("failed to close service");
         }
+
+        // outputs of the rest of runs are the same, so discard them
+        long[] samples = new long[options.measuredRuns];
+        long[] cpuSamples = new long[options.measuredRuns];
+        try (PrintStream out = new PrintStream(OutputStream.nullOutputStream())) {
+            for (int i = 0; i < options.warmupRuns + options.measuredRuns; i++) {
+                Watchdog.Watch watch = runner.run(main, new String[0], new ByteArrayInputStream(input), out, true,
+                        onRunExceeded).watch;
+                if (watch.getState() != Watchdog.Watch.FINISHED) {
+                    return createExceededResult(watch);
+                }
+                if (i >= options.warmupRuns) {
+                    samples[i - options.warmupRuns] = watch.getWallNanos();
+                    cpuSamples[i - options.warmupRuns] = watch.getCpuNanos();
+                }
+            }
+        }
+
+        TimingStatistics statistics = new TimingStatistics(samples);
+        long medianCpuNanos = new TimingStatistics(cpuSamples).median;
+        if (judged) {
+            onMeasured.accept(new TimingHistory.Timing(true, TimingHistory.MODE_BENCHMARK, statistics.count,
+                    statistics.mean, statistics.stddev, cold.watch.getCpuNanos(), cold.memory.peakHeapBytes));
+        }
+        return (judged ? "succeeded" : "executed") + " (cold = "
+                + TimingStatistics.toMillisText(cold.watch.getWallNanos()) + ", " + statistics + ", cold "
+                + cold.memory + ", median cpu = " + TimingStatistics.toMillisText(medianCpuNanos) + ", "
+                + createHeadroomText(options, medianCpuNanos, cold.memory) + ")";
+    }
+
+    /**
+     * execute a test case on a worker JVM and assert its output
+     * 
+     * @param pool           pool of worker JVMs
+     * @param options        command line options
+     * @param inputFilePath  input data of the test case
+     * @param outputFilePath file to save the output into
+     * @param answerFilePath expected output of the test case
+     * @param onMeasured     called with timing of the test case if judged
+     * @return test result
+     * @throws InterruptedException if interrupted while waiting for a worker
+     */
+    private static String executeTestCase(WorkerPool pool, Options options, Path inputFilePath,
+            Path outputFilePath, Path answerFilePath, Consumer<TimingHistory.Timing> onMeasured)
+            throws InterruptedException {
+
+        WorkerPool.Result result = pool.execute(inputFilePath, outputFilePath, options.cpuLimitNanos,
+                options.wallLimitNanos);
+        switch (result.status) {
+            case TestWorker.STATUS_SUCCEEDED:
+            case TestWorker.STATUS_EXITED:
+                return assertOutput(options, inputFilePath, outputFilePath, answerFilePath, result.elapsedNanos,
+                        result.cpuNanos, -1, result.memory, TimingHistory.MODE_ISOLATED, onMeasured);
+            case TestWorker.STATUS_EXCEPTION:
+                return "runtime error: " + result.message;
+            case TestWorker.STATUS_TIME_LIMIT_EXCEEDED:
+                return createTimeLimitExceededResult(result.cpuNanos);
+            case TestWorker.STATUS_STALLED:
+                return createStalledResult(result.elapsedNanos, result.cpuNanos);
+            case TestWorker.STATUS_OUT_OF_MEMORY:
+                return createOutOfMemoryResult();
+            default:
+                return result.message;
+        }
+    }
+
+    /**
+     * create test result of test case which exceeded a limit
+     * 
+     * @param watch watch of the test case
+     * @return test result
+     */
+    private static String createExceededResult(Watchdog.Watch watch) {
+        if (watch.getState() == Watchdog.Watch.TIME_LIMIT_EXCEEDED) {
+            return createTimeLimitExceededResult(watch.getCpuNanos());
+        }
+        if (watch.getState() == Watchdog.Watch.MEMORY_LIMIT_EXCEEDED) {
+            return "memory limit exceeded (live = " + MemoryMeter.Usage.toMegabytesText(watch.getLiveHeapBytes())
+                    + ", cpu = " + toSec(watch.getCpuNanos()) + " sec)";
+        }
+        return createStalledResult(watch.getWallNanos(), watch.getCpuNanos());
+    }
+
+    /**
+     * create test result of test case which exceeded the CPU time limit
+     * 
+     * @param cpuNanos CPU time of the test case
+     * @return test result
+     */
+    private static String createTimeLimitExceededResult(long cpuNanos) {
+        return "time limit exceeded (cpu = " + toSec(cpuNanos) + " sec)";
+    }
+
+    /**
+     * create test result of test case which exceeded the wall-clock time limit
+     * without exceeding the CPU time limit
+     * 
+     * @param elapsedNanos wall-clock time of the test case
+     * @param cpuNanos     CPU time of the test case
+     * @return test result
+     */
+    private static String createStalledResult(long elapsedNanos, long cpuNanos) {
+        return "execution stalled (elapsed = " + toSec(elapsedNanos) + " sec, cpu = " + toSec(cpuNanos) + " sec)";
+    }
+
+    /**
+     * create test result of test case which exceeded the memory limit
+     * 
+     * @param memory memory usage of the test case
+     * @return test result
+     */
+    private static String createMemoryLimitExceededResult(MemoryMeter.Usage memory) {
+        return "memory limit exceeded (" + memory + ")";
+    }
+
+    /**
+     * create test result of test case which threw OutOfMemoryError
+     * 
+     * @return test result
+     */
+    private static String createOutOfMemoryResult() {
+        return "memory limit exceeded (out of memory)";
+    }
+
+    /**
+     * create text of how much of the limits a test case used, to see headroom
+     * before submitting
+     * 
+     * @param options  command line options
+     * @param cpuNanos CPU time of the test case, which is judged against the
+     *                 time limit
+     * @param memory   memory usage of the test case
+     * @return text of percentages of the limits (of the time limit only if
+     *         heap usage was not measured)
+     */
+    private static String createHeadroomText(Options options, long cpuNanos, MemoryMeter.Usage memory) {
+        String text = String.format("%d%% of time limit", Math.round(cpuNanos * 100.0 / options.cpuLimitNanos));
+        if (memory.peakHeapBytes < 0) {
+            return text;
+        }
+        // heap left after collecting garbage is what is judged if the peak exceeded the limit
+        long heapBytes = memory.liveHeapBytes > 0 ? memory.liveHeapBytes : memory.peakHeapBytes;
+        return text + String.format(", %d%% of memory limit", Math.round(heapBytes * 100.0 / options.memoryLimitBytes));
+    }
+
+    /**
+     * convert nanoseconds to seconds in milliseconds precision
+     * 
+     * @param nanos time in nanoseconds
+     * @return time in seconds
+     */
+    private static double toSec(long nanos) {
+        return (double) TimeUnit.NANOSECONDS.toMillis(nanos) / 1000;
+    }
+
+    /**
+     * assert output of a test case with the checker
+     * 
+     * a test case without answer (worst-case inputs generated by
+     * AtCoderHelper, etc.) is only executed to see its time and memory.
+     * 
+     * @param options           command line options
+     * @param inputFilePath     input data of the test case
+     * @param outputFilePath    output of the test case
+     * @param answerFilePath    expected output of the test case
+     * @param elapsedNanos      wall-clock time of the test case
+     * @param cpuNanos          CPU time of the test case
+     * @param classLoadingNanos time to define classes of Main before the test
+     *                          case (-1 if not defined again)
+     * @param memory            memory usage of the test case
+     * @param mode              how the test case was executed
+     *                          (TimingHistory.MODE_*)
+     * @param onMeasured        called with timing of the test case if judged
+     * @return test result
+     */
+    private static String assertOutput(Options options, Path inputFilePath, Path outputFilePath,
+            Path answerFilePath, long elapsedNanos, long cpuNanos, long classLoadingNanos, MemoryMeter.Usage memory,
+            byte mode, Consumer<TimingHistory.Timing> onMeasured) {
+        if (memory.liveHeapBytes > options.memoryLimitBytes) {
+            onMeasured.accept(new TimingHistory.Timing(false, mode, 1, elapsedNanos, 0, cpuNanos,
+                    memory.peakHeapBytes));
+            return createMemoryLimitExceededResult(memory);
+        }
+
+        String details = createDetailsText(options, elapsedNanos, cpuNanos, classLoadingNanos, memory);
+        if (!Files.exists(answerFilePath)) {
+            return "executed " + details;
+        }
+
+        Checker.Result judge;
+        try {
+            judge = options.checker.check(inputFilePath, outputFilePath, answerFilePath);
+        } catch (IOException e) {
+            return "failed to load result: " + e.getLocalizedMessage();
+        }
+
+        onMeasured.accept(new TimingHistory.Timing(judge.accepted, mode, 1, elapsedNanos, 0, cpuNanos,
+                memory.peakHeapBytes));
+        if (judge.accepted) {
+            return "succeeded " + details;
+        } else {
+            return "failed (" + judge.message + ")" + createDiffText(options, outputFilePath, answerFilePath);
+        }
+    }
+
+    /**
+     * create details of a test case executed within the limits
+     * 
+     * @param options           command line options
+     * @param elapsedNanos      wall-clock time of the test case
+     * @param cpuNanos          CPU time of the test case
+     * @param classLoadingNanos time to define classes of Main before the test
+     *                          case (-1 if not defined again)
+     * @param memory            memory usage of the test case
+     * @return details in parentheses
+     */
+    private static String createDetailsText(Options options, long elapsedNanos, long cpuNanos,
+            long classLoadingNanos, MemoryMeter.Usage memory) {
+        String classLoading = classLoadingNanos >= 0
+                ? "class loading = " + TimingStatistics.toMillisText(classLoadingNanos) + ", "
+                : "";
+        return "(elapsed = " + toSec(elapsedNanos) + " sec, cpu = " + toSec(cpuNanos) + " sec, " + classLoading
+                + memory + ", " + createHeadroomText(options, cpuNanos, memory) + ")";
     }
 
     /**
@@ -163,4 +1127,550 @@ public class TestExecutor {
         }
     }
 
+    /**
+     * command line options
+     */
+    private static class Options {
+
+        /**
+         * number of threads to execute test cases with
+         */
+        public int threads = 1;
+
+        /**
+         * whether to execute test cases on worker JVMs
+         */
+        public boolean isolated = false;
+
+        /**
+         * number of test cases after which a worker JVM is replaced
+         */
+        public int recycleAfter = 100;
+
+        /**
+         * CPU time limit of each test case (the limit of the task if saved by
+         * AtCoderHelper)
+         */
+        public long cpuLimitNanos = TimeUnit.SECONDS.toNanos(10);
+
+        /**
+         * wall-clock time limit of each test case to catch stalls (twice the CPU
+         * time limit if not specified)
+         */
+        public long wallLimitNanos = -1;
+
+        /**
+         * whether to measure timing statistics by repeated runs
+         */
+        public boolean benchmark = false;
+
+        /**
+         * number of runs before measurement in benchmark mode
+         */
+        public int warmupRuns = 10;
+
+        /**
+         * number of measured runs in benchmark mode
+         */
+        public int measuredRuns = 30;
+
+        /**
+         * memory limit of each test case (the limit of the task if saved by
+         * AtCoderHelper, otherwise the usual limit of AtCoder)
+         */
+        public long memoryLimitBytes = 1024L * 1024 * 1024;
+
+        /**
+         * checker to judge outputs with
+         */
+        public Checker checker;
+
+        /**
+         * whether to keep watching changes and re-execute test cases
+         */
+        public boolean watch = false;
+
+        /**
+         * whether to record timings into the timing history and compare them with
+         * previous runs
+         */
+        public boolean history = true;
+
+        /**
+         * whether to run stress test instead of test cases
+         */
+        public boolean stress = false;
+
+        /**
+         * number of random cases of stress test
+         */
+        public int stressCases = 1000;
+
+        /**
+         * size passed to the generator of stress test
+         */
+        public int stressSize = 100;
+
+        /**
+         * maximum size of the task passed to the generator by scaling test (0
+         * unless scaling test, -1 for the maximum size detected from the
+         * constraints)
+         */
+        public int scalingMaxSize = 0;
+
+        /**
+         * number of runs of each size of scaling test
+         */
+        public int scalingRepeats = 5;
+
+        /**
+         * whether to benchmark ways to read input and write output instead of
+         * test cases
+         */
+        public boolean ioBenchmark = false;
+
+        /**
+         * number of integers read and written by I/O benchmark
+         */
+        public int ioTokens = 1_000_000;
+
+        /**
+         * number of differing hunks reported for a failed test case (0 not to
+         * report)
+         */
+        public int diffHunks = 3;
+
+        /**
+         * diff reporting failed test cases (null if not reported)
+         */
+        public OutputDiff diff;
+
+        /**
+         * number of hot methods and allocation sites shown by --profile (0 unless
+         * profiling)
+         */
+        public int profileTop = 0;
+
+        /**
+         * profiler recording each test case (null unless profiling)
+         */
+        public Profiler profiler;
+
+        /**
+         * whether to define classes of Main again for each test case executed in
+         * this JVM, so static fields never carry over
+         */
+        public boolean freshClasses = true;
+
+        /**
+         * samples of the task to execute instead of test data, read from the
+         * sample archive (null unless --archive)
+         */
+        public SampleArchive.Entry archived;
+
+        /**
+         * Main::main compiled from Main.java
+         */
+        public InProcessRunner.Program main;
+
+        /**
+         * class loader of compiled sources
+         */
+        public BytecodeClassLoader classes;
+
+        /**
+         * generator of random inputs
+         */
+        public InProcessRunner.Program generator;
+
+        /**
+         * reference solution which outputs expected outputs
+         */
+        public InProcessRunner.Program reference;
+
+        /**
+         * class name of the generator
+         */
+        private String generatorName = "Generator";
+
+        /**
+         * class name of the reference solution
+         */
+        private String referenceName = "Reference";
+
+        /**
+         * whether number of threads is specified
+         */
+        private boolean threadsSpecified = false;
+
+        /**
+         * whether time limit is specified
+         */
+        private boolean timeLimitSpecified = false;
+
+        /**
+         * whether memory limit is specified
+         */
+        private boolean memoryLimitSpecified = false;
+
+        /**
+         * name of the checker ("exact", "tolerance" or class name of a special
+         * judge)
+         */
+        private String checkerName = "exact";
+
+        /**
+         * allowed absolute or relative error of tolerance checker
+         */
+        private double tolerance = 1e-6;
+
+        /**
+         * parse command line options
+         * 
+         * @param args     command line arguments
+         * @param metadata metadata of the task whose limits are used unless
+         *                 specified
+         * @return parsed options
+         * @throws IllegalArgumentException if an argument is invalid
+         */
+        public static Options parse(String[] args, TaskMetadata metadata) {
+            Options options = new Options();
+            for (String arg : args) {
+                if (arg.equals("--parallel")) {
+                    options.threads = Runtime.getRuntime().availableProcessors();
+                    options.threadsSpecified = true;
+                } else if (arg.startsWith("--parallel=")) {
+                    options.threads = parsePositiveInt(arg);
+                    options.threadsSpecified = true;
+                } else if (arg.equals("--isolated")) {
+                    options.isolated = true;
+                } else if (arg.startsWith("--recycle=")) {
+                    options.recycleAfter = parsePositiveInt(arg);
+                } else if (arg.startsWith("--time-limit=")) {
+                    options.cpuLimitNanos = parseSecondsAsNanos(arg);
+                    options.timeLimitSpecified = true;
+                } else if (arg.startsWith("--stall-limit=")) {
+                    options.wallLimitNanos = parseSecondsAsNanos(arg);
+                } else if (arg.equals("--benchmark")) {
+                    options.benchmark = true;
+                } else if (arg.startsWith("--warmup=")) {
+                    options.warmupRuns = parseNonNegativeInt(arg);
+                } else if (arg.startsWith("--measure=")) {
+                    options.measuredRuns = parsePositiveInt(arg);
+                } else if (arg.startsWith("--memory-limit=")) {
+                    options.memoryLimitBytes = parsePositiveInt(arg) * 1024L * 1024;
+                    options.memoryLimitSpecified = true;
+                } else if (arg.startsWith("--checker=")) {
+                    options.checkerName = arg.substring(arg.indexOf('=') + 1);
+                } else if (arg.startsWith("--tolerance=")) {
+                    options.tolerance = parsePositiveDouble(arg);
+                } else if (arg.equals("--watch")) {
+                    options.watch = true;
+                } else if (arg.equals("--shared-classes")) {
+                    options.freshClasses = false;
+                } else if (arg.equals("--no-history")) {
+                    options.history = false;
+                } else if (arg.equals("--stress")) {
+                    options.stress = true;
+                } else if (arg.startsWith("--stress=")) {
+                    options.stress = true;
+                    options.stressCases = parsePositiveInt(arg);
+                } else if (arg.startsWith("--stress-size=")) {
+                    options.stressSize = parsePositiveInt(arg);
+                } else if (arg.equals("--scaling")) {
+                    options.scalingMaxSize = -1;
+                } else if (arg.startsWith("--scaling=")) {
+                    options.scalingMaxSize = parsePositiveInt(arg);
+                } else if (arg.startsWith("--scaling-repeats=")) {
+                    options.scalingRepeats = parsePositiveInt(arg);
+                } else if (arg.equals("--profile")) {
+                    options.profileTop = 5;
+                } else if (arg.startsWith("--profile=")) {
+                    options.profileTop = parsePositiveInt(arg);
+                } else if (arg.startsWith("--diff=")) {
+                    options.diffHunks = parseNonNegativeInt(arg);
+                } else if (arg.equals("--io-benchmark")) {
+                    options.ioBenchmark = true;
+                } else if (arg.startsWith("--io-benchmark=")) {
+                    options.ioBenchmark = true;
+                    options.ioTokens = parsePositiveInt(arg);
+                } else if (arg.startsWith("--archive=")) {
+                    options.archived = loadArchivedSamples(arg.substring(arg.indexOf('=') + 1));
+                    metadata = options.archived.metadata;
+                } else if (arg.startsWith("--generator=")) {
+                    options.generatorName = arg.substring(arg.indexOf('=') + 1);
+                } else if (arg.startsWith("--reference=")) {
+                    options.referenceName = arg.substring(arg.indexOf('=') + 1);
+                } else {
+                    throw new IllegalArgumentException("Undefined option \"" + arg + "\"");
+                }
+            }
+            if (!options.timeLimitSpecified && metadata.timeLimitMillis > 0) {
+                options.cpuLimitNanos = TimeUnit.MILLISECONDS.toNanos(metadata.timeLimitMillis);
+            }
+            if (!options.memoryLimitSpecified && metadata.memoryLimitMegabytes > 0) {
+                options.memoryLimitBytes = metadata.memoryLimitMegabytes * 1024L * 1024;
+            }
+            if (options.scalingMaxSize < 0) {
+                if (metadata.maxSize <= 0 || metadata.maxSize > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException(
+                            "--scaling needs N since the maximum size of the task is not detected");
+                }
+                options.scalingMaxSize = (int) metadata.maxSize;
+            }
+            if (options.diffHunks > 0) {
+                options.diff = new OutputDiff(options.diffHunks);
+            }
+            if (options.wallLimitNanos < 0) {
+                options.wallLimitNanos = options.cpuLimitNanos * 2;
+            }
+            if (options.benchmark && options.isolated) {
+                throw new IllegalArgumentException("--benchmark can't be used with --isolated");
+            }
+            if (options.stress) {
+                if (options.isolated || options.benchmark || options.watch) {
+                    throw new IllegalArgumentException(
+                            "--stress can't be used with --isolated, --benchmark or --watch");
+                }
+                if (!options.threadsSpecified) {
+                    // stress test runs on all cores unless specified
+                    options.threads = Runtime.getRuntime().availableProcessors();
+                }
+            }
+            if (options.ioBenchmark && (options.isolated || options.benchmark || options.watch || options.stress)) {
+                throw new IllegalArgumentException(
+                        "--io-benchmark can't be used with --isolated, --benchmark, --watch or --stress");
+            }
+            if (options.scalingMaxSize > 0 && (options.isolated || options.benchmark || options.watch
+                    || options.stress || options.ioBenchmark)) {
+                throw new IllegalArgumentException(
+                        "--scaling can't be used with --isolated, --benchmark, --watch, --stress or --io-benchmark");
+            }
+            if (options.archived != null && (options.isolated || options.benchmark || options.watch
+                    || options.stress || options.ioBenchmark || options.scalingMaxSize != 0)) {
+                throw new IllegalArgumentException("--archive can't be used with --isolated, --benchmark, --watch, "
+                        + "--stress, --io-benchmark or --scaling");
+            }
+            if (options.profileTop > 0) {
+                if (options.isolated || options.benchmark || options.stress || options.ioBenchmark
+                        || options.scalingMaxSize > 0 || options.archived != null) {
+                    throw new IllegalArgumentException("--profile can't be used with --isolated, --benchmark, "
+                            + "--stress, --io-benchmark, --scaling or --archive");
+                }
+                options.profiler = new Profiler(Paths.get(Constants.TEST_PROFILE_FOLDER), options.profileTop);
+                // sampling slows down test cases, so their timings are not comparable
+                options.history = false;
+            }
+            return options;
+        }
+
+        /**
+         * get source files to compile, which are Main.java and sources of user
+         * classes specified by options (classes without source file are loaded
+         * from the class path)
+         * 
+         * FastIO.java is compiled too if Main.java uses FastIO without a copy of
+         * it, since package-private classes on the class path can't be accessed
+         * from classes of Main defined by another class loader.
+         * 
+         * @return source files
+         */
+        public List<Path> getSourceFilePaths() {
+            List<String> classNames = new ArrayList<>();
+            if (!checkerName.equals("exact") && !checkerName.equals("tolerance")) {
+                classNames.add(checkerName);
+            }
+            if (stress || scalingMaxSize > 0) {
+                classNames.add(generatorName);
+            }
+            if (stress) {
+                classNames.add(referenceName);
+            }
+
+            List<Path> sourceFilePaths = new ArrayList<>();
+            sourceFilePaths.add(Paths.get(Constants.MAIN_SOURCE_FILE));
+            for (String className : classNames) {
+                Path sourceFilePath = Paths.get(className + ".java");
+                if (Files.isRegularFile(sourceFilePath) && !sourceFilePaths.contains(sourceFilePath)) {
+                    sourceFilePaths.add(sourceFilePath);
+                }
+            }
+            if (usesFastIoWithoutCopy()) {
+                sourceFilePaths.add(Paths.get(FastIO.class.getSimpleName() + ".java"));
+            }
+            return sourceFilePaths;
+        }
+
+        /**
+         * check if Main.java uses FastIO without a copy of it, which compiles
+         * here but fails to compile on AtCoder
+         * 
+         * @return true if FastIO.java has to be compiled with Main.java
+         */
+        public boolean usesFastIoWithoutCopy() {
+            if (!Files.isRegularFile(Paths.get(FastIO.class.getSimpleName() + ".java"))) {
+                return false;
+            }
+            try {
+                String source = Files.readString(Paths.get(Constants.MAIN_SOURCE_FILE));
+                return source.contains("FastIO") && !Pattern.compile("\\bclass\\s+FastIO\\b").matcher(source).find();
+            } catch (IOException e) {
+                // failure to read Main.java is reported by the compiler
+                return false;
+            }
+        }
+
+        /**
+         * load Main and user classes specified by options
+         * 
+         * @param classLoader class loader of compiled sources
+         * @throws IllegalArgumentException if a class is not usable
+         */
+        public void loadClasses(BytecodeClassLoader classLoader) {
+            classes = classLoader;
+            main = InProcessRunner.loadProgram("Main", classLoader);
+            checker = createChecker(checkerName, tolerance, classLoader);
+            if (stress || scalingMaxSize > 0) {
+                generator = InProcessRunner.loadProgram(generatorName, classLoader);
+            }
+            if (stress) {
+                reference = InProcessRunner.loadProgram(referenceName, classLoader);
+            }
+        }
+
+        /**
+         * read samples of a task from the sample archive saved by AtCoderHelper
+         * 
+         * @param task task name with contest name like "abc300_a"
+         * @return archived samples and metadata of the task
+         * @throws IllegalArgumentException if the task is not in the archive or
+         *                                  failed to read the archive
+         */
+        private static SampleArchive.Entry loadArchivedSamples(String task) {
+            SampleArchive archive = new SampleArchive(Paths.get(Constants.SAMPLE_ARCHIVE_FILE),
+                    Paths.get(Constants.SAMPLE_INDEX_FILE));
+            SampleArchive.Entry entry;
+            try {
+                entry = archive.get(task);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Failed to read the sample archive: " + e.getLocalizedMessage());
+            }
+            if (entry == null) {
+                throw new IllegalArgumentException("\"" + task + "\" is not in the sample archive "
+                        + "(import it with the archive command of AtCoderHelper)");
+            }
+            return entry;
+        }
+
+        /**
+         * create checker specified by name
+         * 
+         * @param name        "exact", "tolerance" or class name of a special judge
+         * @param tolerance   allowed error of tolerance checker
+         * @param classLoader class loader to load special judge with
+         * @return checker
+         * @throws IllegalArgumentException if the class is not a usable checker
+         */
+        private static Checker createChecker(String name, double tolerance, ClassLoader classLoader) {
+            switch (name) {
+                case "exact":
+                    return new OutputComparator();
+                case "tolerance":
+                    return new ToleranceChecker(tolerance);
+                default:
+                    break;
+            }
+            try {
+                Object checker = Class.forName(name, true, classLoader).getDeclaredConstructor().newInstance();
+                if (checker instanceof Checker) {
+                    return (Checker) checker;
+                }
+                throw new IllegalArgumentException("Checker \"" + name + "\" doesn't implement Checker");
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Failed to create checker \"" + name + "\": " + e);
+            }
+        }
+
+        /**
+         * parse value of "--name=value" style option as non-negative integer
+         * 
+         * @param arg option to parse
+         * @return parsed value
+         * @throws IllegalArgumentException if the value is not a non-negative
+         *                                  integer
+         */
+        private static int parseNonNegativeInt(String arg) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            try {
+                int parsed = Integer.parseInt(value);
+                if (parsed >= 0) {
+                    return parsed;
+                }
+            } catch (NumberFormatException e) {
+                // fall through
+            }
+            throw new IllegalArgumentException("Invalid value \"" + value + "\" for option " + arg);
+        }
+
+        /**
+         * parse value of "--name=value" style option as positive number
+         * 
+         * @param arg option to parse
+         * @return parsed value
+         * @throws IllegalArgumentException if the value is not a positive number
+         */
+        private static double parsePositiveDouble(String arg) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            try {
+                double parsed = Double.parseDouble(value);
+                if (parsed > 0) {
+                    return parsed;
+                }
+            } catch (NumberFormatException e) {
+                // fall through
+            }
+            throw new IllegalArgumentException("Invalid value \"" + value + "\" for option " + arg);
+        }
+
+        /**
+         * parse value of "--name=value" style option as positive seconds
+         * 
+         * @param arg option to parse
+         * @return parsed value in nanoseconds
+         * @throws IllegalArgumentException if the value is not a positive number
+         */
+        private static long parseSecondsAsNanos(String arg) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            try {
+                double parsed = Double.parseDouble(value);
+                if (parsed > 0) {
+                    return (long) (parsed * 1_000_000_000L);
+                }
+            } catch (NumberFormatException e) {
+                // fall through
+            }
+            throw new IllegalArgumentException("Invalid value \"" + value + "\" for option " + arg);
+        }
+
+        /**
+         * parse value of "--name=value" style option as positive integer
+         * 
+         * @param arg option to parse
+         * @return parsed value
+         * @throws IllegalArgumentException if the value is not a positive integer
+         */
+        private static int parsePositiveInt(String arg) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            try {
+                int parsed = Integer.parseInt(value);
+                if (parsed > 0) {
+                    return parsed;
+                }
+            } catch (NumberFormatException e) {
+                // fall through
+            }
+            throw new IllegalArgumentException("Invalid value \"" + value + "\" for option " + arg);
+        }
+    }
+
 }
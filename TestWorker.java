@@ -0,0 +1,275 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * worker process which executes Main::main for each request sent by
+ * {@link WorkerPool}
+ *
+ * requests and responses are exchanged through stdin and stdout of this
+ * process, so Main reads and writes in-memory buffers of each test case
+ * instead
+ *
+ * classes of Main are defined again for each request, so static fields of Main
+ * never carry over from former test cases executed by the same worker
+ */
+public class TestWorker {
+
+    /**
+     * Main::main returned normally
+     */
+    public static final byte STATUS_SUCCEEDED = 0;
+
+    /**
+     * Main::main threw an exception
+     */
+    public static final byte STATUS_EXCEPTION = 1;
+
+    /**
+     * Main::main called System.exit
+     */
+    public static final byte STATUS_EXITED = 2;
+
+    /**
+     * Main::main exceeded the CPU time limit
+     */
+    public static final byte STATUS_TIME_LIMIT_EXCEEDED = 3;
+
+    /**
+     * Main::main exceeded the wall-clock time limit without exceeding the CPU
+     * time limit
+     */
+    public static final byte STATUS_STALLED = 4;
+
+    /**
+     * Main::main threw OutOfMemoryError
+     */
+    public static final byte STATUS_OUT_OF_MEMORY = 5;
+
+    /**
+     * memory usage of a test case which didn't finish normally
+     */
+    private static final MemoryMeter.Usage NO_USAGE = new MemoryMeter.Usage(0, 0, 0, 0, 0);
+
+    /**
+     * channel to send responses to the pool
+     */
+    private static DataOutputStream responseStream;
+
+    /**
+     * stdout of the running test case (null if no test case is running)
+     */
+    private static volatile PrintStream currentOutput;
+
+    /**
+     * buffer capturing stdout of the running test case
+     */
+    private static volatile OutputBuffer currentBuffer;
+
+    /**
+     * file to save stdout of the running test case into
+     */
+    private static volatile Path currentOutputPath;
+
+    /**
+     * watch of the running test case
+     */
+    private static volatile Watchdog.Watch currentWatch;
+
+    /**
+     * memory measurement of the running test case
+     */
+    private static volatile MemoryMeter.Measurement currentMeasurement;
+
+    /**
+     * entry point of the worker process
+     *
+     * @param args folder of compiled classes of Main
+     */
+    public static void main(String[] args) {
+
+        // keep original stdin and stdout as channel before replacing them
+        DataInputStream requestStream = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(FileDescriptor.in)));
+        responseStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        System.setIn(InputStream.nullInputStream());
+        System.setOut(new PrintStream(FileOutputStream.nullOutputStream()));
+
+        // report test case which ended with System.exit
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            PrintStream out = currentOutput;
+            Watchdog.Watch watch = currentWatch;
+            MemoryMeter.Measurement measurement = currentMeasurement;
+            if (out != null && watch != null && measurement != null && watch.finish()) {
+                MemoryMeter.Usage usage = measurement.finish();
+                out.close();
+                try {
+                    currentBuffer.writeTo(currentOutputPath);
+                    sendResponse(STATUS_EXITED, watch.getWallNanos(), watch.getCpuNanos(), usage,
+                            "exited by System.exit");
+                } catch (IOException e) {
+                    sendResponse(STATUS_EXCEPTION, 0, 0, NO_USAGE,
+                            "failed to save output: " + e.getLocalizedMessage());
+                }
+            }
+        }));
+
+        BytecodeClassLoader classes;
+        try {
+            // read and check Main in advance so the first test case doesn't pay for it
+            classes = BytecodeClassLoader.load(Paths.get(args[0]), TestWorker.class.getClassLoader());
+            Class.forName("Main", false, classes).getMethod("main", String[].class);
+        } catch (IOException | ClassNotFoundException | NoSuchMethodException e) {
+            System.err.println("failed to load Main: " + e.getLocalizedMessage());
+            return;
+        }
+
+        Watchdog watchdog = new Watchdog();
+        // each worker executes one test case at a time
+        MemoryMeter memoryMeter = new MemoryMeter(true);
+        while (true) {
+            String inputPath;
+            String outputPath;
+            long cpuLimitNanos;
+            long wallLimitNanos;
+            try {
+                inputPath = requestStream.readUTF();
+                outputPath = requestStream.readUTF();
+                cpuLimitNanos = requestStream.readLong();
+                wallLimitNanos = requestStream.readLong();
+            } catch (EOFException e) {
+                // the pool has closed this worker
+                return;
+            } catch (IOException e) {
+                System.err.println("failed to read request: " + e.getLocalizedMessage());
+                return;
+            }
+
+            executeTestCase(classes, inputPath, outputPath, cpuLimitNanos, wallLimitNanos, watchdog, memoryMeter);
+        }
+    }
+
+    /**
+     * execute a test case and send its response
+     *
+     * input is loaded, classes of Main are defined again and output is captured
+     * in memory, so neither disk I/O nor class loading is included in the
+     * measured time
+     *
+     * @param classes        class loader of Main
+     * @param inputPath      input file of the test case
+     * @param outputPath     file to save the output into
+     * @param cpuLimitNanos  limit of CPU time
+     * @param wallLimitNanos limit of wall-clock time
+     * @param watchdog       watchdog to judge the limits with
+     * @param memoryMeter    meter to measure memory usage with
+     */
+    private static void executeTestCase(BytecodeClassLoader classes, String inputPath, String outputPath,
+            long cpuLimitNanos, long wallLimitNanos, Watchdog watchdog, MemoryMeter memoryMeter) {
+        byte[] input;
+        Method mainMethod;
+        try {
+            input = Files.readAllBytes(Paths.get(inputPath));
+            // initialize Main when called, since its static fields may refer to stdin
+            mainMethod = Class.forName("Main", false, classes.renew()).getMethod("main", String[].class);
+        } catch (IOException | ReflectiveOperationException | IllegalStateException e) {
+            sendResponse(STATUS_EXCEPTION, 0, 0, NO_USAGE, "failed to execute: " + e.getLocalizedMessage());
+            return;
+        }
+
+        OutputBuffer buffer = new OutputBuffer();
+        try (PrintStream out = new PrintStream(buffer)) {
+            System.setIn(new ByteArrayInputStream(input));
+            System.setOut(out);
+
+            byte status = STATUS_SUCCEEDED;
+            String message = "";
+
+            currentBuffer = buffer;
+            currentOutputPath = Paths.get(outputPath);
+            currentOutput = out;
+            // start memory measurement first since it may collect garbage
+            currentMeasurement = memoryMeter.start();
+            currentWatch = watchdog.watch(cpuLimitNanos, wallLimitNanos, TestWorker::reportExceeded);
+            try {
+                mainMethod.invoke(null, (Object) new String[0]);
+            } catch (InvocationTargetException e) {
+                status = e.getCause() instanceof OutOfMemoryError ? STATUS_OUT_OF_MEMORY : STATUS_EXCEPTION;
+                message = e.getCause().toString();
+            } catch (IllegalAccessException e) {
+                status = STATUS_EXCEPTION;
+                message = e.toString();
+            }
+            Watchdog.Watch watch = currentWatch;
+            boolean finished = watch.finish();
+            MemoryMeter.Usage usage = currentMeasurement.finish();
+            currentOutput = null;
+            currentWatch = null;
+            currentMeasurement = null;
+
+            if (finished) {
+                out.flush();
+                buffer.writeTo(Paths.get(outputPath));
+                sendResponse(status, watch.getWallNanos(), watch.getCpuNanos(), usage, message);
+            }
+        } catch (IOException e) {
+            sendResponse(STATUS_EXCEPTION, 0, 0, NO_USAGE, "failed to save output: " + e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * report the test case exceeding a limit and stop this worker, since the
+     * thread running Main::main can't be stopped safely
+     *
+     * @param watch watch of the test case
+     */
+    private static void reportExceeded(Watchdog.Watch watch) {
+        byte status = watch.getState() == Watchdog.Watch.TIME_LIMIT_EXCEEDED ? STATUS_TIME_LIMIT_EXCEEDED
+                : STATUS_STALLED;
+        sendResponse(status, watch.getWallNanos(), watch.getCpuNanos(), NO_USAGE, "");
+
+        // skip shutdown hook not to report the test case again
+        Runtime.getRuntime().halt(1);
+    }
+
+    /**
+     * send a response to the pool
+     *
+     * @param status        one of STATUS_XXX
+     * @param elapsedNanos  elapsed time of Main::main in nanoseconds
+     * @param cpuNanos      CPU time of Main::main in nanoseconds
+     * @param memory        memory usage of Main::main
+     * @param message       detail of the status
+     */
+    private static synchronized void sendResponse(byte status, long elapsedNanos, long cpuNanos,
+            MemoryMeter.Usage memory, String message) {
+        try {
+            responseStream.writeByte(status);
+            responseStream.writeLong(elapsedNanos);
+            responseStream.writeLong(cpuNanos);
+            responseStream.writeLong(memory.allocatedBytes);
+            responseStream.writeLong(memory.peakHeapBytes);
+            responseStream.writeLong(memory.liveHeapBytes);
+            responseStream.writeLong(memory.gcCount);
+            responseStream.writeLong(memory.gcMillis);
+            responseStream.writeUTF(message);
+            responseStream.flush();
+        } catch (IOException e) {
+            System.err.println("failed to send response: " + e.getLocalizedMessage());
+        }
+    }
+}
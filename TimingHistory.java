@@ -0,0 +1,397 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * history of timings of test cases kept in an append-only binary file
+ *
+ * each record is keyed by task, hash of the input and hash of Main.java, so
+ * a run can be compared with the best previous version of Main on the same
+ * input. a truncated record at the end of the file (written by an interrupted
+ * run) is ignored.
+ */
+public class TimingHistory {
+
+    /**
+     * test cases executed on threads of TestExecutor's JVM, sharing classes of
+     * Main
+     */
+    public static final byte MODE_IN_PROCESS = 0;
+
+    /**
+     * test cases executed on worker JVMs
+     */
+    public static final byte MODE_ISOLATED = 1;
+
+    /**
+     * test cases measured by repeated runs after warmup
+     */
+    public static final byte MODE_BENCHMARK = 2;
+
+    /**
+     * test cases executed on threads of TestExecutor's JVM, with classes of
+     * Main defined again for each test case
+     */
+    public static final byte MODE_FRESH_CLASSES = 3;
+
+    /**
+     * how many standard errors a run must be slower than the best to be a
+     * regression (about 0.1% false alarms for normally distributed timings)
+     */
+    private static final double REGRESSION_THRESHOLD = 3.0;
+
+    /**
+     * relative part of the least standard deviation assumed for timings, since
+     * a single run tells nothing about its noise
+     */
+    private static final double NOISE_RATIO = 0.05;
+
+    /**
+     * absolute part of the least standard deviation assumed for timings (timer
+     * resolution and scheduling of short runs)
+     */
+    private static final double NOISE_NANOS = 1_000_000;
+
+    private final Path historyFilePath;
+
+    /**
+     * constructor
+     *
+     * @param historyFilePath file to keep records in
+     */
+    public TimingHistory(Path historyFilePath) {
+        this.historyFilePath = historyFilePath;
+    }
+
+    /**
+     * load records of a task
+     *
+     * @param task task of the records
+     * @return records in order of appending (empty if there is no history)
+     * @throws IOException if failed to read the file
+     */
+    public List<Record> load(String task) throws IOException {
+        List<Record> records = new ArrayList<>();
+        if (!Files.exists(historyFilePath)) {
+            return records;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(historyFilePath)))) {
+            while (true) {
+                Record record = Record.read(in);
+                if (record.task.equals(task)) {
+                    records.add(record);
+                }
+            }
+        } catch (EOFException e) {
+            // end of the history
+        }
+        return records;
+    }
+
+    /**
+     * append records to the file
+     *
+     * @param records records to append
+     * @throws IOException if failed to write the file
+     */
+    public void append(List<Record> records) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (Record record : records) {
+                record.write(out);
+            }
+        }
+        // append at once, so records of concurrent runs are never interleaved
+        Files.createDirectories(historyFilePath.toAbsolutePath().getParent());
+        Files.write(historyFilePath, bytes.toByteArray(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * compare a record with the fastest version of Main in the history, which
+     * succeeded on the same input in the same mode
+     *
+     * versions are compared by Welch's t-test on wall-clock time. runs of the
+     * same version are pooled, and standard deviations are at least the noise
+     * assumed for timings, so single runs can be compared too.
+     *
+     * @param history records of the task before the record
+     * @param current record to compare
+     * @return description of the slowdown, or null if not significantly slower
+     */
+    public static String findRegression(List<Record> history, Record current) {
+        if (!current.accepted) {
+            return null;
+        }
+        Map<Long, Pool> pools = new HashMap<>();
+        for (Record record : history) {
+            if (record.accepted && record.inputHash == current.inputHash && record.mode == current.mode) {
+                pools.computeIfAbsent(record.sourceHash, hash -> new Pool()).add(record);
+            }
+        }
+        Pool best = null;
+        for (Pool pool : pools.values()) {
+            if (best == null || pool.mean < best.mean) {
+                best = pool;
+            }
+        }
+        if (best == null || current.meanNanos <= best.mean) {
+            return null;
+        }
+
+        double bestError = square(withNoise(best.getStddev(), best.mean)) / best.count;
+        double currentError = square(withNoise(current.stddevNanos, current.meanNanos)) / current.runs;
+        double t = (current.meanNanos - best.mean) / Math.sqrt(bestError + currentError);
+        if (t < REGRESSION_THRESHOLD) {
+            return null;
+        }
+        return String.format("%s -> %s (+%.1f%%, t = %.1f) from the best version %08x of %d run(s)",
+                TimingStatistics.toMillisText(best.mean), TimingStatistics.toMillisText(current.meanNanos),
+                (current.meanNanos / best.mean - 1) * 100, t, best.sourceHash >>> 32, best.records);
+    }
+
+    /**
+     * calculate hash of a file
+     *
+     * @param path file to hash
+     * @return first 64 bits of SHA-256 of the content
+     * @throws IOException if failed to read the file
+     */
+    public static long hash(Path path) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] bytes = digest.digest(Files.readAllBytes(path));
+        long hash = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            hash = (hash << 8) | (bytes[i] & 0xff);
+        }
+        return hash;
+    }
+
+    /**
+     * raise standard deviation to the noise assumed for timings
+     *
+     * @param stddev standard deviation in nanoseconds
+     * @param mean   mean in nanoseconds
+     * @return standard deviation at least the noise
+     */
+    private static double withNoise(double stddev, double mean) {
+        return Math.max(stddev, mean * NOISE_RATIO + NOISE_NANOS);
+    }
+
+    /**
+     * square a number
+     *
+     * @param x number
+     * @return x * x
+     */
+    private static double square(double x) {
+        return x * x;
+    }
+
+    /**
+     * timings of runs of a version of Main pooled together
+     */
+    private static class Pool {
+
+        private long sourceHash;
+        private int records = 0;
+        private long count = 0;
+        private double mean = 0;
+        private double squareSum = 0;
+
+        /**
+         * add runs of a record (combining means and variances of groups)
+         *
+         * @param record record to add
+         */
+        public void add(Record record) {
+            sourceHash = record.sourceHash;
+            records++;
+            long total = count + record.runs;
+            double delta = record.meanNanos - mean;
+            squareSum += square(record.stddevNanos) * (record.runs - 1)
+                    + square(delta) * count * record.runs / total;
+            mean += delta * record.runs / total;
+            count = total;
+        }
+
+        /**
+         * get sample standard deviation of pooled runs
+         *
+         * @return standard deviation in nanoseconds (0 if a single run)
+         */
+        public double getStddev() {
+            return count > 1 ? Math.sqrt(squareSum / (count - 1)) : 0;
+        }
+    }
+
+    /**
+     * timing of a test case measured by TestExecutor
+     */
+    public static class Timing {
+
+        /**
+         * whether the output was accepted
+         */
+        public final boolean accepted;
+
+        /**
+         * how the test case was executed (MODE_*)
+         */
+        public final byte mode;
+
+        /**
+         * number of measured runs
+         */
+        public final int runs;
+
+        /**
+         * mean of wall-clock time in nanoseconds
+         */
+        public final double meanNanos;
+
+        /**
+         * sample standard deviation of wall-clock time in nanoseconds (0 if a
+         * single run)
+         */
+        public final double stddevNanos;
+
+        /**
+         * CPU time in nanoseconds (of the first run if repeated)
+         */
+        public final long cpuNanos;
+
+        /**
+         * peak of heap in use (of the first run if repeated, -1 if not
+         * measured)
+         */
+        public final long peakHeapBytes;
+
+        /**
+         * constructor
+         *
+         * @param accepted      whether the output was accepted
+         * @param mode          how the test case was executed
+         * @param runs          number of measured runs
+         * @param meanNanos     mean of wall-clock time
+         * @param stddevNanos   standard deviation of wall-clock time
+         * @param cpuNanos      CPU time
+         * @param peakHeapBytes peak of heap in use
+         */
+        public Timing(boolean accepted, byte mode, int runs, double meanNanos, double stddevNanos, long cpuNanos,
+                long peakHeapBytes) {
+            this.accepted = accepted;
+            this.mode = mode;
+            this.runs = runs;
+            this.meanNanos = meanNanos;
+            this.stddevNanos = stddevNanos;
+            this.cpuNanos = cpuNanos;
+            this.peakHeapBytes = peakHeapBytes;
+        }
+    }
+
+    /**
+     * timing of a test case in the history
+     */
+    public static class Record extends Timing {
+
+        /**
+         * time when recorded in milliseconds since the epoch
+         */
+        public final long recordedMillis;
+
+        /**
+         * task of the test case
+         */
+        public final String task;
+
+        /**
+         * hash of the input of the test case
+         */
+        public final long inputHash;
+
+        /**
+         * hash of Main.java
+         */
+        public final long sourceHash;
+
+        /**
+         * constructor
+         *
+         * @param recordedMillis time when recorded
+         * @param task           task of the test case
+         * @param inputHash      hash of the input
+         * @param sourceHash     hash of Main.java
+         * @param timing         timing of the test case
+         */
+        public Record(long recordedMillis, String task, long inputHash, long sourceHash, Timing timing) {
+            super(timing.accepted, timing.mode, timing.runs, timing.meanNanos, timing.stddevNanos, timing.cpuNanos,
+                    timing.peakHeapBytes);
+            this.recordedMillis = recordedMillis;
+            this.task = task;
+            this.inputHash = inputHash;
+            this.sourceHash = sourceHash;
+        }
+
+        /**
+         * read a record
+         *
+         * @param in stream to read from
+         * @return read record
+         * @throws EOFException if the stream ends (even in the middle of a record)
+         * @throws IOException  if failed to read
+         */
+        private static Record read(DataInputStream in) throws IOException {
+            long recordedMillis = in.readLong();
+            String task = in.readUTF();
+            long inputHash = in.readLong();
+            long sourceHash = in.readLong();
+            boolean accepted = in.readBoolean();
+            byte mode = in.readByte();
+            int runs = in.readInt();
+            double meanNanos = in.readDouble();
+            double stddevNanos = in.readDouble();
+            long cpuNanos = in.readLong();
+            long peakHeapBytes = in.readLong();
+            return new Record(recordedMillis, task, inputHash, sourceHash,
+                    new Timing(accepted, mode, runs, meanNanos, stddevNanos, cpuNanos, peakHeapBytes));
+        }
+
+        /**
+         * write the record
+         *
+         * @param out stream to write to
+         * @throws IOException if failed to write
+         */
+        private void write(DataOutputStream out) throws IOException {
+            out.writeLong(recordedMillis);
+            out.writeUTF(task);
+            out.writeLong(inputHash);
+            out.writeLong(sourceHash);
+            out.writeBoolean(accepted);
+            out.writeByte(mode);
+            out.writeInt(runs);
+            out.writeDouble(meanNanos);
+            out.writeDouble(stddevNanos);
+            out.writeLong(cpuNanos);
+            out.writeLong(peakHeapBytes);
+        }
+    }
+}
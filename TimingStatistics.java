@@ -0,0 +1,99 @@
+import java.util.Arrays;
+
+/**
+ * statistics of timings measured by repeated runs
+ */
+public class TimingStatistics {
+
+    /**
+     * number of samples
+     */
+    public final int count;
+
+    /**
+     * minimum in nanoseconds
+     */
+    public final long min;
+
+    /**
+     * median in nanoseconds
+     */
+    public final long median;
+
+    /**
+     * 90th percentile in nanoseconds
+     */
+    public final long p90;
+
+    /**
+     * 99th percentile in nanoseconds
+     */
+    public final long p99;
+
+    /**
+     * mean in nanoseconds
+     */
+    public final double mean;
+
+    /**
+     * sample standard deviation in nanoseconds
+     */
+    public final double stddev;
+
+    /**
+     * constructor
+     *
+     * @param samples timings in nanoseconds (at least one)
+     */
+    public TimingStatistics(long[] samples) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+
+        this.count = sorted.length;
+        this.min = sorted[0];
+        this.median = count % 2 == 1 ? sorted[count / 2] : (sorted[count / 2 - 1] + sorted[count / 2]) / 2;
+        this.p90 = percentile(sorted, 90);
+        this.p99 = percentile(sorted, 99);
+
+        double sum = 0;
+        for (long sample : sorted) {
+            sum += sample;
+        }
+        this.mean = sum / count;
+
+        double squareSum = 0;
+        for (long sample : sorted) {
+            squareSum += (sample - mean) * (sample - mean);
+        }
+        this.stddev = count > 1 ? Math.sqrt(squareSum / (count - 1)) : 0;
+    }
+
+    /**
+     * get percentile by nearest-rank method
+     *
+     * @param sorted  sorted samples
+     * @param percent percentage of the rank
+     * @return sample of the rank
+     */
+    private static long percentile(long[] sorted, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    /**
+     * format nanoseconds as milliseconds
+     *
+     * @param nanos time in nanoseconds
+     * @return formatted text
+     */
+    public static String toMillisText(double nanos) {
+        return String.format("%.3f ms", nanos / 1_000_000);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("min = %s, median = %s, p90 = %s, p99 = %s, stddev = %s, runs = %d",
+                toMillisText(min), toMillisText(median), toMillisText(p90), toMillisText(p99), toMillisText(stddev),
+                count);
+    }
+}
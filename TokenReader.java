@@ -0,0 +1,397 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * reader of whitespace separated tokens on a memory mapped file (or a buffer
+ * in memory)
+ *
+ * bytes are read directly from mapped windows of the file, so reading tokens
+ * allocates nothing regardless of the file size
+ */
+public class TokenReader implements AutoCloseable {
+
+    /**
+     * size of memory mapped window of a file
+     */
+    public static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * maximum length of a token shown in a report
+     */
+    private static final int MAX_REPORTED_TOKEN_LENGTH = 64;
+
+    /**
+     * powers of ten exactly representable as double
+     */
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final FileChannel channel;
+    private ByteBuffer window;
+    private long windowStart = 0;
+    private long windowEnd;
+
+    /**
+     * size of the file
+     */
+    public final long size;
+
+    /**
+     * current position in the file
+     */
+    public long position = 0;
+
+    /**
+     * value of the number parsed last by {@link #readNumber()}
+     */
+    public double number;
+
+    /**
+     * whether the number parsed last by {@link #readNumber()} is an integer
+     * (has neither decimal point nor exponent)
+     */
+    public boolean integer;
+
+    /**
+     * constructor
+     *
+     * @param path file to read
+     * @throws IOException if failed to open the file
+     */
+    public TokenReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.window = map(0, Math.min(size, WINDOW_SIZE));
+        this.windowEnd = window.limit();
+    }
+
+    /**
+     * constructor to read a buffer in memory
+     *
+     * @param buffer bytes between position and limit are read
+     */
+    public TokenReader(ByteBuffer buffer) {
+        this.channel = null;
+        this.window = buffer.slice();
+        this.size = window.limit();
+        this.windowEnd = size;
+    }
+
+    /**
+     * check whether a byte is whitespace
+     *
+     * @param b byte to check
+     * @return true if whitespace
+     */
+    public static boolean isWhitespace(int b) {
+        return b <= ' ' && (b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f' || b == 0x0b);
+    }
+
+    /**
+     * check whether a byte ends a token
+     *
+     * @param b byte to check (-1 for end of file)
+     * @return true if end of file or whitespace
+     */
+    public static boolean isDelimiter(int b) {
+        return b < 0 || isWhitespace(b);
+    }
+
+    /**
+     * get byte at current position
+     *
+     * @return byte at current position as unsigned value, or -1 if end of the
+     *         file
+     * @throws IOException if failed to map the file
+     */
+    public int peek() throws IOException {
+        return byteAt(position);
+    }
+
+    /**
+     * get byte just before current position (must not be the start of the file)
+     *
+     * @return byte before current position as unsigned value
+     * @throws IOException if failed to map the file
+     */
+    public int peekBefore() throws IOException {
+        return byteAt(position - 1);
+    }
+
+    /**
+     * get byte at a position
+     *
+     * @param at position in the file
+     * @return byte at the position as unsigned value, or -1 if end of the file
+     * @throws IOException if failed to map the file
+     */
+    public int byteAt(long at) throws IOException {
+        if (at >= size) {
+            return -1;
+        }
+        if (at < windowStart || at >= windowEnd) {
+            windowStart = Math.max(0, at - WINDOW_SIZE / 2);
+            window = map(windowStart, Math.min(size - windowStart, WINDOW_SIZE));
+            windowEnd = windowStart + window.limit();
+        }
+        return window.get((int) (at - windowStart)) & 0xff;
+    }
+
+    /**
+     * map a region of the file
+     *
+     * @param offset start of the region
+     * @param length length of the region
+     * @return mapped buffer
+     * @throws IOException if failed to map the file
+     */
+    public ByteBuffer map(long offset, long length) throws IOException {
+        if (channel == null) {
+            return window.slice((int) offset, (int) length);
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    }
+
+    /**
+     * move the cursor to the next non-whitespace byte
+     *
+     * @throws IOException if failed to map the file
+     */
+    public void skipWhitespace() throws IOException {
+        while (isWhitespace(peek())) {
+            position++;
+        }
+    }
+
+    /**
+     * move the cursor to the end of current token
+     *
+     * @throws IOException if failed to map the file
+     */
+    public void skipToken() throws IOException {
+        while (!isDelimiter(peek())) {
+            position++;
+        }
+    }
+
+    /**
+     * compare current tokens of two readers and move both cursors to the end of
+     * them if equal
+     *
+     * @param other reader to compare with
+     * @return true if equal (cursors don't move if not equal)
+     * @throws IOException if failed to map the files
+     */
+    public boolean matchToken(TokenReader other) throws IOException {
+        long start = position;
+        long otherStart = other.position;
+        int a = peek();
+        int b = other.peek();
+        while (a == b && !isDelimiter(a)) {
+            position++;
+            other.position++;
+            a = peek();
+            b = other.peek();
+        }
+        if (isDelimiter(a) && isDelimiter(b) && position > start) {
+            return true;
+        }
+        position = start;
+        other.position = otherStart;
+        return false;
+    }
+
+    /**
+     * parse current token as decimal number and move the cursor to the end of
+     * it if succeeded
+     *
+     * the value is set to {@link #number} and {@link #integer}. digits beyond
+     * the precision of long are rounded, which is enough to judge with
+     * tolerance.
+     *
+     * @return true if the token is a number (the cursor doesn't move if not)
+     * @throws IOException if failed to map the file
+     */
+    public boolean readNumber() throws IOException {
+        long start = position;
+        boolean negative = false;
+        int b = peek();
+        if (b == '-' || b == '+') {
+            negative = b == '-';
+            position++;
+            b = peek();
+        }
+
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean isInteger = true;
+        while (b >= '0' && b <= '9') {
+            if (mantissa < Long.MAX_VALUE / 10 - 9) {
+                mantissa = mantissa * 10 + (b - '0');
+            } else {
+                exponent++;
+            }
+            digits++;
+            position++;
+            b = peek();
+        }
+        if (b == '.') {
+            isInteger = false;
+            position++;
+            b = peek();
+            while (b >= '0' && b <= '9') {
+                if (mantissa < Long.MAX_VALUE / 10 - 9) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    exponent--;
+                }
+                digits++;
+                position++;
+                b = peek();
+            }
+        }
+        if (digits > 0 && (b == 'e' || b == 'E')) {
+            isInteger = false;
+            position++;
+            b = peek();
+            boolean negativeExponent = false;
+            if (b == '-' || b == '+') {
+                negativeExponent = b == '-';
+                position++;
+                b = peek();
+            }
+            int explicitExponent = 0;
+            int exponentDigits = 0;
+            while (b >= '0' && b <= '9') {
+                if (explicitExponent < 100_000) {
+                    explicitExponent = explicitExponent * 10 + (b - '0');
+                }
+                exponentDigits++;
+                position++;
+                b = peek();
+            }
+            if (exponentDigits == 0) {
+                digits = 0;
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        if (digits == 0 || !isDelimiter(b)) {
+            position = start;
+            return false;
+        }
+
+        double value = mantissa;
+        if (exponent != 0) {
+            int abs = Math.abs(exponent);
+            double scale = abs < POWERS_OF_TEN.length ? POWERS_OF_TEN[abs] : Math.pow(10, abs);
+            value = exponent > 0 ? value * scale : value / scale;
+        }
+        number = negative ? -value : value;
+        integer = isInteger;
+        return true;
+    }
+
+    /**
+     * skip identical prefix of two files by bulk comparison, and move both
+     * cursors to the start of the token containing the first different byte
+     *
+     * @param actual   reader of a file
+     * @param expected reader of another file
+     * @return true if the files are identical
+     * @throws IOException if failed to map the files
+     */
+    public static boolean skipCommonPrefix(TokenReader actual, TokenReader expected) throws IOException {
+        long length = Math.min(actual.size, expected.size);
+        long offset = 0;
+        while (offset < length) {
+            long chunk = Math.min(length - offset, WINDOW_SIZE);
+            int mismatch = actual.map(offset, chunk).mismatch(expected.map(offset, chunk));
+            if (mismatch >= 0) {
+                length = offset + mismatch;
+                break;
+            }
+            offset += chunk;
+        }
+        if (length == actual.size && length == expected.size) {
+            return true;
+        }
+
+        actual.position = length;
+        expected.position = length;
+        while (actual.position > 0 && !isWhitespace(actual.peekBefore())) {
+            actual.position--;
+            expected.position--;
+        }
+        return false;
+    }
+
+    /**
+     * describe mismatch of tokens at current positions for report
+     *
+     * @param expected reader of expected output
+     * @return description of the mismatch
+     * @throws IOException if failed to map the files
+     */
+    public String describeMismatch(TokenReader expected) throws IOException {
+        // count lines only when reporting, to keep reading fast
+        long line = 1;
+        long lineStart = 0;
+        for (long at = 0; at < position; at++) {
+            if (byteAt(at) == '\n') {
+                line++;
+                lineStart = at + 1;
+            }
+        }
+        long column = position - lineStart + 1;
+        return String.format("line %d, column %d: expected %s but got %s", line, column,
+                describe(expected.readToken()), describe(readToken()));
+    }
+
+    /**
+     * read token at current position for report
+     *
+     * @return token (shortened if too long), or null if end of the file
+     * @throws IOException if failed to map the file
+     */
+    public String readToken() throws IOException {
+        if (peek() < 0) {
+            return null;
+        }
+        byte[] buffer = new byte[MAX_REPORTED_TOKEN_LENGTH];
+        int length = 0;
+        while (!isDelimiter(peek()) && length < buffer.length) {
+            buffer[length++] = (byte) peek();
+            position++;
+        }
+        String token = new String(buffer, 0, length, StandardCharsets.UTF_8);
+        return isDelimiter(peek()) ? token : token + "...";
+    }
+
+    /**
+     * describe a token for report
+     *
+     * @param token token to describe
+     * @return description
+     */
+    private static String describe(String token) {
+        return token == null ? "end of output" : "\"" + token + "\"";
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * checker accepting real numbers within absolute or relative error
+ *
+ * tokens which are numbers with decimal point or exponent are parsed directly
+ * from mapped bytes and compared with tolerance. the other tokens (including
+ * integers) must be exactly equal.
+ */
+public class ToleranceChecker implements Checker {
+
+    private final double tolerance;
+
+    /**
+     * constructor
+     *
+     * @param tolerance allowed absolute or relative error
+     */
+    public ToleranceChecker(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    @Override
+    public Result check(Path inputFilePath, Path outputFilePath, Path answerFilePath) throws IOException {
+        try (TokenReader actual = new TokenReader(outputFilePath);
+                TokenReader expected = new TokenReader(answerFilePath)) {
+            return compare(actual, expected);
+        }
+    }
+
+    @Override
+    public Result check(ByteBuffer input, ByteBuffer output, ByteBuffer answer) throws IOException {
+        return compare(new TokenReader(output), new TokenReader(answer));
+    }
+
+    /**
+     * compare tokens of two readers with tolerance
+     *
+     * @param actual   reader of output
+     * @param expected reader of expected output
+     * @return result of the comparison
+     * @throws IOException if failed to map the files
+     */
+    private Result compare(TokenReader actual, TokenReader expected) throws IOException {
+        if (TokenReader.skipCommonPrefix(actual, expected)) {
+            return Result.ACCEPTED;
+        }
+
+        while (true) {
+            actual.skipWhitespace();
+            expected.skipWhitespace();
+
+            if (actual.peek() < 0 && expected.peek() < 0) {
+                return Result.ACCEPTED;
+            }
+            if (actual.matchToken(expected)) {
+                continue;
+            }
+
+            long actualStart = actual.position;
+            long expectedStart = expected.position;
+            if (expected.readNumber() && actual.readNumber() && !(expected.integer && actual.integer)
+                    && isClose(actual.number, expected.number)) {
+                continue;
+            }
+            actual.position = actualStart;
+            expected.position = expectedStart;
+            return Result.rejected(actual.describeMismatch(expected));
+        }
+    }
+
+    /**
+     * check whether a value is within the tolerance
+     *
+     * @param actual   output value
+     * @param expected expected value
+     * @return true if absolute or relative error is within the tolerance
+     */
+    private boolean isClose(double actual, double expected) {
+        double error = Math.abs(actual - expected);
+        return error <= tolerance || error <= tolerance * Math.abs(expected);
+    }
+}
@@ -0,0 +1,266 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * watchdog which measures CPU time and wall-clock time of running test cases
+ * and reports the ones exceeding their limits
+ */
+public class Watchdog implements AutoCloseable {
+
+    /**
+     * interval to check running test cases
+     */
+    private static final long POLLING_INTERVAL_MILLIS = 10;
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final boolean cpuTimeSupported;
+    private final Set<Watch> watches = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = Executors.defaultThreadFactory().newThread(r);
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * constructor (start watching)
+     */
+    public Watchdog() {
+        boolean supported = threadMXBean.isCurrentThreadCpuTimeSupported();
+        if (supported && !threadMXBean.isThreadCpuTimeEnabled()) {
+            threadMXBean.setThreadCpuTimeEnabled(true);
+        }
+        this.cpuTimeSupported = supported;
+
+        poller.scheduleWithFixedDelay(this::check, POLLING_INTERVAL_MILLIS, POLLING_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * start watching the calling thread
+     *
+     * @param cpuLimitNanos  limit of CPU time of the test case
+     * @param wallLimitNanos limit of wall-clock time of the test case
+     * @param onExceeded     called from the watchdog thread when the test case
+     *                       exceeded a limit
+     * @return watch of the calling thread
+     */
+    public Watch watch(long cpuLimitNanos, long wallLimitNanos, Consumer<Watch> onExceeded) {
+        Watch watch = new Watch(Thread.currentThread(), cpuLimitNanos, wallLimitNanos, onExceeded);
+        watches.add(watch);
+        return watch;
+    }
+
+    /**
+     * stop watching
+     */
+    @Override
+    public void close() {
+        poller.shutdownNow();
+    }
+
+    /**
+     * check all running test cases
+     */
+    private void check() {
+        for (Watch watch : watches) {
+            long cpu = watch.currentCpuNanos();
+            long wall = System.nanoTime() - watch.startWallNanos;
+
+            // CPU time is the limit to judge, wall-clock time only catches stalls
+            // such as sleep or deadlock
+            if (cpuTimeSupported && cpu > watch.cpuLimitNanos) {
+                watch.exceed(Watch.TIME_LIMIT_EXCEEDED, cpu, wall);
+            } else if (wall > watch.wallLimitNanos) {
+                watch.exceed(cpuTimeSupported ? Watch.STALLED : Watch.TIME_LIMIT_EXCEEDED, cpu, wall);
+            }
+        }
+    }
+
+    /**
+     * watch of a test case running on a thread
+     */
+    public class Watch {
+
+        /**
+         * test case is running
+         */
+        public static final int RUNNING = 0;
+
+        /**
+         * test case finished within limits
+         */
+        public static final int FINISHED = 1;
+
+        /**
+         * test case exceeded the CPU time limit
+         */
+        public static final int TIME_LIMIT_EXCEEDED = 2;
+
+        /**
+         * test case exceeded the wall-clock time limit without exceeding the CPU
+         * time limit
+         */
+        public static final int STALLED = 3;
+
+        /**
+         * test case held more heap than the memory limit even after garbage was
+         * collected
+         */
+        public static final int MEMORY_LIMIT_EXCEEDED = 4;
+
+        private final Thread thread;
+        private final long cpuLimitNanos;
+        private final long wallLimitNanos;
+        private final Consumer<Watch> onExceeded;
+        private final long startWallNanos;
+        private final long startCpuNanos;
+        private final AtomicInteger state = new AtomicInteger(RUNNING);
+        private volatile long cpuNanos;
+        private volatile long wallNanos;
+        private volatile long liveHeapBytes;
+
+        /**
+         * constructor (must be called on the thread to watch)
+         *
+         * @param thread         thread to watch
+         * @param cpuLimitNanos  limit of CPU time
+         * @param wallLimitNanos limit of wall-clock time
+         * @param onExceeded     called when the test case exceeded a limit
+         */
+        private Watch(Thread thread, long cpuLimitNanos, long wallLimitNanos, Consumer<Watch> onExceeded) {
+            this.thread = thread;
+            this.cpuLimitNanos = cpuLimitNanos;
+            this.wallLimitNanos = wallLimitNanos;
+            this.onExceeded = onExceeded;
+            this.startCpuNanos = currentThreadCpuNanos();
+            this.startWallNanos = System.nanoTime();
+        }
+
+        /**
+         * finish watching (usually called on the watched thread)
+         *
+         * @return true if finished within limits, false if the test case has
+         *         already been judged as exceeded
+         */
+        public boolean finish() {
+            long wall = System.nanoTime() - startWallNanos;
+            long cpu = Thread.currentThread() == thread ? currentThreadCpuNanos() - startCpuNanos
+                    : currentCpuNanos();
+            watches.remove(this);
+            if (state.compareAndSet(RUNNING, FINISHED)) {
+                cpuNanos = cpu;
+                wallNanos = wall;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * get state of the test case
+         *
+         * @return one of RUNNING, FINISHED, TIME_LIMIT_EXCEEDED, STALLED and
+         *         MEMORY_LIMIT_EXCEEDED
+         */
+        public int getState() {
+            return state.get();
+        }
+
+        /**
+         * get CPU time of the test case (valid after finished or exceeded)
+         *
+         * @return CPU time in nanoseconds (wall-clock time if CPU time is not
+         *         supported)
+         */
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+
+        /**
+         * get wall-clock time of the test case (valid after finished or exceeded)
+         *
+         * @return wall-clock time in nanoseconds
+         */
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        /**
+         * get heap left after collecting garbage (valid after the memory limit
+         * exceeded)
+         *
+         * @return bytes in use
+         */
+        public long getLiveHeapBytes() {
+            return liveHeapBytes;
+        }
+
+        /**
+         * get the watched thread
+         *
+         * @return watched thread
+         */
+        public Thread getThread() {
+            return thread;
+        }
+
+        /**
+         * judge the test case as exceeded the memory limit and notify it like
+         * the time limits, unless it has already finished (called from the
+         * thread measuring memory)
+         *
+         * @param liveHeapBytes heap left after collecting garbage
+         */
+        public void exceedMemoryLimit(long liveHeapBytes) {
+            this.liveHeapBytes = liveHeapBytes;
+            exceed(MEMORY_LIMIT_EXCEEDED, currentCpuNanos(), System.nanoTime() - startWallNanos);
+        }
+
+        /**
+         * judge the test case as exceeded and notify it
+         *
+         * @param exceededState TIME_LIMIT_EXCEEDED, STALLED or
+         *                      MEMORY_LIMIT_EXCEEDED
+         * @param cpu           CPU time at this moment
+         * @param wall          wall-clock time at this moment
+         */
+        private void exceed(int exceededState, long cpu, long wall) {
+            if (state.compareAndSet(RUNNING, exceededState)) {
+                cpuNanos = cpu;
+                wallNanos = wall;
+                watches.remove(this);
+                onExceeded.accept(this);
+            }
+        }
+
+        /**
+         * get CPU time of the watched thread since the watch started (called
+         * from the watchdog thread)
+         *
+         * @return CPU time in nanoseconds
+         */
+        private long currentCpuNanos() {
+            if (!cpuTimeSupported) {
+                return System.nanoTime() - startWallNanos;
+            }
+            long cpu = threadMXBean.getThreadCpuTime(thread.getId());
+            return cpu < 0 ? 0 : cpu - startCpuNanos;
+        }
+
+        /**
+         * get CPU time of the calling thread
+         *
+         * @return CPU time in nanoseconds
+         */
+        private long currentThreadCpuNanos() {
+            return cpuTimeSupported ? threadMXBean.getCurrentThreadCpuTime() : System.nanoTime();
+        }
+    }
+}
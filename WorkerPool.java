@@ -0,0 +1,251 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * pool of pre-started worker JVMs ({@link TestWorker}) to execute test cases
+ * in isolated processes
+ */
+public class WorkerPool implements AutoCloseable {
+
+    /**
+     * worker was killed since it didn't respond within the wall-clock time limit
+     */
+    public static final byte STATUS_TIMEOUT = -1;
+
+    /**
+     * worker died without response
+     */
+    public static final byte STATUS_CRASHED = -2;
+
+    /**
+     * time to wait for a worker to report exceeding the wall-clock time limit
+     * by itself before killing it
+     */
+    private static final long KILL_GRACE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int recycleAfter;
+    private final long maxHeapBytes;
+    private final Path classFolder;
+    private final BlockingQueue<WorkerProcess> idleWorkers = new LinkedBlockingQueue<>();
+
+    /**
+     * thread to kill workers which exceed the time limit
+     */
+    private final ScheduledExecutorService killer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = Executors.defaultThreadFactory().newThread(r);
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * constructor (start all workers)
+     *
+     * @param size         number of worker processes
+     * @param recycleAfter number of test cases after which a worker is replaced
+     * @param maxHeapBytes maximum heap size of each worker
+     * @param classFolder  folder of compiled classes of Main
+     * @throws IOException if failed to start a worker
+     */
+    public WorkerPool(int size, int recycleAfter, long maxHeapBytes, Path classFolder) throws IOException {
+        this.recycleAfter = recycleAfter;
+        this.maxHeapBytes = maxHeapBytes;
+        this.classFolder = classFolder;
+        for (int i = 0; i < size; i++) {
+            idleWorkers.add(new WorkerProcess());
+        }
+    }
+
+    /**
+     * execute a test case on an idle worker (blocks until a worker gets idle)
+     *
+     * @param inputFilePath  input data of the test case
+     * @param outputFilePath file to save the output into
+     * @param cpuLimitNanos  limit of CPU time
+     * @param wallLimitNanos limit of wall-clock time
+     * @return result of the execution
+     * @throws InterruptedException if interrupted while waiting for a worker
+     */
+    public Result execute(Path inputFilePath, Path outputFilePath, long cpuLimitNanos, long wallLimitNanos)
+            throws InterruptedException {
+        WorkerProcess worker = idleWorkers.take();
+        Result result = worker.execute(inputFilePath, outputFilePath, cpuLimitNanos, wallLimitNanos);
+
+        if (result.status == TestWorker.STATUS_SUCCEEDED && worker.executedCount < recycleAfter) {
+            idleWorkers.add(worker);
+        } else {
+            // replace the worker since it may be dead or polluted
+            worker.destroy();
+            try {
+                idleWorkers.add(new WorkerProcess());
+            } catch (IOException e) {
+                System.err.println("failed to restart worker: " + e.getLocalizedMessage());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * stop all workers
+     */
+    @Override
+    public void close() {
+        killer.shutdownNow();
+        WorkerProcess worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            worker.close();
+        }
+    }
+
+    /**
+     * result of a test case executed by a worker
+     */
+    public static class Result {
+
+        /**
+         * one of TestWorker.STATUS_XXX, or STATUS_TIMEOUT/STATUS_CRASHED
+         */
+        public final byte status;
+
+        /**
+         * elapsed time of Main::main in nanoseconds
+         */
+        public final long elapsedNanos;
+
+        /**
+         * CPU time of Main::main in nanoseconds
+         */
+        public final long cpuNanos;
+
+        /**
+         * memory usage of Main::main
+         */
+        public final MemoryMeter.Usage memory;
+
+        /**
+         * detail of the status
+         */
+        public final String message;
+
+        /**
+         * constructor
+         *
+         * @param status       of the execution
+         * @param elapsedNanos of Main::main
+         * @param cpuNanos     of Main::main
+         * @param memory       usage of Main::main
+         * @param message      detail of the status
+         */
+        public Result(byte status, long elapsedNanos, long cpuNanos, MemoryMeter.Usage memory, String message) {
+            this.status = status;
+            this.elapsedNanos = elapsedNanos;
+            this.cpuNanos = cpuNanos;
+            this.memory = memory;
+            this.message = message;
+        }
+    }
+
+    /**
+     * a worker JVM and its channel
+     */
+    private class WorkerProcess {
+
+        private final Process process;
+        private final DataOutputStream requestStream;
+        private final DataInputStream responseStream;
+        private volatile boolean killed = false;
+
+        /**
+         * number of test cases executed by this worker
+         */
+        public int executedCount = 0;
+
+        /**
+         * constructor (start the worker JVM without waiting for it to boot)
+         *
+         * @throws IOException if failed to start the process
+         */
+        public WorkerProcess() throws IOException {
+            String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+            process = new ProcessBuilder(java, "-Xmx" + maxHeapBytes, "-cp", System.getProperty("java.class.path"),
+                    "TestWorker", classFolder.toAbsolutePath().toString())
+                    .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            requestStream = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            responseStream = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+        }
+
+        /**
+         * execute a test case on this worker
+         *
+         * @param inputFilePath  input data of the test case
+         * @param outputFilePath file to save the output into
+         * @param cpuLimitNanos  limit of CPU time
+         * @param wallLimitNanos limit of wall-clock time
+         * @return result of the execution
+         */
+        public Result execute(Path inputFilePath, Path outputFilePath, long cpuLimitNanos, long wallLimitNanos) {
+            executedCount++;
+
+            // the worker judges limits by itself, so this is only for a wedged worker
+            ScheduledFuture<?> kill = killer.schedule(() -> {
+                killed = true;
+                process.destroyForcibly();
+            }, wallLimitNanos + KILL_GRACE_NANOS, TimeUnit.NANOSECONDS);
+
+            try {
+                requestStream.writeUTF(inputFilePath.toAbsolutePath().toString());
+                requestStream.writeUTF(outputFilePath.toAbsolutePath().toString());
+                requestStream.writeLong(cpuLimitNanos);
+                requestStream.writeLong(wallLimitNanos);
+                requestStream.flush();
+
+                byte status = responseStream.readByte();
+                long elapsedNanos = responseStream.readLong();
+                long cpuNanos = responseStream.readLong();
+                MemoryMeter.Usage memory = new MemoryMeter.Usage(responseStream.readLong(),
+                        responseStream.readLong(), responseStream.readLong(), responseStream.readLong(),
+                        responseStream.readLong());
+                String message = responseStream.readUTF();
+                return new Result(status, elapsedNanos, cpuNanos, memory, message);
+            } catch (IOException e) {
+                if (killed) {
+                    return new Result(STATUS_TIMEOUT, wallLimitNanos, 0, null, "execution timeout");
+                }
+                return new Result(STATUS_CRASHED, 0, 0, null, "worker crashed: " + e.getLocalizedMessage());
+            } finally {
+                kill.cancel(false);
+            }
+        }
+
+        /**
+         * kill this worker
+         */
+        public void destroy() {
+            process.destroyForcibly();
+        }
+
+        /**
+         * stop this worker by closing its channel
+         */
+        public void close() {
+            try {
+                requestStream.close();
+                if (!process.waitFor(2, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (IOException | InterruptedException e) {
+                process.destroyForcibly();
+            }
+        }
+    }
+}
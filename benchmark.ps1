@@ -0,0 +1,6 @@
+$sources = @('Benchmark.java', 'Constants.java', 'AtCoderHelper.java', 'HttpCache.java', 'TaskMetadata.java', 'InputSpec.java', 'FastIO.java', 'SampleArchive.java', 'OutputComparator.java', 'Checker.java', 'TokenReader.java', 'InProcessRunner.java', 'StdioMultiplexer.java', 'Watchdog.java', 'MemoryMeter.java', 'TimingStatistics.java', 'BytecodeClassLoader.java')
+
+javac -encoding UTF-8 -d ./compile/ $sources
+if ( 0 -eq ${LASTEXITCODE} ){
+    java -cp ./compile/ Benchmark $args
+}
@@ -0,0 +1,4 @@
+javac -encoding UTF-8 -d ./compile/ HttpCacheCheck.java HttpCache.java
+if ( 0 -eq ${LASTEXITCODE} ){
+    java -cp ./compile/ HttpCacheCheck $args
+}
@@ -1,4 +1,11 @@
-javac -d ./compile/ TestExecutor.java Main.java
-if ( 0 -eq ${LASTEXITCODE} ){
-    java -cp ./compile/ TestExecutor.java
+$sources = @('TestExecutor.java', 'Constants.java', 'StdioMultiplexer.java', 'TestWorker.java', 'WorkerPool.java', 'Watchdog.java', 'InProcessRunner.java', 'TimingStatistics.java', 'MemoryMeter.java', 'OutputComparator.java', 'Checker.java', 'TokenReader.java', 'ToleranceChecker.java', 'OutputBuffer.java', 'StressTester.java', 'SourceCompiler.java', 'BytecodeClassLoader.java', 'TimingHistory.java', 'TaskMetadata.java', 'IoBenchmark.java', 'FastIO.java', 'Profiler.java', 'ScalingTester.java', 'SampleArchive.java', 'OutputDiff.java')
+
+# compile TestExecutor only when its sources are updated (Main.java is compiled by TestExecutor itself)
+$stamp = './compile/TestExecutor.class'
+if ( -not (Test-Path $stamp) -or (Get-ChildItem $sources | Where-Object { $_.LastWriteTime -gt (Get-Item $stamp).LastWriteTime }) ){
+    javac -d ./compile/ $sources
+    if ( 0 -ne ${LASTEXITCODE} ){
+        exit ${LASTEXITCODE}
+    }
 }
+java -cp ./compile/ TestExecutor $args
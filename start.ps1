@@ -1,5 +1,5 @@
 $Host.ui.RawUI.WindowTitle = "AtCoder Helper"
-javac -encoding UTF-8 -d ./compile/ AtCoderHelper.java Constants.java
+javac -encoding UTF-8 -d ./compile/ AtCoderHelper.java HttpCache.java TaskMetadata.java InputSpec.java FastIO.java SampleArchive.java Constants.java
 if ( 0 -eq ${LASTEXITCODE} ){
-    java -cp ./compile/ AtCoderHelper
+    java -cp ./compile/ AtCoderHelper $args
 }